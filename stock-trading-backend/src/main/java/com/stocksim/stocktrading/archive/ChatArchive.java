@@ -0,0 +1,297 @@
+package com.stocksim.stocktrading.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stocksim.stocktrading.dto.ChatMessageDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressed archive of chat messages moved out of the chat_messages table by {@link ChatRetentionJob}.
+ *
+ * Each room has its own directory of immutable segment files, gzip-compressed NDJSON with one
+ * {@link ChatMessageDTO} per line in (timestamp, id) order. The file name carries the segment's
+ * timestamp and id range ("seg-{firstMillis}-{lastMillis}-{minId}-{maxId}.ndjson.gz"), so lookups pick
+ * the segments to open from a directory listing alone. Recently read segments stay decoded in a small
+ * LRU cache.
+ *
+ * A segment is written before its rows are deleted, so an interrupted run can archive the same
+ * message twice; readers drop such duplicates by id.
+ */
+@Component
+public class ChatArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatArchive.class);
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("seg-(\\d+)-(\\d+)-(\\d+)-(\\d+)\\.ndjson\\.gz");
+
+    private static final Comparator<ChatMessageDTO> NEWEST_FIRST =
+            Comparator.comparing(ChatMessageDTO::getTimestamp).thenComparing(ChatMessageDTO::getId).reversed();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Path directory;
+
+    // Decoded segments, least recently used first; guarded by itself
+    private final Map<Path, List<ChatMessageDTO>> cache;
+
+    private record Segment(Path file, long firstMillis, long lastMillis, long minId, long maxId) {
+    }
+
+    public ChatArchive(@Value("${chat.retention.archive-dir}") String archiveDir,
+                       @Value("${chat.retention.cache-segments}") int cacheSegments) {
+        this.directory = Paths.get(archiveDir);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, List<ChatMessageDTO>> eldest) {
+                return size() > cacheSegments;
+            }
+        };
+    }
+
+    /**
+     * Writes messages of one room as a new segment, atomically.
+     * @param chatRoomId The room of all the messages.
+     * @param messages Messages with ids, in (timestamp, id) order.
+     */
+    public void write(String chatRoomId, List<ChatMessageDTO> messages) throws IOException {
+        Path roomDirectory = directory.resolve(chatRoomId);
+        Files.createDirectories(roomDirectory);
+        long minId = messages.stream().mapToLong(ChatMessageDTO::getId).min().orElseThrow();
+        long maxId = messages.stream().mapToLong(ChatMessageDTO::getId).max().orElseThrow();
+        Path target = roomDirectory.resolve(String.format("seg-%d-%d-%d-%d.ndjson.gz",
+                millis(messages.get(0).getTimestamp()), millis(messages.get(messages.size() - 1).getTimestamp()), minId, maxId));
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(temporary)), StandardCharsets.UTF_8))) {
+            for (ChatMessageDTO message : messages) {
+                out.write(objectMapper.writeValueAsString(message));
+                out.newLine();
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        logger.debug("Archived {} messages of room {} to {}", messages.size(), chatRoomId, target.getFileName());
+    }
+
+    /**
+     * @param chatRoomId The ID of the chat room.
+     * @param id A message id.
+     * @return The timestamp of the archived message, if it is archived in that room.
+     */
+    public Optional<LocalDateTime> findTimestamp(String chatRoomId, long id) {
+        for (Segment segment : segments(chatRoomId)) {
+            if (segment.minId <= id && id <= segment.maxId) {
+                for (ChatMessageDTO message : read(segment)) {
+                    if (message.getId() == id) {
+                        return Optional.of(message.getTimestamp());
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Archived counterpart of the keyset-paged history query.
+     * @param chatRoomId The ID of the chat room.
+     * @param timestamp Cursor timestamp, or null to start from the newest archived message.
+     * @param id Cursor id (ignored without a timestamp).
+     * @param limit Maximum number of messages.
+     * @return The archived messages older than the cursor, newest first.
+     */
+    public List<ChatMessageDTO> findPageBefore(String chatRoomId, LocalDateTime timestamp, long id, int limit) {
+        List<Segment> newestFirst = new ArrayList<>(segments(chatRoomId));
+        newestFirst.sort(Comparator.comparingLong(Segment::lastMillis).reversed());
+        List<ChatMessageDTO> candidates = new ArrayList<>();
+        for (Segment segment : newestFirst) {
+            if (timestamp != null && segment.firstMillis > millis(timestamp)) {
+                continue; // Entirely newer than the cursor
+            }
+            if (candidates.size() >= limit) {
+                candidates = newestDistinct(candidates, Integer.MAX_VALUE);
+                // This and all remaining segments end before the oldest message the page would keep
+                if (candidates.size() >= limit && segment.lastMillis < millis(candidates.get(limit - 1).getTimestamp())) {
+                    break;
+                }
+            }
+            for (ChatMessageDTO message : read(segment)) {
+                if (timestamp == null || isBefore(message, timestamp, id)) {
+                    candidates.add(message);
+                }
+            }
+        }
+        return newestDistinct(candidates, limit);
+    }
+
+    /**
+     * Opens only the segments whose id range holds a wanted id, and stops once every id is found.
+     * @param ids Message ids, e.g., search hits missing from the database.
+     * @return The archived messages among them, in no particular order.
+     */
+    public List<ChatMessageDTO> findByIds(Collection<Long> ids) {
+        Set<Long> missing = new HashSet<>(ids);
+        List<ChatMessageDTO> found = new ArrayList<>(missing.size());
+        if (missing.isEmpty()) {
+            return found;
+        }
+        List<Segment> candidates = new ArrayList<>();
+        for (String chatRoomId : roomIds()) {
+            for (Segment segment : segments(chatRoomId)) {
+                if (holdsAny(segment, missing)) {
+                    candidates.add(segment);
+                }
+            }
+        }
+        for (Segment segment : candidates) {
+            if (!holdsAny(segment, missing)) {
+                continue; // Its ids were all found in earlier segments
+            }
+            for (ChatMessageDTO message : read(segment)) {
+                if (missing.remove(message.getId())) {
+                    found.add(message);
+                }
+            }
+            if (missing.isEmpty()) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Streams the whole archive one segment at a time, e.g., to rebuild the search index.
+     * @param consumer Receives the messages of each segment.
+     */
+    public void forEachSegment(Consumer<List<ChatMessageDTO>> consumer) {
+        for (String chatRoomId : roomIds()) {
+            for (Segment segment : segments(chatRoomId)) {
+                consumer.accept(readUncached(segment.file));
+            }
+        }
+    }
+
+    private List<String> roomIds() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> rooms = Files.list(directory)) {
+            return rooms.filter(Files::isDirectory).map(path -> path.getFileName().toString()).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Segment> segments(String chatRoomId) {
+        Path roomDirectory = directory.resolve(chatRoomId);
+        if (!Files.isDirectory(roomDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(roomDirectory)) {
+            List<Segment> segments = new ArrayList<>();
+            for (Path file : files.toList()) {
+                Matcher name = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (name.matches()) {
+                    segments.add(new Segment(file, Long.parseLong(name.group(1)), Long.parseLong(name.group(2)),
+                            Long.parseLong(name.group(3)), Long.parseLong(name.group(4))));
+                }
+            }
+            return segments;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<ChatMessageDTO> read(Segment segment) {
+        synchronized (cache) {
+            List<ChatMessageDTO> cached = cache.get(segment.file);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        List<ChatMessageDTO> messages = readUncached(segment.file);
+        synchronized (cache) {
+            cache.put(segment.file, messages);
+        }
+        return messages;
+    }
+
+    private List<ChatMessageDTO> readUncached(Path file) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            List<ChatMessageDTO> messages = new ArrayList<>();
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                messages.add(objectMapper.readValue(line, ChatMessageDTO.class));
+            }
+            return List.copyOf(messages);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read chat archive segment " + file, e);
+        }
+    }
+
+    private static boolean holdsAny(Segment segment, Set<Long> ids) {
+        for (long id : ids) {
+            if (segment.minId <= id && id <= segment.maxId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<ChatMessageDTO> newestDistinct(List<ChatMessageDTO> messages, int limit) {
+        List<ChatMessageDTO> sorted = new ArrayList<>(messages);
+        sorted.sort(NEWEST_FIRST);
+        List<ChatMessageDTO> distinct = new ArrayList<>(Math.min(limit, sorted.size()));
+        Set<Long> seen = new HashSet<>();
+        for (ChatMessageDTO message : sorted) {
+            if (distinct.size() == limit) {
+                break;
+            }
+            if (seen.add(message.getId())) {
+                distinct.add(message);
+            }
+        }
+        return distinct;
+    }
+
+    private static boolean isBefore(ChatMessageDTO message, LocalDateTime timestamp, long id) {
+        int order = message.getTimestamp().compareTo(timestamp);
+        return order < 0 || (order == 0 && message.getId() < id);
+    }
+
+    // Segment ranges are compared in whole milliseconds; truncation keeps the comparisons conservative
+    private static long millis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
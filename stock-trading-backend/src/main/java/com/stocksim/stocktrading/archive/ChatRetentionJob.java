@@ -0,0 +1,182 @@
+package com.stocksim.stocktrading.archive;
+
+import com.stocksim.stocktrading.cluster.LeaderLeaseService;
+import com.stocksim.stocktrading.datasource.Workload;
+import com.stocksim.stocktrading.datasource.WorkloadClass;
+import com.stocksim.stocktrading.datasource.WorkloadContext;
+import com.stocksim.stocktrading.dto.ChatMessageDTO;
+import com.stocksim.stocktrading.repository.ChatMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves chat messages older than chat.retention.max-age-days from the chat_messages table into the
+ * {@link ChatArchive}, keeping the hot table (and its indexes) at the size of the retention window.
+ *
+ * Runs on the node holding the cluster lease. Each room is archived oldest first, one segment of up to
+ * segment-messages messages at a time: the segment file is written, then its rows are deleted in chunks
+ * of delete-chunk-size, each in its own short transaction with a pause in between, so chat inserts are
+ * never blocked behind one large delete. Every segment write and chunk delete is a separate task on the
+ * scheduling pool, and the pause is the delay before the next one, so no scheduling thread sits idle
+ * while a run is in progress.
+ */
+@Component
+@Workload(WorkloadClass.CHAT)
+public class ChatRetentionJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatRetentionJob.class);
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ChatArchive chatArchive;
+
+    @Autowired
+    private LeaderLeaseService leaderLeaseService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("taskScheduler") // The @Scheduled pool (see SchedulingConfig)
+    private TaskScheduler taskScheduler;
+
+    @Value("${chat.retention.max-age-days}")
+    private int maxAgeDays;
+
+    @Value("${chat.retention.segment-messages}")
+    private int segmentMessages;
+
+    @Value("${chat.retention.delete-chunk-size}")
+    private int deleteChunkSize;
+
+    @Value("${chat.retention.delete-pause-ms}")
+    private long deletePauseMs;
+
+    // Set while a run's steps are still being scheduled, so runs never overlap
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Progress of one run. Only touched by its steps, which run one after the other.
+     */
+    private static final class ArchivalRun {
+        final LocalDateTime cutoff;
+        final Deque<String> rooms;   // Rooms still to archive, the current one first
+        List<Long> archivedIds;      // Ids of the segment just written whose rows are not all deleted yet
+        int deletedUpTo;             // Position in archivedIds of the next chunk to delete
+        long archived;
+
+        ArchivalRun(LocalDateTime cutoff, List<String> rooms) {
+            this.cutoff = cutoff;
+            this.rooms = new ArrayDeque<>(rooms);
+        }
+    }
+
+    /**
+     * Starts archiving every room's messages past the retention age, unless a run is still in progress.
+     */
+    @Scheduled(fixedDelayString = "${chat.retention.interval-ms}", initialDelayString = "${chat.retention.interval-ms}")
+    public void archiveExpiredMessages() {
+        if (!leaderLeaseService.isLeader()) {
+            return; // Another node holds the lease and runs the job
+        }
+        if (!running.compareAndSet(false, true)) {
+            logger.debug("Chat archival still in progress; skipping this run.");
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(maxAgeDays);
+        try {
+            step(new ArchivalRun(cutoff, chatMessageRepository.findDistinctChatRoomIds()));
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the next segment or deletes the next chunk of archived rows, then schedules the next step.
+     */
+    private void step(ArchivalRun run) {
+        // Steps after the first run on the scheduler directly, outside the @Workload proxy
+        WorkloadClass previous = WorkloadContext.set(WorkloadClass.CHAT);
+        try {
+            if (!leaderLeaseService.isLeader()) {
+                finish(run); // The new leader archives the rest
+            } else if (run.archivedIds != null) {
+                deleteNextChunk(run);
+                scheduleStep(run, deletePauseMs);
+            } else if (archiveNextSegment(run)) {
+                scheduleStep(run, 0);
+            } else {
+                finish(run);
+            }
+        } catch (IOException e) {
+            logger.error("Chat archival stopped; the messages not yet archived stay in the database: {}", e.getMessage());
+            finish(run);
+        } catch (RuntimeException e) {
+            logger.error("Chat archival stopped: {}", e.getMessage(), e);
+            finish(run);
+        } finally {
+            WorkloadContext.set(previous);
+        }
+    }
+
+    /**
+     * Writes the oldest archivable messages of the current room as a segment.
+     * @return False once every room is done.
+     */
+    private boolean archiveNextSegment(ArchivalRun run) throws IOException {
+        while (!run.rooms.isEmpty()) {
+            String chatRoomId = run.rooms.peek();
+            List<ChatMessageDTO> batch = chatMessageRepository.findArchivable(chatRoomId, run.cutoff, PageRequest.of(0, segmentMessages));
+            if (batch.size() < segmentMessages) {
+                run.rooms.poll(); // The room's last segment of this run
+            }
+            if (!batch.isEmpty()) {
+                chatArchive.write(chatRoomId, batch);
+                run.archivedIds = batch.stream().map(ChatMessageDTO::getId).toList();
+                run.deletedUpTo = 0;
+                run.archived += batch.size();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void deleteNextChunk(ArchivalRun run) {
+        List<Long> chunk = run.archivedIds.subList(run.deletedUpTo, Math.min(run.deletedUpTo + deleteChunkSize, run.archivedIds.size()));
+        transactionTemplate.executeWithoutResult(status -> chatMessageRepository.deleteByIds(chunk));
+        run.deletedUpTo += chunk.size();
+        if (run.deletedUpTo == run.archivedIds.size()) {
+            run.archivedIds = null;
+        }
+    }
+
+    private void scheduleStep(ArchivalRun run, long delayMs) {
+        taskScheduler.schedule(() -> step(run), Instant.now().plusMillis(delayMs));
+    }
+
+    private void finish(ArchivalRun run) {
+        running.set(false);
+        if (run.archived > 0) {
+            logger.info("Archived {} chat messages older than {}.", run.archived, run.cutoff);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.stocksim.stocktrading.cache;
+
+import com.stocksim.stocktrading.cluster.ClusterBroadcaster;
+import com.stocksim.stocktrading.event.PriceTickEvent;
+import com.stocksim.stocktrading.model.Stock;
+import com.stocksim.stocktrading.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps every node's second-level cache (see {@link com.stocksim.stocktrading.config.HibernateCacheConfig})
+ * in step with changes made anywhere in the cluster.
+ *
+ * Hibernate updates the cache of the node that makes a change, but not those of the other nodes. Price
+ * ticks already reach every node, so each node evicts the ticked stock when the tick is delivered; the
+ * next read loads the new price. A transaction that began before the price was written may still put
+ * the old price back, so trades do not rely on this and read the price from the database. Other
+ * changes to users and stocks are announced over the cluster bus once committed.
+ */
+@Component
+public class SecondLevelCacheInvalidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecondLevelCacheInvalidator.class);
+
+    // Internal cluster destinations; the user id, or a placeholder for stocks
+    private static final String USER_CHANGED = "cluster/user-changed";
+    private static final String STOCKS_CHANGED = "cluster/stocks-changed";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @PostConstruct
+    public void registerClusterHandlers() {
+        clusterBroadcaster.registerHandler(USER_CHANGED, payload -> cache().evictEntityData(User.class, payload));
+        clusterBroadcaster.registerHandler(STOCKS_CHANGED, payload -> {
+            cache().evictEntityData(Stock.class);
+            cache().evictDefaultQueryRegion(); // Cached lookups may not know about a new stock
+        });
+    }
+
+    /**
+     * Evicts the ticked stock, so reads on this node load the price the tick announced.
+     * @param event The tick delivered to this node.
+     */
+    @EventListener
+    public void onPriceTick(PriceTickEvent event) {
+        if (event.getTick().getId() == null) {
+            logger.warn("Price tick #{} for {} carries no stock id; nothing to evict.", event.getTick().getSequence(), event.getTick().getSymbol());
+            return;
+        }
+        cache().evictEntityData(Stock.class, event.getTick().getId());
+        logger.debug("Evicted cached stock {} after price tick #{}", event.getTick().getSymbol(), event.getTick().getSequence());
+    }
+
+    /**
+     * Has every node drop its cached copy of a user once the current transaction commits.
+     * @param userId The ID of the changed user.
+     */
+    public void userChanged(Long userId) {
+        publishAfterCommit(USER_CHANGED, userId);
+    }
+
+    /**
+     * Has every node drop its cached stocks and cached query results once the current transaction
+     * commits, e.g., after a stock was added or removed.
+     */
+    public void stocksChanged() {
+        publishAfterCommit(STOCKS_CHANGED, Boolean.TRUE);
+    }
+
+    // Other nodes would otherwise reload the old row before it is replaced
+    private void publishAfterCommit(String destination, Object payload) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clusterBroadcaster.broadcast(destination, payload);
+                }
+            });
+        } else {
+            clusterBroadcaster.broadcast(destination, payload);
+        }
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.getCache().unwrap(Cache.class);
+    }
+}
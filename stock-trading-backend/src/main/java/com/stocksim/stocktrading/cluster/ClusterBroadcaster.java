@@ -0,0 +1,75 @@
+package com.stocksim.stocktrading.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Entry point for anything that must reach clients or state on every node, not just this one.
+ *
+ * {@link #broadcast} publishes to the {@link ClusterMessageBus}; when the frame comes back on each node
+ * (this one included) it is either passed to the handler registered for its destination or forwarded
+ * to the node's local simple broker, which fans it out to the node's own WebSocket subscribers.
+ */
+@Component
+public class ClusterBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterBroadcaster.class);
+
+    @Autowired
+    private ClusterMessageBus clusterMessageBus;
+
+    @Autowired
+    private ClusterNode clusterNode;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    private final Map<String, Consumer<Object>> handlers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void join() {
+        clusterMessageBus.subscribe(clusterNode.getNodeId(), this::receive);
+    }
+
+    @PreDestroy
+    public void leave() {
+        clusterMessageBus.unsubscribe(clusterNode.getNodeId());
+    }
+
+    /**
+     * Sends a payload to a destination on every node.
+     * @param destination A STOMP destination forwarded as-is to each node's broker, or an internal destination with a handler.
+     * @param payload The payload; STOMP payloads are converted to JSON by each node's broker.
+     */
+    public void broadcast(String destination, Object payload) {
+        clusterMessageBus.publish(new ClusterFrame(clusterNode.getNodeId(), destination, payload));
+    }
+
+    /**
+     * Takes over local delivery of a destination, e.g., to record price ticks before they reach subscribers.
+     * @param destination The destination to handle.
+     * @param handler Receives the payload of every frame for that destination.
+     */
+    public void registerHandler(String destination, Consumer<Object> handler) {
+        handlers.put(destination, handler);
+    }
+
+    private void receive(ClusterFrame frame) {
+        Consumer<Object> handler = handlers.get(frame.getDestination());
+        if (handler != null) {
+            handler.accept(frame.getPayload());
+        } else {
+            messagingTemplate.convertAndSend(frame.getDestination(), frame.getPayload());
+        }
+        logger.trace("Delivered cluster frame for {} from node {}", frame.getDestination(), frame.getOriginNodeId());
+    }
+}
@@ -0,0 +1,23 @@
+package com.stocksim.stocktrading.cluster;
+
+import lombok.Getter;
+
+/**
+ * A message travelling between backend nodes over the {@link ClusterMessageBus}.
+ * The destination is either a STOMP destination (e.g., "/topic/prices") that every node
+ * forwards to its local broker, or an internal destination consumed by a registered handler.
+ */
+@Getter
+public class ClusterFrame {
+    private final String originNodeId;
+    private final String destination;
+    private final Object payload;
+    private final long publishedAtMillis;
+
+    public ClusterFrame(String originNodeId, String destination, Object payload) {
+        this.originNodeId = originNodeId;
+        this.destination = destination;
+        this.payload = payload;
+        this.publishedAtMillis = System.currentTimeMillis();
+    }
+}
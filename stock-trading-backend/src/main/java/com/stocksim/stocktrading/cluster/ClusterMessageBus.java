@@ -0,0 +1,33 @@
+package com.stocksim.stocktrading.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport that delivers every published {@link ClusterFrame} to every node of the cluster,
+ * including the publishing node itself.
+ *
+ * Implementations that cross process boundaries are responsible for serializing the payload
+ * (e.g., as JSON tagged with its class name); {@link LoopbackClusterMessageBus} hands the
+ * payload object over as-is.
+ */
+public interface ClusterMessageBus {
+
+    /**
+     * Publishes a frame to all nodes.
+     * @param frame The frame to deliver.
+     */
+    void publish(ClusterFrame frame);
+
+    /**
+     * Registers this node as a receiver.
+     * @param nodeId The id of the receiving node.
+     * @param receiver Called once per delivered frame.
+     */
+    void subscribe(String nodeId, Consumer<ClusterFrame> receiver);
+
+    /**
+     * Removes this node's receiver, e.g., on shutdown.
+     * @param nodeId The id of the receiving node.
+     */
+    void unsubscribe(String nodeId);
+}
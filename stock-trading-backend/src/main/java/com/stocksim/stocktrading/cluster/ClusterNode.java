@@ -0,0 +1,30 @@
+package com.stocksim.stocktrading.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.UUID;
+
+/**
+ * Identity of this backend instance within the cluster.
+ * Uses "cluster.node-id" when configured, otherwise a random id that changes with every start.
+ */
+@Component
+public class ClusterNode {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterNode.class);
+
+    private final String nodeId;
+
+    public ClusterNode(@Value("${cluster.node-id:}") String configuredNodeId) {
+        this.nodeId = StringUtils.hasText(configuredNodeId) ? configuredNodeId : UUID.randomUUID().toString();
+        logger.info("Cluster node id: {}", nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,143 @@
+package com.stocksim.stocktrading.cluster;
+
+import com.stocksim.stocktrading.model.SchedulerLease;
+import com.stocksim.stocktrading.repository.SchedulerLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Database-backed leader lease that lets exactly one node run a cluster-wide job.
+ *
+ * Every node heartbeats against a row in "scheduler_leases": the holder renews it, the others try to
+ * take it over once it has expired. Each takeover increments the fencing token, which the leader
+ * passes along with its writes so that a node which lost the lease (e.g., after a long GC pause)
+ * cannot overwrite data written by its successor.
+ *
+ * Expiry is computed and compared by the database on its own clock, so skew between the nodes' clocks
+ * cannot let two of them hold the lease at once. Locally, leadership is only assumed until (start of the
+ * last successful heartbeat + ttl - heartbeat interval) on the monotonic clock, which leaves one heartbeat
+ * of margin for the round trip to the database.
+ */
+@Service
+public class LeaderLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderLeaseService.class);
+
+    @Autowired
+    private SchedulerLeaseRepository leaseRepository;
+
+    @Autowired
+    private ClusterNode clusterNode;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final String leaseName;
+    private final long ttlMs;
+    private final long heartbeatMs;
+
+    private volatile Long fencingToken; // Token of the lease held by this node, null when not leader
+    private volatile long validUntilNanos;
+
+    public LeaderLeaseService(@Value("${cluster.lease.name}") String leaseName,
+                              @Value("${cluster.lease.ttl-ms}") long ttlMs,
+                              @Value("${cluster.lease.heartbeat-ms}") long heartbeatMs) {
+        if (heartbeatMs >= ttlMs) {
+            throw new IllegalArgumentException("cluster.lease.heartbeat-ms must be shorter than cluster.lease.ttl-ms");
+        }
+        this.leaseName = leaseName;
+        this.ttlMs = ttlMs;
+        this.heartbeatMs = heartbeatMs;
+    }
+
+    /**
+     * @return True if this node holds the lease and it has not locally expired.
+     */
+    public boolean isLeader() {
+        return fencingToken != null && System.nanoTime() - validUntilNanos < 0;
+    }
+
+    /**
+     * Runs a heartbeat right away unless this node is already leader, so a job does not have to wait
+     * for the next heartbeat after startup or after the previous leader released the lease.
+     * @return True if this node is leader afterwards.
+     */
+    public boolean tryBecomeLeader() {
+        if (!isLeader()) {
+            heartbeat();
+        }
+        return isLeader();
+    }
+
+    /**
+     * @return The fencing token of the held lease, or null when this node is not leader.
+     */
+    public Long currentFencingToken() {
+        return isLeader() ? fencingToken : null;
+    }
+
+    /**
+     * Renews the lease if this node holds it, otherwise tries to take it over.
+     */
+    @Scheduled(fixedRateString = "${cluster.lease.heartbeat-ms}")
+    public synchronized void heartbeat() {
+        long startedNanos = System.nanoTime();
+        String nodeId = clusterNode.getNodeId();
+
+        try {
+            Long heldToken = fencingToken;
+            Long token = transactionTemplate.execute(status -> {
+                if (heldToken != null && leaseRepository.renew(leaseName, nodeId, heldToken, ttlMs) == 1) {
+                    return heldToken;
+                }
+                if (!leaseRepository.existsById(leaseName)) {
+                    leaseRepository.saveAndFlush(new SchedulerLease(leaseName));
+                }
+                if (leaseRepository.acquire(leaseName, nodeId, ttlMs) == 1) {
+                    return leaseRepository.findFencingToken(leaseName);
+                }
+                return null;
+            });
+
+            if (token != null) {
+                validUntilNanos = startedNanos + TimeUnit.MILLISECONDS.toNanos(ttlMs - heartbeatMs);
+                if (!token.equals(heldToken)) {
+                    logger.info("Node {} acquired lease '{}' with fencing token {}.", nodeId, leaseName, token);
+                }
+            } else if (heldToken != null) {
+                logger.warn("Node {} lost lease '{}' (fencing token {}).", nodeId, leaseName, heldToken);
+            }
+            fencingToken = token;
+        } catch (Exception e) {
+            // Keep the local deadline: leadership lapses on its own if the database stays unreachable
+            logger.error("Lease heartbeat for '{}' failed: {}", leaseName, e.getMessage());
+        }
+    }
+
+    /**
+     * Releases the lease on shutdown so another node can take over immediately.
+     */
+    @PreDestroy
+    public synchronized void release() {
+        Long heldToken = fencingToken;
+        fencingToken = null;
+        if (heldToken == null) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    leaseRepository.release(leaseName, clusterNode.getNodeId(), heldToken));
+            logger.info("Node {} released lease '{}'.", clusterNode.getNodeId(), leaseName);
+        } catch (Exception e) {
+            logger.warn("Could not release lease '{}'; it will expire on its own: {}", leaseName, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.stocksim.stocktrading.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-process {@link ClusterMessageBus}.
+ *
+ * Nodes that share a JVM and a group name ("cluster.bus.loopback.group") see each other's frames,
+ * which makes a single instance behave exactly as before and lets several application contexts in
+ * one JVM form a cluster. Frames are delivered synchronously on the publishing thread, in publish order.
+ * A receiver that throws is logged and counted (see {@link #getFailedDeliveries()}); the other nodes still get the frame.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.bus.type", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackClusterMessageBus implements ClusterMessageBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoopbackClusterMessageBus.class);
+
+    // group -> (node id -> receiver), shared by every application context in the JVM
+    private static final Map<String, Map<String, Consumer<ClusterFrame>>> GROUPS = new ConcurrentHashMap<>();
+
+    private final Map<String, Consumer<ClusterFrame>> members;
+
+    private final AtomicLong failedDeliveries = new AtomicLong();
+
+    public LoopbackClusterMessageBus(@Value("${cluster.bus.loopback.group}") String group) {
+        this.members = GROUPS.computeIfAbsent(group, key -> new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public void publish(ClusterFrame frame) {
+        members.forEach((nodeId, receiver) -> {
+            try {
+                receiver.accept(frame);
+            } catch (Exception e) {
+                failedDeliveries.incrementAndGet();
+                logger.error("Node {} failed to handle cluster frame for {}: {}", nodeId, frame.getDestination(), e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * @return The number of deliveries of frames published through this bus that a receiving node failed to handle.
+     */
+    public long getFailedDeliveries() {
+        return failedDeliveries.get();
+    }
+
+    @Override
+    public void subscribe(String nodeId, Consumer<ClusterFrame> receiver) {
+        members.put(nodeId, receiver);
+    }
+
+    @Override
+    public void unsubscribe(String nodeId) {
+        members.remove(nodeId);
+    }
+}
@@ -0,0 +1,174 @@
+package com.stocksim.stocktrading.config;
+
+import com.stocksim.stocktrading.datasource.ReplicaLagMonitor;
+import com.stocksim.stocktrading.datasource.ReplicaReadJpaDialect;
+import com.stocksim.stocktrading.datasource.Workload;
+import com.stocksim.stocktrading.datasource.WorkloadClass;
+import com.stocksim.stocktrading.datasource.WorkloadInterceptor;
+import com.stocksim.stocktrading.datasource.WorkloadPools;
+import com.stocksim.stocktrading.datasource.WorkloadRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Connection pools of the primary database (one for unclassified work and one per {@link WorkloadClass})
+ * and, when datasource.replica.url is set, the same set of pools on a read replica.
+ *
+ * The application's DataSource routes each transaction's connection to the pool of its workload class,
+ * as declared with {@link Workload}, on the replica for read-only transactions while it is current and on
+ * the primary otherwise (see {@link WorkloadRoutingDataSource}). Every pool publishes the
+ * hikaricp.connections.* meters tagged with its name; "pending" and "timeout" show a saturated pool.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("primary");
+        return pool;
+    }
+
+    @Bean
+    public WorkloadPools workloadPools(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry) {
+        return workloadPools("", () -> properties.initializeDataSourceBuilder().type(HikariDataSource.class).build(),
+                environment, meterRegistry);
+    }
+
+    /**
+     * Applies {@link Workload} annotations; runs outside the transaction interceptor.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor workloadAdvisor() {
+        ComposablePointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(Workload.class, true))
+                .union(AnnotationMatchingPointcut.forMethodAnnotation(Workload.class));
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new WorkloadInterceptor());
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    /**
+     * Replica pool for unclassified read-only work, also used by the {@link ReplicaLagMonitor}.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "datasource.replica", name = "url")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties, Environment environment,
+                                              @Value("${datasource.replica.max-pool-size}") int maxPoolSize) {
+        HikariDataSource pool = replicaPool(properties, environment);
+        pool.setPoolName("replica");
+        pool.setMaximumPoolSize(maxPoolSize);
+        return pool;
+    }
+
+    /**
+     * Replica pools per workload class, sized like the primary's, so that read-only work of one class
+     * cannot take the replica connections of another either.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "datasource.replica", name = "url")
+    public WorkloadPools replicaWorkloadPools(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry) {
+        return workloadPools("replica-", () -> replicaPool(properties, environment), environment, meterRegistry);
+    }
+
+    /**
+     * Installs the {@link ReplicaReadJpaDialect}, so rows read on the replica never reach the second-level cache.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    @ConditionalOnProperty(prefix = "datasource.replica", name = "url")
+    public static BeanPostProcessor replicaReadJpaDialect() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean entityManagerFactory) {
+                    // Before initialization, so the transaction manager picks it up from the factory
+                    entityManagerFactory.setJpaDialect(new ReplicaReadJpaDialect());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "datasource.replica", name = "url")
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primary,
+                                               @Qualifier("replicaDataSource") DataSource replica,
+                                               @Value("${datasource.replica.max-lag-ms}") long maxLagMs,
+                                               MeterRegistry meterRegistry) {
+        return new ReplicaLagMonitor(primary, replica, maxLagMs, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("workloadPools") WorkloadPools workloadPools,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replica,
+                                 @Qualifier("replicaWorkloadPools") ObjectProvider<WorkloadPools> replicaWorkloadPools,
+                                 ObjectProvider<ReplicaLagMonitor> replicaLagMonitor) {
+        // The lazy proxy defers the real connection until the transaction is marked read-only or not
+        return new LazyConnectionDataSourceProxy(new WorkloadRoutingDataSource(primary, workloadPools,
+                replica.getIfAvailable(), replicaWorkloadPools.getIfAvailable(), replicaLagMonitor.getIfAvailable()));
+    }
+
+    /**
+     * Builds one pool per workload class, sized by datasource.workloads.{class}.*.
+     * @param poolNamePrefix Prepended to the class name to name each pool.
+     * @param newPool Creates an unconfigured pool on the right database.
+     */
+    private static WorkloadPools workloadPools(String poolNamePrefix, Supplier<HikariDataSource> newPool,
+                                               Environment environment, MeterRegistry meterRegistry) {
+        Map<WorkloadClass, HikariDataSource> pools = new EnumMap<>(WorkloadClass.class);
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            String name = workloadClass.name().toLowerCase(Locale.ROOT);
+            String prefix = "datasource.workloads." + name + ".";
+            HikariDataSource pool = newPool.get();
+            pool.setPoolName(poolNamePrefix + name);
+            pool.setMaximumPoolSize(environment.getRequiredProperty(prefix + "max-pool-size", Integer.class));
+            pool.setMinimumIdle(environment.getRequiredProperty(prefix + "min-idle", Integer.class));
+            pool.setConnectionTimeout(environment.getRequiredProperty(prefix + "connection-timeout-ms", Long.class));
+            pool.setMetricRegistry(meterRegistry); // Not beans, so not instrumented by Spring Boot
+            pools.put(workloadClass, pool);
+        }
+        return new WorkloadPools(pools);
+    }
+
+    private static HikariDataSource replicaPool(DataSourceProperties properties, Environment environment) {
+        HikariDataSource pool = DataSourceBuilder.create().type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(environment.getRequiredProperty("datasource.replica.url"))
+                .username(environment.getProperty("datasource.replica.username", properties.determineUsername()))
+                .password(environment.getProperty("datasource.replica.password", properties.determinePassword()))
+                .build();
+        pool.setInitializationFailTimeout(-1); // Start even while the replica is down; the lag monitor routes around it
+        return pool;
+    }
+}
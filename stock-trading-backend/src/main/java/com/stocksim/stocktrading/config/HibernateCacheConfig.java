@@ -0,0 +1,102 @@
+package com.stocksim.stocktrading.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.annotations.CacheLayout;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level and query cache, held in bounded in-process Caffeine caches (one per region).
+ *
+ * Cached: {@link com.stocksim.stocktrading.model.Stock} (region "stocks"), {@link com.stocksim.stocktrading.model.Role}
+ * ("roles"), {@link com.stocksim.stocktrading.model.User} ("users", with its roles in "users.roles") and the
+ * results of queries marked cacheable. Every region is created here with its bounds; Hibernate refuses to
+ * start on a region that is missing, so nothing is ever cached without a bound.
+ *
+ * Each node has its own caches. Changes made on other nodes reach them through
+ * {@link com.stocksim.stocktrading.cache.SecondLevelCacheInvalidator}. With a read replica, only
+ * read-write transactions fill the caches (see {@link com.stocksim.stocktrading.datasource.ReplicaReadJpaDialect}).
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    public static final String STOCKS = "stocks";
+    public static final String ROLES = "roles";
+    public static final String USERS = "users";
+    public static final String USER_ROLES = "users.roles";
+
+    // Hibernate's default regions for cached query results and the per-table change timestamps they are checked against
+    private static final String QUERY_RESULTS = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    @Value("${l2cache.stocks.max-entries}")
+    private long stocksMaxEntries;
+
+    @Value("${l2cache.stocks.ttl-ms}")
+    private long stocksTtlMs;
+
+    @Value("${l2cache.users.max-entries}")
+    private long usersMaxEntries;
+
+    @Value("${l2cache.users.ttl-ms}")
+    private long usersTtlMs;
+
+    @Value("${l2cache.roles.max-entries}")
+    private long rolesMaxEntries;
+
+    @Value("${l2cache.queries.max-entries}")
+    private long queriesMaxEntries;
+
+    @Value("${l2cache.queries.ttl-ms}")
+    private long queriesTtlMs;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        // A manager of its own per application context; several nodes may run in one JVM (e.g., in tests)
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("stocksim-l2-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(STOCKS, region(stocksMaxEntries, stocksTtlMs));
+        cacheManager.createCache(USERS, region(usersMaxEntries, usersTtlMs));
+        cacheManager.createCache(USER_ROLES, region(usersMaxEntries, usersTtlMs));
+        cacheManager.createCache(ROLES, region(rolesMaxEntries, 0));
+        cacheManager.createCache(QUERY_RESULTS, region(queriesMaxEntries, queriesTtlMs));
+        // One entry per table, and must outlive the query results checked against it: not bounded by size or age
+        cacheManager.createCache(UPDATE_TIMESTAMPS, new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheProperties(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            // Cached query results hold ids only, and the rows come from the entity regions, where evictions apply
+            properties.put(AvailableSettings.QUERY_CACHE_LAYOUT, CacheLayout.SHALLOW);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxEntries, long ttlMs) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        if (ttlMs > 0) {
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttlMs)));
+        }
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -1,9 +1,14 @@
 package com.stocksim.stocktrading.config;
 
+import com.stocksim.stocktrading.ratelimit.RateLimitFilter;
 import com.stocksim.stocktrading.security.jwt.AuthEntryPointJwt;
 import com.stocksim.stocktrading.security.jwt.AuthTokenFilter;
+import com.stocksim.stocktrading.security.services.BoundedPasswordEncoder;
 import com.stocksim.stocktrading.security.services.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -13,7 +18,6 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -34,16 +38,37 @@ public class WebSecurityConfig {
     @Autowired
     private AuthEntryPointJwt unauthorizedHandler;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${password.bcrypt-strength}")
+    private int bcryptStrength;
+
+    @Value("${password.hashing.threads}")
+    private int hashingThreads;
+
+    @Value("${password.hashing.queue-capacity}")
+    private int hashingQueueCapacity;
+
+    @Value("${password.hashing.wait-timeout-ms}")
+    private long hashingWaitTimeoutMs;
+
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
         return new AuthTokenFilter();
     }
 
+    @Bean
+    public RateLimitFilter rateLimitFilter() {
+        return new RateLimitFilter();
+    }
+
     @Bean
     public DaoAuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserDetailsPasswordService(userDetailsService); // Rehashes on sign-in after a strength change
         return authProvider;
     }
 
@@ -54,7 +79,8 @@ public class WebSecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        // BCrypt on a bounded pool of its own, so sign-in bursts cannot occupy every request thread
+        return new BoundedPasswordEncoder(bcryptStrength, hashingThreads, hashingQueueCapacity, hashingWaitTimeoutMs, meterRegistry);
     }
 
     @Bean
@@ -78,7 +104,9 @@ public class WebSecurityConfig {
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth ->
-                        auth.requestMatchers("/api/auth/**").permitAll() // Login/Register are public
+                        // Async dispatches (streamed responses) belong to a request that was already authorized
+                        auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                                .requestMatchers("/api/auth/**").permitAll() // Login/Register are public
                                 .requestMatchers("/api/test/**").permitAll() // Test endpoints are public
                                 .requestMatchers("/ws/**").permitAll()       // WebSocket handshake is public
                                 // All other /api/ requests must be authenticated
@@ -88,6 +116,7 @@ public class WebSecurityConfig {
 
         http.authenticationProvider(authenticationProvider());
         http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
+        http.addFilterAfter(rateLimitFilter(), AuthTokenFilter.class); // Needs the authenticated user as its key
 
         return http.build();
     }
@@ -0,0 +1,100 @@
+package com.stocksim.stocktrading.config.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Task decorator that instruments one STOMP channel executor.
+ * Every dispatched message handler is timed from submission to completion (dispatch latency)
+ * and from submission to start (queue wait), and the executor's queue depth and active threads
+ * are published as gauges tagged with the channel name.
+ * Messages that find the queue full run on the sending thread instead (see {@link #rejectionHandler()})
+ * and are counted, so overload shows up as back-pressure and in the metrics rather than as lost frames.
+ */
+public class ChannelExecutorMetrics implements TaskDecorator {
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final Timer dispatchLatency;
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    /**
+     * Registers the meters for a channel executor.
+     * @param registry The meter registry to publish to.
+     * @param channel The channel name used as the "channel" tag (e.g., "inbound").
+     * @param pool The backing thread pool, or null when the channel runs on virtual threads.
+     *             Pool statistics are preferred when available because rejected tasks never reach the decorator's counters.
+     */
+    public ChannelExecutorMetrics(MeterRegistry registry, String channel, ThreadPoolTaskExecutor pool) {
+        this.dispatchLatency = Timer.builder("websocket.channel.dispatch.latency")
+                .description("Time from handing a message to the channel executor until its handlers finished")
+                .tag("channel", channel)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.queueWait = Timer.builder("websocket.channel.queue.wait")
+                .description("Time a message spent queued before a channel thread picked it up")
+                .tag("channel", channel)
+                .register(registry);
+        this.rejected = Counter.builder("websocket.channel.rejected")
+                .description("Messages that found the channel queue full and ran on the sending thread")
+                .tag("channel", channel)
+                .register(registry);
+
+        if (pool != null) {
+            Gauge.builder("websocket.channel.queue.depth", pool, ThreadPoolTaskExecutor::getQueueSize)
+                    .tag("channel", channel)
+                    .register(registry);
+            Gauge.builder("websocket.channel.active.threads", pool, ThreadPoolTaskExecutor::getActiveCount)
+                    .tag("channel", channel)
+                    .register(registry);
+        } else {
+            Gauge.builder("websocket.channel.queue.depth", pending, AtomicInteger::get)
+                    .tag("channel", channel)
+                    .register(registry);
+            Gauge.builder("websocket.channel.active.threads", active, AtomicInteger::get)
+                    .tag("channel", channel)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Rejection policy for the channel's thread pool: counts the rejection and runs the message handlers
+     * on the sending thread, which slows the sender down instead of dropping the frame.
+     * Nothing runs once the pool is shut down.
+     */
+    public RejectedExecutionHandler rejectionHandler() {
+        return (task, executor) -> {
+            rejected.increment();
+            new ThreadPoolExecutor.CallerRunsPolicy().rejectedExecution(task, executor);
+        };
+    }
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        long submittedAt = System.nanoTime();
+        pending.incrementAndGet();
+        return () -> {
+            long startedAt = System.nanoTime();
+            pending.decrementAndGet();
+            active.incrementAndGet();
+            queueWait.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+            try {
+                runnable.run();
+            } finally {
+                active.decrementAndGet();
+                dispatchLatency.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+}
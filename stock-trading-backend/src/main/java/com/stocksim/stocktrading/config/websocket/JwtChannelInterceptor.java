@@ -1,7 +1,11 @@
 package com.stocksim.stocktrading.config.websocket;
 
+import com.stocksim.stocktrading.presence.PresenceRegistry;
+import com.stocksim.stocktrading.ratelimit.RateLimitClass;
+import com.stocksim.stocktrading.ratelimit.TokenBucketRateLimiter;
 import com.stocksim.stocktrading.security.jwt.JwtUtils;
-import com.stocksim.stocktrading.security.services.UserDetailsServiceImpl;
+import com.stocksim.stocktrading.service.ChatRoomService;
+import io.jsonwebtoken.Claims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,7 +37,12 @@ public class JwtChannelInterceptor implements ChannelInterceptor {
     private JwtUtils jwtUtils;
 
     @Autowired
-    private UserDetailsServiceImpl userDetailsService;
+    private TokenBucketRateLimiter rateLimiter;
+
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    private static final String CHAT_DESTINATION_PREFIX = "/app/chat.";
 
     /**
      * Intercepts messages before they are sent to the channel.
@@ -48,6 +57,13 @@ public class JwtChannelInterceptor implements ChannelInterceptor {
         StompHeaderAccessor accessor =
                 MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
 
+        // Any frame from an authenticated session, heartbeats included, keeps its user present
+        if (accessor.getUser() != null && accessor.getSessionId() != null
+                && !StompCommand.CONNECT.equals(accessor.getCommand())
+                && !StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+            presenceRegistry.touch(accessor.getSessionId(), accessor.getUser().getName());
+        }
+
         // Check if it's a STOMP CONNECT command
         if (StompCommand.CONNECT.equals(accessor.getCommand())) {
             List<String> authorization = accessor.getNativeHeader("Authorization");
@@ -60,9 +76,11 @@ public class JwtChannelInterceptor implements ChannelInterceptor {
                 }
             }
 
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            Claims claims = jwt != null ? jwtUtils.parseVerifiedClaims(jwt) : null;
+            if (claims != null) {
+                // The principal comes from the verified claims, so a reconnect storm causes no user lookups
+                UserDetails userDetails = jwtUtils.buildPrincipal(claims);
+                String username = userDetails.getUsername();
 
                 // Create an authenticated token and set it in the SecurityContextHolder
                 UsernamePasswordAuthenticationToken authentication =
@@ -82,6 +100,21 @@ public class JwtChannelInterceptor implements ChannelInterceptor {
                 // accessor.setNativeHeader("message", "Authentication required");
                 // accessor.setCommand(StompCommand.ERROR);
             }
+        } else if (StompCommand.SEND.equals(accessor.getCommand())
+                && accessor.getUser() != null
+                && accessor.getDestination() != null
+                && accessor.getDestination().startsWith(CHAT_DESTINATION_PREFIX)
+                && !rateLimiter.tryAcquire(RateLimitClass.CHAT, accessor.getUser().getName())) {
+            // Over the user's chat budget: drop the frame before it reaches a controller
+            logger.debug("STOMP SEND to {} by {} dropped by rate limit.", accessor.getDestination(), accessor.getUser().getName());
+            return null;
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())
+                && accessor.getDestination() != null
+                && accessor.getDestination().startsWith(ChatRoomService.ROOM_TOPIC_PREFIX)
+                && !ChatRoomService.isValidRoomId(accessor.getDestination().substring(ChatRoomService.ROOM_TOPIC_PREFIX.length()))) {
+            // Room ids are restricted so a subscription cannot reach a wildcard or malformed destination
+            logger.warn("STOMP SUBSCRIBE to invalid chat room destination {} dropped.", accessor.getDestination());
+            return null;
         } else if (accessor.getCommand() == null) {
             // This case handles messages that are not STOMP commands, like heartbeats
             // or other internal messages. We don't need to process them for auth.
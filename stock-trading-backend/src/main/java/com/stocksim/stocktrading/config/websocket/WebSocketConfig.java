@@ -1,16 +1,29 @@
 package com.stocksim.stocktrading.config.websocket;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 import org.springframework.beans.factory.annotation.Autowired; // Add this import
 import org.springframework.messaging.simp.config.ChannelRegistration; // Add this import
 
+import java.util.concurrent.Executor;
+
 /**
  * WebSocket configuration for STOMP messaging.
  * Enables a message broker to send messages to clients.
+ * The inbound, outbound and broker channels each run on their own instrumented executor
+ * (see {@link ChannelExecutorMetrics}), sized per core or backed by virtual threads.
+ * The broker channel has a single thread, so messages published by one thread reach the broker in the
+ * order they were sent, and the broker keeps that order per session on the outbound channel.
  */
 @Configuration // Marks this class as a Spring configuration class
 @EnableWebSocketMessageBroker // Enables WebSocket message handling, backed by a message broker
@@ -19,6 +32,37 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Autowired // Autowire your interceptor
     private JwtChannelInterceptor jwtChannelInterceptor;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired // Created by @EnableWebSocketMessageBroker itself, hence lazy
+    @Lazy
+    @Qualifier("messageBrokerTaskScheduler")
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    // STOMP heartbeat interval in both directions; silent sessions expire from chat presence
+    @Value("${websocket.heartbeat-ms}")
+    private long heartbeatMs;
+
+    // When true, every channel dispatches on virtual threads instead of a fixed platform pool
+    @Value("${websocket.executor.virtual-threads}")
+    private boolean virtualThreads;
+
+    @Value("${websocket.executor.inbound.threads-per-core}")
+    private int inboundThreadsPerCore;
+
+    @Value("${websocket.executor.inbound.queue-capacity}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.executor.outbound.threads-per-core}")
+    private int outboundThreadsPerCore;
+
+    @Value("${websocket.executor.outbound.queue-capacity}")
+    private int outboundQueueCapacity;
+
+    @Value("${websocket.executor.broker.queue-capacity}")
+    private int brokerQueueCapacity;
+
     /**
      * Registers STOMP endpoints that clients will use to connect to our WebSocket server.
      *
@@ -38,8 +82,16 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic");
+        registry.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[]{heartbeatMs, heartbeatMs})
+                .setTaskScheduler(messageBrokerTaskScheduler);
         registry.setApplicationDestinationPrefixes("/app");
+        registry.setUserDestinationPrefix("/user"); // e.g., "/user/queue/portfolio" for per-user valuation updates
+        // Each session receives the broker's messages in publication order despite the outbound thread pool
+        registry.setPreservePublishOrder(true);
+        // One thread: the broker's own work is a cheap fan-out, and more threads would reorder a publisher's messages
+        registry.configureBrokerChannel()
+                .executor(threadPool("broker", 1, brokerQueueCapacity));
     }
 
     /**
@@ -50,5 +102,53 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
         registration.interceptors(jwtChannelInterceptor); // Register your interceptor here
+        registration.executor(channelExecutor("inbound", inboundThreadsPerCore, inboundQueueCapacity));
+    }
+
+    /**
+     * Configure the client outbound channel, which writes broker messages back to the WebSocket sessions.
+     * @param registration The registration for the client outbound channel.
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.executor(channelExecutor("outbound", outboundThreadsPerCore, outboundQueueCapacity));
+    }
+
+    /**
+     * Builds the executor for one channel.
+     * The returned executor is exposed by Spring as the channel's executor bean, which initializes
+     * the thread pool and shuts it down with the context, so it must not be initialized here.
+     *
+     * @param channel The channel name, used for thread names and the metrics tag.
+     * @param threadsPerCore Platform threads per available processor (ignored for virtual threads).
+     * @param queueCapacity Maximum number of messages waiting for a platform thread.
+     * @return The instrumented executor.
+     */
+    private Executor channelExecutor(String channel, int threadsPerCore, int queueCapacity) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ws-" + channel + "-");
+            executor.setVirtualThreads(true);
+            executor.setTaskDecorator(new ChannelExecutorMetrics(meterRegistry, channel, null));
+            return executor;
+        }
+
+        return threadPool(channel, Math.max(1, Runtime.getRuntime().availableProcessors() * threadsPerCore), queueCapacity);
+    }
+
+    /**
+     * Builds a platform thread pool for one channel; like {@link #channelExecutor}, left uninitialized.
+     * A message that finds the queue full runs on the sending thread and is counted.
+     */
+    private Executor threadPool(String channel, int poolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ws-" + channel + "-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        ChannelExecutorMetrics metrics = new ChannelExecutorMetrics(meterRegistry, channel, executor);
+        executor.setTaskDecorator(metrics);
+        executor.setRejectedExecutionHandler(metrics.rejectionHandler());
+        return executor;
     }
-}
\ No newline at end of file
+}
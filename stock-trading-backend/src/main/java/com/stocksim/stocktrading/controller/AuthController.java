@@ -4,29 +4,25 @@ import com.stocksim.stocktrading.dto.JwtResponse;
 import com.stocksim.stocktrading.dto.LoginRequest;
 import com.stocksim.stocktrading.dto.MessageResponse;
 import com.stocksim.stocktrading.dto.SignupRequest;
-import com.stocksim.stocktrading.model.ERole;
-import com.stocksim.stocktrading.model.Portfolio;
-import com.stocksim.stocktrading.model.Role;
-import com.stocksim.stocktrading.model.User;
-import com.stocksim.stocktrading.repository.PortfolioRepository;
-import com.stocksim.stocktrading.repository.RoleRepository;
+import com.stocksim.stocktrading.exception.BadRequestException;
 import com.stocksim.stocktrading.repository.UserRepository;
 import com.stocksim.stocktrading.security.jwt.JwtUtils;
+import com.stocksim.stocktrading.security.jwt.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import com.stocksim.stocktrading.security.services.UserDetailsImpl;
+import com.stocksim.stocktrading.security.services.UserService;
 import jakarta.validation.Valid;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
-import java.util.HashSet;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -41,10 +37,9 @@ public class AuthController {
     // Dependencies injected via constructor
     private final AuthenticationManager authenticationManager;
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
-    private final PortfolioRepository portfolioRepository;
-    private final PasswordEncoder encoder;
+    private final UserService userService;
     private final JwtUtils jwtUtils;
+    private final TokenRevocationService tokenRevocationService;
 
     /**
      * Constructor for dependency injection.
@@ -52,16 +47,14 @@ public class AuthController {
      */
     public AuthController(AuthenticationManager authenticationManager,
                           UserRepository userRepository,
-                          RoleRepository roleRepository,
-                          PortfolioRepository portfolioRepository,
-                          PasswordEncoder encoder,
-                          JwtUtils jwtUtils) {
+                          UserService userService,
+                          JwtUtils jwtUtils,
+                          TokenRevocationService tokenRevocationService) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
-        this.roleRepository = roleRepository;
-        this.portfolioRepository = portfolioRepository;
-        this.encoder = encoder;
+        this.userService = userService;
         this.jwtUtils = jwtUtils;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     /**
@@ -97,73 +90,42 @@ public class AuthController {
                 roles));
     }
 
+    /**
+     * Handles sign-out: revokes the presented token on every node, so it stops working before it expires.
+     * @param authorization The Authorization header with the Bearer token.
+     * @return ResponseEntity with a success message; signing out with an invalid token is not an error.
+     */
+    @PostMapping("/signout")
+    public ResponseEntity<?> signoutUser(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            Claims claims = jwtUtils.parseVerifiedClaims(authorization.substring(7));
+            if (claims != null && claims.getId() != null) {
+                tokenRevocationService.revokeToken(claims.getId(),
+                        LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault()));
+            }
+        }
+        return ResponseEntity.ok(new MessageResponse("Signed out successfully!"));
+    }
+
     /**
      * Handles user registration requests.
      * @param signUpRequest DTO containing username, email, and password.
      * @return ResponseEntity with success message or error message.
      */
     @PostMapping("/signup")
-    @Transactional
     public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
-        // Check if username already exists
-        if (userRepository.existsByUsername(signUpRequest.getUsername())) {
-            return ResponseEntity
-                    .badRequest()
-                    .body(new MessageResponse("Error: Username is already taken!"));
-        }
-
-        // Check if email already exists
-        if (userRepository.existsByEmail(signUpRequest.getEmail())) {
-            return ResponseEntity
-                    .badRequest()
-                    .body(new MessageResponse("Error: Email is already in use!"));
+        try {
+            userService.registerUser(signUpRequest);
+        } catch (BadRequestException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        } catch (DataIntegrityViolationException e) {
+            // The unique constraints caught a duplicate the pre-checks missed, e.g., a concurrent sign-up
+            String message = userRepository.existsByUsername(signUpRequest.getUsername())
+                    ? "Error: Username is already taken!"
+                    : "Error: Email is already in use!";
+            return ResponseEntity.badRequest().body(new MessageResponse(message));
         }
 
-        // Create new user's account
-        User user = new User(signUpRequest.getUsername(),
-                signUpRequest.getEmail(),
-                encoder.encode(signUpRequest.getPassword())); // Encode password before saving
-
-        Set<String> strRoles = signUpRequest.getRole();
-        Set<Role> roles = new HashSet<>();
-
-        // Assign roles to the user. Default to ROLE_USER if no roles are specified.
-        if (strRoles == null || strRoles.isEmpty()) { // Added check for empty set
-            Role userRole = roleRepository.findByName(ERole.ROLE_USER)
-                    .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
-            roles.add(userRole);
-        } else {
-            strRoles.forEach(role -> {
-                switch (role) {
-                    // Case for admin role (if implemented)
-                    case "admin":
-                        Role adminRole = roleRepository.findByName(ERole.ROLE_ADMIN)
-                                .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
-                        roles.add(adminRole);
-                        break;
-                    // Case for moderator role (if implemented)
-                    case "mod":
-                        Role modRole = roleRepository.findByName(ERole.ROLE_MODERATOR)
-                                .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
-                        roles.add(modRole);
-                        break;
-                    default: // Default to user role
-                        Role userRole = roleRepository.findByName(ERole.ROLE_USER)
-                                .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
-                        roles.add(userRole);
-                }
-            });
-        }
-
-        user.setRoles(roles);
-        userRepository.save(user); // Save the new user
-
-        // Create a default portfolio for the new user
-        // Initial balance can be configured, e.g., $100,000
-        Portfolio portfolio = new Portfolio(user, new BigDecimal("100000.00"));
-        user.setPortfolio(portfolio); // Link portfolio back to user
-        portfolioRepository.save(portfolio); // Save the new portfolio
-
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
 }
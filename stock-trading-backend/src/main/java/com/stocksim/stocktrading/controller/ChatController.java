@@ -1,21 +1,25 @@
 package com.stocksim.stocktrading.controller;
 
 import com.stocksim.stocktrading.dto.ChatMessageDTO;
-import com.stocksim.stocktrading.model.ChatMessage;
+import com.stocksim.stocktrading.exception.BadRequestException;
+import com.stocksim.stocktrading.moderation.ChatModerationService;
+import com.stocksim.stocktrading.presence.PresenceService;
 import com.stocksim.stocktrading.security.services.UserDetailsImpl;
+import com.stocksim.stocktrading.service.ChatRoomService;
 import com.stocksim.stocktrading.service.ChatService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping; // For WebSocket messages
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor; // For accessing WebSocket session attributes
-import org.springframework.messaging.simp.SimpMessagingTemplate; // For sending WebSocket messages
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * REST Controller for managing chat history and WebSocket message handling.
@@ -26,20 +30,72 @@ import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/api/chat")
 public class ChatController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatController.class);
+
     @Autowired
     private ChatService chatService;
 
-    @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    @Value("${chat.history.max-page-size}")
+    private int maxHistoryPageSize;
+
+    @Autowired // Routes messages to "/topic/chat.{roomId}" on every node with members in the room
+    private ChatRoomService chatRoomService;
 
+    @Autowired // Blocked-term filter applied before a message is broadcast
+    private ChatModerationService chatModerationService;
+
+    @Autowired // Who is online; changes are pushed as batched diffs on "/topic/presence"
+    private PresenceService presenceService;
+
+    /**
+     * Returns a page of a chat room's history, oldest first.
+     * Without "before" this is the newest page; to load older messages, pass the id of the oldest
+     * message already shown as "before".
+     * @param chatRoomId The ID of the chat room.
+     * @param before Keyset cursor: only messages older than this message id are returned.
+     * @param limit Page size, capped at chat.history.max-page-size.
+     * @return The messages of the page.
+     */
     @GetMapping("/history/{chatRoomId}")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<List<ChatMessageDTO>> getChatHistory(@PathVariable String chatRoomId) {
-        List<ChatMessage> messages = chatService.getRecentChatMessages(chatRoomId);
-        List<ChatMessageDTO> messageDTOs = messages.stream()
-                .map(ChatMessageDTO::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(messageDTOs);
+    public ResponseEntity<List<ChatMessageDTO>> getChatHistory(@PathVariable String chatRoomId,
+                                                               @RequestParam(required = false) Long before,
+                                                               @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > maxHistoryPageSize) {
+            throw new BadRequestException("limit must be between 1 and " + maxHistoryPageSize);
+        }
+        return ResponseEntity.ok(chatService.getChatMessagesBefore(chatRoomId, before, limit));
+    }
+
+    /**
+     * Searches the chat history of all rooms.
+     * @param q The search text; a message matches when it contains every word of it.
+     * @param limit Maximum number of results, capped at chat.history.max-page-size.
+     * @return The matching messages, newest first.
+     */
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<List<ChatMessageDTO>> searchChat(@RequestParam String q,
+                                                           @RequestParam(defaultValue = "50") int limit) {
+        if (q.isBlank()) {
+            throw new BadRequestException("q must not be blank");
+        }
+        if (limit < 1 || limit > maxHistoryPageSize) {
+            throw new BadRequestException("limit must be between 1 and " + maxHistoryPageSize);
+        }
+        return ResponseEntity.ok(chatService.searchChatMessages(q, limit));
+    }
+
+    /**
+     * Lists the users currently connected to chat on any node. Clients load this once and then
+     * apply the diffs published on "/topic/presence".
+     * @return The usernames, sorted.
+     */
+    @GetMapping("/presence")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<List<String>> getOnlineUsers() {
+        return ResponseEntity.ok(presenceService.onlineUsers());
     }
 
     @MessageMapping("/chat.sendMessage")
@@ -57,19 +113,27 @@ public class ChatController {
         UserDetailsImpl userDetails = (UserDetailsImpl) sessionAuthentication.getPrincipal();
         String senderUsername = userDetails.getUsername();
 
-        chatMessageDTO.setSenderUsername(senderUsername);
-        chatMessageDTO.setTimestamp(LocalDateTime.now());
+        String chatRoomId = chatMessageDTO.getChatRoomId() != null ? chatMessageDTO.getChatRoomId() : "public";
+        if (!ChatRoomService.isValidRoomId(chatRoomId)) {
+            logger.warn("Rejected chat message from {} to invalid room id '{}'.", senderUsername, chatRoomId);
+            return;
+        }
 
-        ChatMessage savedMessage = chatService.saveChatMessage(
-                senderUsername,
-                chatMessageDTO.getMessageText(),
-                chatMessageDTO.getChatRoomId() != null ? chatMessageDTO.getChatRoomId() : "public"
-        );
+        String messageText = chatModerationService.moderate(chatMessageDTO.getMessageText());
+        if (messageText == null) {
+            logger.info("Dropped chat message from {} to room {}: it contains a blocked term.", senderUsername, chatRoomId);
+            return;
+        }
 
-        chatMessageDTO.setId(savedMessage.getId());
-        chatMessageDTO.setTimestamp(savedMessage.getTimestamp());
+        chatMessageDTO.setMessageText(messageText);
+        chatMessageDTO.setId(null); // Broadcast without one; the persisted copy gets the database id
+        chatMessageDTO.setSenderUsername(senderUsername);
+        chatMessageDTO.setTimestamp(LocalDateTime.now());
+        chatMessageDTO.setChatRoomId(chatRoomId);
 
-        messagingTemplate.convertAndSend("/topic/publicChat", chatMessageDTO);
+        // Broadcast to the room's topic first, then hand the message to the write-behind queue
+        chatRoomService.broadcast(chatMessageDTO);
+        chatService.queueChatMessage(userDetails.getId(), chatMessageDTO);
     }
 
     @MessageMapping("/chat.addUser")
@@ -86,20 +150,21 @@ public class ChatController {
         UserDetailsImpl userDetails = (UserDetailsImpl) sessionAuthentication.getPrincipal();
         String senderUsername = userDetails.getUsername();
 
+        String chatRoomId = chatMessageDTO.getChatRoomId() != null ? chatMessageDTO.getChatRoomId() : "public";
+        if (!ChatRoomService.isValidRoomId(chatRoomId)) {
+            logger.warn("Rejected join of {} to invalid room id '{}'.", senderUsername, chatRoomId);
+            return;
+        }
+
         headerAccessor.getSessionAttributes().put("username", senderUsername);
 
         ChatMessageDTO joinMessage = new ChatMessageDTO();
         joinMessage.setSenderUsername("System");
         joinMessage.setMessageText(senderUsername + " joined the chat!");
         joinMessage.setTimestamp(LocalDateTime.now());
-        joinMessage.setChatRoomId(chatMessageDTO.getChatRoomId() != null ? chatMessageDTO.getChatRoomId() : "public");
-
-        chatService.saveChatMessage(
-                "System",
-                joinMessage.getMessageText(),
-                joinMessage.getChatRoomId()
-        );
+        joinMessage.setChatRoomId(chatRoomId);
 
-        messagingTemplate.convertAndSend("/topic/publicChat", joinMessage);
+        chatRoomService.broadcast(joinMessage);
+        chatService.queueChatMessage(chatService.resolveSenderId("System"), joinMessage);
     }
 }
\ No newline at end of file
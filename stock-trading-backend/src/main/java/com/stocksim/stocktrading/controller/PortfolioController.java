@@ -1,16 +1,25 @@
 package com.stocksim.stocktrading.controller;
 
 import com.stocksim.stocktrading.dto.PortfolioDTO;
-import com.stocksim.stocktrading.dto.TransactionDTO;
+import com.stocksim.stocktrading.dto.TransactionPageDTO;
+import com.stocksim.stocktrading.exception.BadRequestException;
+import com.stocksim.stocktrading.model.TransactionType;
 import com.stocksim.stocktrading.security.services.UserDetailsImpl;
 import com.stocksim.stocktrading.service.TradeService;
+import com.stocksim.stocktrading.service.TransactionExportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
 
 /**
  * REST Controller for managing user portfolios and transaction history.
@@ -22,6 +31,12 @@ public class PortfolioController {
 
     private final TradeService tradeService; // Injects TradeService as it contains methods for portfolio and transaction fetching
 
+    @Autowired // Streams complete histories for /transactions/export
+    private TransactionExportService transactionExportService;
+
+    @Value("${transactions.history.max-page-size}")
+    private int maxHistoryPageSize;
+
     // Constructor injection for dependencies
     @Autowired
     public PortfolioController(TradeService tradeService) {
@@ -48,21 +63,107 @@ public class PortfolioController {
     }
 
     /**
-     * Retrieves the transaction history for the authenticated user's portfolio.
+     * Retrieves one page of the transaction history of the authenticated user's portfolio, newest first.
      *
      * @param authentication The authenticated user's details.
-     * @return ResponseEntity with a list of TransactionDTOs on success, or error message.
+     * @param cursor The nextCursor of the previous page; omit for the newest page.
+     * @param symbol Only transactions of this stock symbol.
+     * @param type Only BUY or only SELL transactions.
+     * @param from Only transactions at or after this ISO date-time.
+     * @param to Only transactions before this ISO date-time.
+     * @param limit Page size, capped at transactions.history.max-page-size.
+     * @return ResponseEntity with the page and the cursor of the next one.
      */
     @GetMapping("/transactions") // Handles GET requests to /api/portfolio/transactions
     @PreAuthorize("hasRole('USER')") // Only authenticated users with ROLE_USER can access
-    public ResponseEntity<List<TransactionDTO>> getUserTransactions(Authentication authentication) {
-        // Extract username from authenticated principal
+    public ResponseEntity<TransactionPageDTO> getUserTransactions(Authentication authentication,
+                                                                  @RequestParam(required = false) String cursor,
+                                                                  @RequestParam(required = false) String symbol,
+                                                                  @RequestParam(required = false) String type,
+                                                                  @RequestParam(required = false) String from,
+                                                                  @RequestParam(required = false) String to,
+                                                                  @RequestParam(defaultValue = "50") int limit) {
+        // Extract user ID from authenticated principal
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+
+        if (limit < 1 || limit > maxHistoryPageSize) {
+            throw new BadRequestException("limit must be between 1 and " + maxHistoryPageSize);
+        }
+
+        // Fetch the page via TradeService
+        TransactionPageDTO page = tradeService.getTransactionPage(userDetails.getId(), cursor,
+                parseSymbol(symbol), parseType(type), parseTime("from", from), parseTime("to", to), limit);
+
+        // Return the page of transaction DTOs
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Streams the complete transaction history of the authenticated user's portfolio, oldest first,
+     * as newline-delimited JSON or CSV. Rows are written as they are read, so the export takes
+     * constant memory however long the history is.
+     *
+     * @param authentication The authenticated user's details.
+     * @param format "ndjson" (default) or "csv".
+     * @param symbol Only transactions of this stock symbol.
+     * @param type Only BUY or only SELL transactions.
+     * @param from Only transactions at or after this ISO date-time.
+     * @param to Only transactions before this ISO date-time.
+     * @return ResponseEntity streaming the export as an attachment.
+     */
+    @GetMapping("/transactions/export") // Handles GET requests to /api/portfolio/transactions/export
+    @PreAuthorize("hasRole('USER')") // Only authenticated users with ROLE_USER can access
+    public ResponseEntity<StreamingResponseBody> exportTransactions(Authentication authentication,
+                                                                    @RequestParam(defaultValue = "ndjson") String format,
+                                                                    @RequestParam(required = false) String symbol,
+                                                                    @RequestParam(required = false) String type,
+                                                                    @RequestParam(required = false) String from,
+                                                                    @RequestParam(required = false) String to) {
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
 
-        // Fetch transaction history via TradeService
-        List<TransactionDTO> transactionDTOs = tradeService.getUserTransactions(userDetails.getUsername());
+        TransactionExportService.Format exportFormat;
+        try {
+            exportFormat = TransactionExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("format must be ndjson or csv");
+        }
+        // Parsed up front, so invalid parameters still get a 400 before the response is committed
+        String symbolFilter = parseSymbol(symbol);
+        TransactionType typeFilter = parseType(type);
+        LocalDateTime fromTime = parseTime("from", from);
+        LocalDateTime toTime = parseTime("to", to);
+
+        StreamingResponseBody body = out -> transactionExportService.export(userDetails.getId(),
+                symbolFilter, typeFilter, fromTime, toTime, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions." + exportFormat.extension + "\"")
+                .body(body);
+    }
+
+    private static String parseSymbol(String symbol) {
+        return symbol != null ? symbol.toUpperCase(Locale.ROOT) : null;
+    }
+
+    private static TransactionType parseType(String type) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            return TransactionType.valueOf(type.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("type must be BUY or SELL");
+        }
+    }
 
-        // Return the list of transaction DTOs
-        return ResponseEntity.ok(transactionDTOs);
+    private static LocalDateTime parseTime(String name, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(name + " must be an ISO date-time, e.g., 2025-01-31T00:00:00");
+        }
     }
 }
@@ -0,0 +1,34 @@
+package com.stocksim.stocktrading.controller;
+
+import com.stocksim.stocktrading.dto.PriceResumeDTO;
+import com.stocksim.stocktrading.dto.PriceResumeRequest;
+import com.stocksim.stocktrading.service.PriceStreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+
+/**
+ * WebSocket controller for resuming the price stream after a reconnect.
+ *
+ * A client subscribes to "/topic/prices" and "/user/queue/prices.resume", then sends its last
+ * applied epoch/sequence to "/app/prices.resume". Ticks that arrive on the topic while the reply
+ * is in flight may overlap with it and can be dropped client-side by sequence.
+ */
+@Controller
+public class PriceStreamController {
+
+    private final PriceStreamService priceStreamService;
+
+    @Autowired
+    public PriceStreamController(PriceStreamService priceStreamService) {
+        this.priceStreamService = priceStreamService;
+    }
+
+    @MessageMapping("/prices.resume")
+    @SendToUser(destinations = "/queue/prices.resume", broadcast = false) // Reply only to the resuming session
+    public PriceResumeDTO resume(@Payload PriceResumeRequest request) {
+        return priceStreamService.resume(request.getLastEpoch(), request.getLastSequence());
+    }
+}
@@ -1,12 +1,14 @@
 package com.stocksim.stocktrading.controller;
 
 import com.stocksim.stocktrading.dto.EmailUpdateRequest;
+import com.stocksim.stocktrading.dto.JwtResponse;
 import com.stocksim.stocktrading.dto.MessageResponse;
 import com.stocksim.stocktrading.dto.PasswordChangeRequest;
 import com.stocksim.stocktrading.dto.UserDTO;
 import com.stocksim.stocktrading.model.User;
 
 import com.stocksim.stocktrading.repository.UserRepository;
+import com.stocksim.stocktrading.security.jwt.JwtUtils;
 import com.stocksim.stocktrading.security.services.UserDetailsImpl;
 import com.stocksim.stocktrading.security.services.UserService; // Import the new service
 import jakarta.validation.Valid;
@@ -15,6 +17,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.web.bind.annotation.*; // Changed to include PutMapping
 import org.springframework.web.server.ResponseStatusException;
 
@@ -31,6 +34,9 @@ public class UserController {
     @Autowired
     private UserService userService; // Autowire the new UserService
 
+    @Autowired
+    private JwtUtils jwtUtils;
+
     /**
      * Retrieves the profile details of the currently authenticated user.
      * Requires 'ROLE_USER' authority.
@@ -44,7 +50,7 @@ public class UserController {
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         String username = userDetails.getUsername();
 
-        User user = userRepository.findByUsername(username)
+        User user = userRepository.findWithRolesByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found with username: " + username));
 
         return ResponseEntity.ok(new UserDTO(user));
@@ -76,17 +82,25 @@ public class UserController {
      *
      * @param authentication The authenticated user's details.
      * @param request The password change request DTO.
-     * @return ResponseEntity with a success message.
+     * @return ResponseEntity with a fresh token; the change revokes every token issued before it, the caller's included.
      */
     @PutMapping("/profile/password") // Using PUT for updates
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<MessageResponse> changePassword(
+    public ResponseEntity<JwtResponse> changePassword(
             Authentication authentication,
             @Valid @RequestBody PasswordChangeRequest request) {
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         Long userId = userDetails.getId(); // Get user ID from UserDetailsImpl
 
-        userService.changePassword(userId, request);
-        return ResponseEntity.ok(new MessageResponse("Password changed successfully!"));
+        User user = userService.changePassword(userId, request);
+
+        // Same identity and roles as the caller's token, under the new token version
+        UserDetailsImpl renewed = new UserDetailsImpl(userId, user.getUsername(), user.getEmail(), null,
+                userDetails.getAuthorities(), user.getTokenVersion());
+        return ResponseEntity.ok(new JwtResponse(jwtUtils.generateJwtToken(renewed),
+                userId,
+                user.getUsername(),
+                user.getEmail(),
+                userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.stocksim.stocktrading.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+
+/**
+ * Decides whether read-only transactions may use the read replica.
+ *
+ * Every datasource.replica.check-ms the monitor stamps the heartbeat row on the primary with the
+ * primary's own clock and reads the row back from the replica; the difference is the replication lag.
+ * Both timestamps come from the primary database, so clock skew between nodes does not matter. The
+ * replica is used only while the lag is at most datasource.replica.max-lag-ms; a replica that is
+ * unreachable, or has not received the row yet, counts as lagging.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String BEAT = "update replica_heartbeats set beat_at = current_timestamp(3) where id = 1";
+    private static final String FIRST_BEAT = "insert into replica_heartbeats (id, beat_at) values (1, current_timestamp(3))";
+    private static final String READ_BEAT = "select beat_at from replica_heartbeats where id = 1";
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMs;
+
+    private volatile boolean replicaUsable = false;
+    private volatile long lagMs = -1; // -1 while unknown
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, long maxLagMs, MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.replica.setQueryTimeout(2); // An overloaded replica must not hold up the check
+        this.maxLagMs = maxLagMs;
+        Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagMs)
+                .baseUnit("milliseconds")
+                .description("Replication lag of the read replica, -1 when unknown")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return True if read-only transactions should go to the replica.
+     */
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * @return The lag measured by the last check in milliseconds, or -1 if the replica could not be read.
+     */
+    public long getLagMs() {
+        return lagMs;
+    }
+
+    /**
+     * Writes a heartbeat on the primary and measures how far the replica trails behind it.
+     */
+    @Scheduled(fixedDelayString = "${datasource.replica.check-ms}")
+    public synchronized void check() {
+        Timestamp primaryBeat;
+        try {
+            if (primary.update(BEAT) == 0) {
+                primary.update(FIRST_BEAT);
+            }
+            primaryBeat = primary.queryForObject(READ_BEAT, Timestamp.class);
+        } catch (Exception e) {
+            logger.warn("Could not write the replica heartbeat on the primary: {}", e.getMessage());
+            return; // Leave the decision as it was; the primary's own trouble is not the replica's
+        }
+
+        long lag;
+        try {
+            Timestamp replicaBeat = replica.queryForObject(READ_BEAT, Timestamp.class);
+            lag = Math.max(0, primaryBeat.getTime() - replicaBeat.getTime());
+        } catch (Exception e) {
+            logger.debug("Could not read the replica heartbeat: {}", e.getMessage());
+            lag = -1;
+        }
+        lagMs = lag;
+
+        boolean usable = lag >= 0 && lag <= maxLagMs;
+        if (usable != replicaUsable) {
+            if (usable) {
+                logger.info("Read replica caught up (lag {} ms); routing read-only transactions to it.", lag);
+            } else {
+                logger.warn("Read replica {}; routing read-only transactions to the primary.",
+                        lag < 0 ? "unavailable" : "lagging by " + lag + " ms");
+            }
+        }
+        replicaUsable = usable;
+    }
+}
@@ -0,0 +1,51 @@
+package com.stocksim.stocktrading.datasource;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import java.sql.SQLException;
+
+/**
+ * Keeps read-only transactions from storing what they load into the second-level cache, for use
+ * while a read replica is configured.
+ *
+ * Such a transaction may run on the replica (see {@link WorkloadRoutingDataSource}), which trails the
+ * primary. Cached, a row it loaded could outlive the eviction meant to replace it: e.g., a portfolio
+ * read just after a price tick would put the old price back for the next trade. The transactions
+ * still read from the cache; read-write transactions, always on the primary, fill it.
+ */
+public class ReplicaReadJpaDialect extends HibernateJpaDialect {
+
+    // What the base dialect returned, and the cache mode to restore when the transaction ends
+    private record ReadOnlyTransactionData(Object transactionData, Session session, CacheMode previousCacheMode) {
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly()) {
+            return transactionData;
+        }
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode previousCacheMode = session.getCacheMode();
+        // Decided here rather than by the routing, which picks the database later and may not pick the replica
+        session.setCacheMode(CacheMode.GET);
+        return new ReadOnlyTransactionData(transactionData, session, previousCacheMode);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReadOnlyTransactionData readOnly) {
+            readOnly.session().setCacheMode(readOnly.previousCacheMode()); // The session may outlive the transaction
+            super.cleanupTransaction(readOnly.transactionData());
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.stocksim.stocktrading.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs a bean method, or every method of a bean, as work of the given class, so the transactions it
+ * starts take their connections from that class's pool. An annotation on the method overrides one on
+ * the class.
+ *
+ * Applies to calls through the Spring proxy, like @Transactional; a transaction that is already
+ * running keeps the connection it has.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Workload {
+    WorkloadClass value();
+}
@@ -0,0 +1,14 @@
+package com.stocksim.stocktrading.datasource;
+
+/**
+ * Classes of database work that get connections from their own pools, so that one class running
+ * out of connections cannot stall the others. Work of no class uses the primary pool.
+ */
+public enum WorkloadClass {
+    /** Buying, selling and the portfolio reads around them; latency-sensitive. */
+    TRADING,
+    /** Transaction history pages, exports and bulk valuation; may hold connections for long. */
+    REPORTING,
+    /** Chat persistence, history, search and retention. */
+    CHAT
+}
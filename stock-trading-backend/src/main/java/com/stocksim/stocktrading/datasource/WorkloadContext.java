@@ -0,0 +1,35 @@
+package com.stocksim.stocktrading.datasource;
+
+/**
+ * The {@link WorkloadClass} of the work running on the current thread, read by the
+ * {@link WorkloadRoutingDataSource} when a connection is opened.
+ */
+public final class WorkloadContext {
+
+    private static final ThreadLocal<WorkloadClass> current = new ThreadLocal<>();
+
+    private WorkloadContext() {
+    }
+
+    /**
+     * @return The workload class of the current thread, or null for unclassified work.
+     */
+    public static WorkloadClass current() {
+        return current.get();
+    }
+
+    /**
+     * Sets the workload class of the current thread, e.g., for the whole life of a worker thread.
+     * @param workloadClass The new class, or null for unclassified work.
+     * @return The previous class, to be passed back to {@link #set} when the work is done.
+     */
+    public static WorkloadClass set(WorkloadClass workloadClass) {
+        WorkloadClass previous = current.get();
+        if (workloadClass != null) {
+            current.set(workloadClass);
+        } else {
+            current.remove();
+        }
+        return previous;
+    }
+}
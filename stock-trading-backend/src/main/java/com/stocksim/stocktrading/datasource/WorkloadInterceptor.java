@@ -0,0 +1,35 @@
+package com.stocksim.stocktrading.datasource;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * Sets the {@link WorkloadContext} for the duration of a method annotated with {@link Workload}
+ * (directly or on its class). Ordered before the transaction interceptor.
+ */
+public class WorkloadInterceptor implements MethodInterceptor {
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        WorkloadClass previous = WorkloadContext.set(workloadOf(invocation));
+        try {
+            return invocation.proceed();
+        } finally {
+            WorkloadContext.set(previous);
+        }
+    }
+
+    private static WorkloadClass workloadOf(MethodInvocation invocation) {
+        Class<?> targetClass = invocation.getThis() != null ? AopUtils.getTargetClass(invocation.getThis()) : null;
+        Method method = AopUtils.getMostSpecificMethod(invocation.getMethod(), targetClass);
+        Workload workload = AnnotatedElementUtils.findMergedAnnotation(method, Workload.class);
+        if (workload == null) {
+            workload = AnnotatedElementUtils.findMergedAnnotation(method.getDeclaringClass(), Workload.class);
+        }
+        return workload != null ? workload.value() : WorkloadContext.current();
+    }
+}
@@ -0,0 +1,33 @@
+package com.stocksim.stocktrading.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The connection pools of the {@link WorkloadClass}es, all on the primary database; closed with the
+ * application context.
+ */
+public class WorkloadPools implements AutoCloseable {
+
+    private final Map<WorkloadClass, HikariDataSource> pools;
+
+    public WorkloadPools(Map<WorkloadClass, HikariDataSource> pools) {
+        this.pools = new EnumMap<>(pools);
+    }
+
+    /**
+     * @param workloadClass A workload class.
+     * @return Its pool.
+     */
+    public DataSource get(WorkloadClass workloadClass) {
+        return pools.get(workloadClass);
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,70 @@
+package com.stocksim.stocktrading.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Picks the pool for each new connection:
+ * <ol>
+ *     <li>the database: the read replica for read-only transactions while the {@link ReplicaLagMonitor}
+ *     reports it current, the primary otherwise;</li>
+ *     <li>on that database, the pool of the work's {@link WorkloadClass} (see {@link WorkloadContext}),
+ *     or the database's pool for unclassified work.</li>
+ * </ol>
+ * Each workload class thus keeps its own connections on the replica too.
+ *
+ * The decision is made when the connection is obtained, so this data source has to sit behind a
+ * LazyConnectionDataSourceProxy: the transaction manager asks for a connection before it marks the
+ * transaction read-only, and the proxy defers the real one to the first statement.
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+
+    // Lookup key of a replica pool; a null class stands for unclassified work
+    private record Replica(WorkloadClass workloadClass) {
+    }
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    /**
+     * @param primary Pool of the primary database for unclassified work.
+     * @param workloadPools Pools of the workload classes.
+     * @param replica Pool of the read replica for unclassified work, or null to keep read-only transactions on the primary.
+     * @param replicaWorkloadPools Pools of the workload classes on the replica (required with a replica).
+     * @param replicaLagMonitor Monitor of the replica, or null without one.
+     */
+    public WorkloadRoutingDataSource(DataSource primary, WorkloadPools workloadPools, DataSource replica,
+                                     WorkloadPools replicaWorkloadPools, ReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replica != null ? replicaLagMonitor : null;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            targets.put(workloadClass, workloadPools.get(workloadClass));
+        }
+        if (replica != null) {
+            targets.put(new Replica(null), replica);
+            for (WorkloadClass workloadClass : WorkloadClass.values()) {
+                targets.put(new Replica(workloadClass), replicaWorkloadPools.get(workloadClass));
+            }
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        WorkloadClass workloadClass = WorkloadContext.current();
+        if (replicaLagMonitor != null && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && replicaLagMonitor.isReplicaUsable()) {
+            return new Replica(workloadClass);
+        }
+        return workloadClass != null ? workloadClass : PRIMARY;
+    }
+}
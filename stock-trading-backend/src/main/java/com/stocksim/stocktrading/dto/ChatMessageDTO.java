@@ -18,6 +18,15 @@ public class ChatMessageDTO {
     private LocalDateTime timestamp;
     private String chatRoomId;
 
+    // Used by JPQL constructor projections (e.g., keyset-paged history) to skip loading entities
+    public ChatMessageDTO(Long id, String senderUsername, String messageText, LocalDateTime timestamp, String chatRoomId) {
+        this.id = id;
+        this.senderUsername = senderUsername;
+        this.messageText = messageText;
+        this.timestamp = timestamp;
+        this.chatRoomId = chatRoomId;
+    }
+
     public ChatMessageDTO(ChatMessage chatMessage) {
         this.id = chatMessage.getId();
         this.senderUsername = chatMessage.getSender() != null ? chatMessage.getSender().getUsername() : "Unknown"; // Handle if sender could be null
@@ -0,0 +1,22 @@
+package com.stocksim.stocktrading.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO pushed to "/user/queue/portfolio" whenever the market value of a user's portfolio changes.
+ */
+@Getter
+@Setter
+public class PortfolioValuationDTO {
+    private Long portfolioId;
+    private BigDecimal cashBalance;
+    private BigDecimal marketValue; // Sum of quantity * current price over all holdings
+    private BigDecimal costBasis; // Sum of quantity * average buy price over all holdings
+    private BigDecimal unrealizedPnl; // marketValue - costBasis
+    private BigDecimal totalValue; // cashBalance + marketValue
+    private String changedSymbol; // Symbol whose price tick triggered this update, null after a trade
+    private LocalDateTime valuedAt;
+}
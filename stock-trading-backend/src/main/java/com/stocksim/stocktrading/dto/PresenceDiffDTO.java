@@ -0,0 +1,22 @@
+package com.stocksim.stocktrading.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Batched presence change sent to "/topic/presence": the users who came online and the users who
+ * went offline since the previous diff. Clients start from GET /api/chat/presence and apply the diffs.
+ */
+@Getter
+@Setter
+public class PresenceDiffDTO {
+    private List<String> online;
+    private List<String> offline;
+
+    public PresenceDiffDTO(List<String> online, List<String> offline) {
+        this.online = online;
+        this.offline = offline;
+    }
+}
@@ -0,0 +1,29 @@
+package com.stocksim.stocktrading.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Reply to a {@link PriceResumeRequest}, sent to "/user/queue/prices.resume".
+ * DELTAS carries only the ticks after the client's last sequence; SNAPSHOT carries the latest tick
+ * per symbol and replaces the client's state when the gap is no longer in the replay buffer.
+ */
+@Getter
+@Setter
+public class PriceResumeDTO {
+    public enum Mode { DELTAS, SNAPSHOT }
+
+    private Mode mode;
+    private long epoch;
+    private long latestSequence;
+    private List<PriceTickDTO> ticks;
+
+    public PriceResumeDTO(Mode mode, long epoch, long latestSequence, List<PriceTickDTO> ticks) {
+        this.mode = mode;
+        this.epoch = epoch;
+        this.latestSequence = latestSequence;
+        this.ticks = ticks;
+    }
+}
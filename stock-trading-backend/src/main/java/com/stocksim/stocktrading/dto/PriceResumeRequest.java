@@ -0,0 +1,15 @@
+package com.stocksim.stocktrading.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * DTO sent by a reconnecting client to "/app/prices.resume".
+ * Both fields come from the last {@link PriceTickDTO} the client applied; null means it has none.
+ */
+@Getter
+@Setter
+public class PriceResumeRequest {
+    private Long lastEpoch;
+    private Long lastSequence;
+}
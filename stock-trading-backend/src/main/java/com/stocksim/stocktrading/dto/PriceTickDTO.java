@@ -0,0 +1,34 @@
+package com.stocksim.stocktrading.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A price update frame on "/topic/prices".
+ * Carries the same fields as {@link StockDTO} plus its position in the price stream,
+ * so a reconnecting client can ask for exactly the ticks it missed.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class PriceTickDTO extends StockDTO {
+    private long epoch; // Identifies the sequence numbering; a change means sequences restarted
+    private long sequence; // Monotonic within an epoch, starting at 1
+
+    /**
+     * Creates a tick from a stock snapshot.
+     * @param stock The stock snapshot.
+     * @param epoch The stream epoch.
+     * @param sequence The tick's sequence number.
+     */
+    public PriceTickDTO(StockDTO stock, long epoch, long sequence) {
+        setId(stock.getId());
+        setSymbol(stock.getSymbol());
+        setName(stock.getName());
+        setCurrentPrice(stock.getCurrentPrice());
+        setLastUpdated(stock.getLastUpdated());
+        this.epoch = epoch;
+        this.sequence = sequence;
+    }
+}
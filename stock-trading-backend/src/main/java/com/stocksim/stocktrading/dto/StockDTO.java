@@ -2,6 +2,7 @@ package com.stocksim.stocktrading.dto;
 
 import com.stocksim.stocktrading.model.Stock;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -14,6 +15,7 @@ import java.time.LocalDateTime;
  */
 @Getter
 @Setter
+@NoArgsConstructor
 public class StockDTO {
     private Long id;
     private String symbol;
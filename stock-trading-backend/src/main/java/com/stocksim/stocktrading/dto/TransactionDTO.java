@@ -1,6 +1,7 @@
 package com.stocksim.stocktrading.dto;
 
 import com.stocksim.stocktrading.model.Transaction;
+import com.stocksim.stocktrading.model.TransactionType;
 import lombok.Getter;
 import lombok.Setter;
 import java.math.BigDecimal;
@@ -22,6 +23,19 @@ public class TransactionDTO {
     private BigDecimal totalAmount;
     private LocalDateTime transactionTime;
 
+    // Used by JPQL constructor projections (e.g., keyset-paged history) to skip loading entities
+    public TransactionDTO(Long id, String stockSymbol, String stockName, TransactionType transactionType, Long quantity,
+                          BigDecimal pricePerShare, BigDecimal totalAmount, LocalDateTime transactionTime) {
+        this.id = id;
+        this.stockSymbol = stockSymbol;
+        this.stockName = stockName;
+        this.transactionType = transactionType.name();
+        this.quantity = quantity;
+        this.pricePerShare = pricePerShare;
+        this.totalAmount = totalAmount;
+        this.transactionTime = transactionTime;
+    }
+
     public TransactionDTO(Transaction transaction) {
         this.id = transaction.getId();
         this.stockSymbol = transaction.getStock().getSymbol();
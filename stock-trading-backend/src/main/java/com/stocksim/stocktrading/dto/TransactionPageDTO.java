@@ -0,0 +1,21 @@
+package com.stocksim.stocktrading.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * DTO for one page of a user's transaction history, newest first.
+ */
+@Getter
+@Setter
+public class TransactionPageDTO {
+    private List<TransactionDTO> transactions;
+    private String nextCursor; // Pass as "cursor" to get the next (older) page; null on the last page
+
+    public TransactionPageDTO(List<TransactionDTO> transactions, String nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,22 @@
+package com.stocksim.stocktrading.event;
+
+import com.stocksim.stocktrading.dto.ChatMessageDTO;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Application event published on every node when a batch of chat messages has been written
+ * to the database, whichever node wrote it. The messages carry their database ids.
+ */
+@Getter
+public class ChatMessagesPersistedEvent {
+    private final List<ChatMessageDTO> messages;
+
+    /**
+     * @param messages The persisted messages, in insertion order.
+     */
+    public ChatMessagesPersistedEvent(List<ChatMessageDTO> messages) {
+        this.messages = messages;
+    }
+}
@@ -0,0 +1,19 @@
+package com.stocksim.stocktrading.event;
+
+import com.stocksim.stocktrading.dto.PortfolioDTO;
+import lombok.Getter;
+
+/**
+ * Application event published after a trade changed a portfolio's cash balance or holdings.
+ */
+@Getter
+public class PortfolioChangedEvent {
+    private final PortfolioDTO portfolio;
+
+    /**
+     * @param portfolio Snapshot of the portfolio after the trade.
+     */
+    public PortfolioChangedEvent(PortfolioDTO portfolio) {
+        this.portfolio = portfolio;
+    }
+}
@@ -0,0 +1,20 @@
+package com.stocksim.stocktrading.event;
+
+import com.stocksim.stocktrading.dto.PriceTickDTO;
+import lombok.Getter;
+
+/**
+ * Application event published on every node when a sequenced price tick from the cluster-wide
+ * price stream is delivered locally, whichever node fetched the price.
+ */
+@Getter
+public class PriceTickEvent {
+    private final PriceTickDTO tick;
+
+    /**
+     * @param tick The delivered tick.
+     */
+    public PriceTickEvent(PriceTickDTO tick) {
+        this.tick = tick;
+    }
+}
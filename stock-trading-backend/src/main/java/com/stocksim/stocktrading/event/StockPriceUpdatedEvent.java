@@ -0,0 +1,21 @@
+package com.stocksim.stocktrading.event;
+
+import com.stocksim.stocktrading.dto.StockDTO;
+import lombok.Getter;
+
+/**
+ * Application event published whenever a stock's price changes.
+ * Listeners (WebSocket price stream, portfolio valuations) react to the new price
+ * without querying the database again.
+ */
+@Getter
+public class StockPriceUpdatedEvent {
+    private final StockDTO stock;
+
+    /**
+     * @param stock Snapshot of the stock after the price change.
+     */
+    public StockPriceUpdatedEvent(StockDTO stock) {
+        this.stock = stock;
+    }
+}
@@ -3,6 +3,7 @@ package com.stocksim.stocktrading.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException; // Import AccessDeniedException
@@ -35,6 +36,36 @@ public class GlobalExceptionHandler {
                 .body("Access Denied: You do not have permission to access this resource.");
     }
 
+    /**
+     * Handles BadRequestException, thrown by services for invalid client input
+     * (without this handler the catch-all below would turn it into a 500).
+     *
+     * @param ex The BadRequestException that was thrown.
+     * @param request The current web request.
+     * @return A ResponseEntity with HTTP 400 Bad Request status and the exception message.
+     */
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<String> handleBadRequestException(BadRequestException ex, WebRequest request) {
+        logger.warn("Bad request: {} - Request URI: {}", ex.getMessage(), request.getDescription(false));
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    /**
+     * Handles ServiceUnavailableException, thrown when a bounded resource (e.g., the password hashing pool)
+     * is saturated; the client is asked to retry shortly.
+     *
+     * @param ex The ServiceUnavailableException that was thrown.
+     * @param request The current web request.
+     * @return A ResponseEntity with HTTP 503 Service Unavailable status, a Retry-After header and the exception message.
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<String> handleServiceUnavailableException(ServiceUnavailableException ex, WebRequest request) {
+        logger.warn("Service unavailable: {} - Request URI: {}", ex.getMessage(), request.getDescription(false));
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
+
     /**
      * Catches all other unhandled exceptions.
      * This is a fallback handler for any exception not specifically caught by other handlers.
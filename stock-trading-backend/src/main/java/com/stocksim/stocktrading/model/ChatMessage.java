@@ -9,7 +9,11 @@ import java.time.LocalDateTime;
  * JPA Entity representing a chat message.
  */
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages",
+        indexes = {
+                // Serves keyset-paged history: equality on the room, then (timestamp, id) order and range
+                @Index(name = "idx_chat_messages_room_time_id", columnList = "chat_room_id, timestamp, id")
+        })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -13,7 +13,9 @@ import java.util.List;
 
 /**
  * JPA Entity representing a user's investment portfolio.
- * Each user has one portfolio that tracks their cash balance, holdings, and transactions.
+ * Each user has one portfolio that tracks their cash balance and holdings.
+ * Its transactions are not part of the aggregate: they only point to the portfolio, are saved through
+ * TransactionRepository and read through its own queries, so a trade never loads the history.
  */
 @Entity
 @Table(name = "portfolios") // Table name for portfolios
@@ -47,12 +49,6 @@ public class Portfolio {
     @OneToMany(mappedBy = "portfolio", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<Holding> holdings = new ArrayList<>(); // List of stocks the user currently holds
 
-    // One-to-Many relationship with Transactions.
-    // 'mappedBy = "portfolio"' indicates that the 'portfolio' field in the Transaction entity is the owner.
-    // 'cascade = CascadeType.ALL' ensures that operations like persist, merge, remove will cascade to transactions.
-    @OneToMany(mappedBy = "portfolio", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    private List<Transaction> transactions = new ArrayList<>(); // Corrected: Also specify for Transaction if needed
-
     /**
      * Constructor for creating a Portfolio object with a user and initial cash.
      * @param user The associated user.
@@ -82,10 +78,4 @@ public class Portfolio {
         holdings.remove(holding);
         holding.setPortfolio(null); // Break bidirectional link
     }
-
-    // Helper method to add a transaction to the portfolio
-    public void addTransaction(Transaction transaction) {
-        transactions.add(transaction);
-        transaction.setPortfolio(this);
-    }
 }
\ No newline at end of file
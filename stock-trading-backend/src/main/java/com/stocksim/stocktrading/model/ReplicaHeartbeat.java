@@ -0,0 +1,27 @@
+package com.stocksim.stocktrading.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.time.LocalDateTime;
+
+/**
+ * JPA Entity for the single row the nodes touch on the primary database; how far the copy on the
+ * read replica trails behind it is the replication lag.
+ * Written and read with plain JDBC by {@link com.stocksim.stocktrading.datasource.ReplicaLagMonitor},
+ * which has to address each database directly; the entity only declares the table.
+ */
+@Entity
+@Table(name = "replica_heartbeats")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ReplicaHeartbeat {
+
+    @Id
+    private Integer id; // Always 1
+
+    @Column(name = "beat_at", nullable = false)
+    private LocalDateTime beatAt; // Primary database's clock at the last heartbeat
+}
@@ -0,0 +1,53 @@
+package com.stocksim.stocktrading.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.time.LocalDateTime;
+
+/**
+ * JPA Entity representing one entry of the JWT denylist.
+ * An entry either revokes a single token (tokenId, the token's "jti") or every token of a user issued
+ * below minTokenVersion. The auto-incremented id doubles as the denylist version: nodes load only the
+ * entries above the highest id they have applied, plus lower ids that were not committed yet when read. An entry is useless once expiresAt has passed, as
+ * every token it could match has expired by then.
+ */
+@Entity
+@Table(name = "revoked_tokens")
+@Getter
+@Setter
+@NoArgsConstructor
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id")
+    private Long userId; // Set together with minTokenVersion for user-wide revocations
+
+    @Column(name = "min_token_version")
+    private Integer minTokenVersion; // Tokens of userId with a lower "ver" claim are rejected
+
+    @Column(name = "token_id", length = 36)
+    private String tokenId; // Set for the revocation of a single token
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt; // Entry can be purged after this instant
+
+    public static RevokedToken forUser(Long userId, int minTokenVersion, LocalDateTime expiresAt) {
+        RevokedToken entry = new RevokedToken();
+        entry.setUserId(userId);
+        entry.setMinTokenVersion(minTokenVersion);
+        entry.setExpiresAt(expiresAt);
+        return entry;
+    }
+
+    public static RevokedToken forToken(String tokenId, LocalDateTime expiresAt) {
+        RevokedToken entry = new RevokedToken();
+        entry.setTokenId(tokenId);
+        entry.setExpiresAt(expiresAt);
+        return entry;
+    }
+}
@@ -5,6 +5,8 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
 
@@ -17,6 +19,8 @@ import lombok.Setter;
 @Getter
 @Setter
 @NoArgsConstructor // Lombok annotation to generate a no-argument constructor
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "roles") // Roles are inserted once and never change
 public class Role {
 
     @Id
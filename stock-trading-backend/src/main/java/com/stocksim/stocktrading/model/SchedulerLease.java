@@ -0,0 +1,39 @@
+package com.stocksim.stocktrading.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.time.LocalDateTime;
+
+/**
+ * JPA Entity representing a named leader lease shared by all backend nodes.
+ * The node in ownerNodeId may run the guarded job until expiresAt; every change of owner
+ * increments fencingToken so writes from a previous owner can be recognized and rejected.
+ */
+@Entity
+@Table(name = "scheduler_leases")
+@Getter
+@Setter
+@NoArgsConstructor
+public class SchedulerLease {
+
+    @Id
+    @Column(length = 50)
+    private String name; // Name of the guarded job (e.g., stock-price-refresh)
+
+    @Column(name = "owner_node_id", length = 64)
+    private String ownerNodeId; // Current holder, null when released
+
+    @Column(name = "fencing_token", nullable = false)
+    private Long fencingToken; // Incremented on every acquisition
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt; // Lease is free for the taking after this instant
+
+    public SchedulerLease(String name) {
+        this.name = name;
+        this.fencingToken = 0L;
+        this.expiresAt = LocalDateTime.of(1970, 1, 1, 0, 0); // Free right away, whatever the database's clock says
+    }
+}
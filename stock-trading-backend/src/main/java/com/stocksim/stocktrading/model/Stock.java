@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -21,6 +23,8 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @NoArgsConstructor // Lombok annotation to generate a no-argument constructor
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "stocks") // Evicted on every price tick, see SecondLevelCacheInvalidator
 public class Stock {
 
     @Id
@@ -39,6 +43,9 @@ public class Stock {
     @Column(name = "last_updated", nullable = false)
     private LocalDateTime lastUpdated; // Timestamp of the last price update
 
+    @Column(name = "price_fencing_token")
+    private Long priceFencingToken; // Lease token of the node that wrote the current price (null until first fenced write)
+
     /**
 
      Constructor for creating a Stock object.
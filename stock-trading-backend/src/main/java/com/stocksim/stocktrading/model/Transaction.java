@@ -4,18 +4,25 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Immutable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 /**
  * JPA Entity representing a trade transaction (buy or sell).
- * Records details about each order.
+ * Records details about each order. Append-only: rows are inserted once and never updated, so
+ * Hibernate skips dirty checking for them.
  */
 @Entity
-@Table(name = "transactions") // Table name for transactions
+@Table(name = "transactions", // Table name for transactions
+        indexes = {
+                // Serves keyset-paged history: equality on the portfolio, then (transaction_time, id) order and range
+                @Index(name = "idx_transactions_portfolio_time_id", columnList = "portfolio_id, transaction_time, id")
+        })
 @Getter
 @Setter
 @NoArgsConstructor // Lombok annotation to generate a no-argument constructor
+@Immutable
 public class Transaction {
 
     @Id
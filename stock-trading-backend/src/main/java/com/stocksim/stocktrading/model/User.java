@@ -5,6 +5,9 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -23,6 +26,8 @@ import java.util.Set;
 @Getter
 @Setter
 @NoArgsConstructor // Lombok annotation to generate a no-argument constructor
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users") // Other nodes evict their copy on changes, see SecondLevelCacheInvalidator
 public class User {
 
     @Id
@@ -41,10 +46,15 @@ public class User {
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt; // Timestamp of user registration
 
+    @Column(name = "token_version", nullable = false)
+    @ColumnDefault("0")
+    private int tokenVersion; // Carried in each JWT as "ver"; incrementing it revokes all older tokens
+
     // Many-to-Many relationship with roles.
 // 'fetch = FetchType.LAZY' means roles are loaded only when explicitly accessed.
 // 'cascade = CascadeType.ALL' means operations like persist, merge, remove will cascade to roles.
     @ManyToMany(fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users.roles")
     @JoinTable(name = "user_roles", // Junction table for Many-to-Many relationship
             joinColumns = @JoinColumn(name = "user_id"), // Foreign key for User
             inverseJoinColumns = @JoinColumn(name = "role_id")) // Foreign key for Role
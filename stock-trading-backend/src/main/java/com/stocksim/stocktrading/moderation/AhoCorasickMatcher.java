@@ -0,0 +1,237 @@
+package com.stocksim.stocktrading.moderation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton over a fixed set of blocked terms.
+ *
+ * The automaton is built once from the term list and is immutable afterwards, so one instance can
+ * be shared by every inbound thread. Scanning a message is a single left-to-right pass with one state
+ * transition per character, independent of the number of terms.
+ *
+ * Matching is case-insensitive and on whole words: a term only matches when it is not directly
+ * preceded or followed by a letter or digit, so "ass" does not match inside "class". A term may span
+ * several words ("pump and dump").
+ */
+public final class AhoCorasickMatcher {
+
+    // Transitions for the ASCII characters used by the terms are precomputed into a dense table
+    // (one column per such character); other characters fall back to the failure links over the trie
+    private static final int ASCII = 128;
+
+    private static final int[] NO_OUTPUT = new int[0];
+
+    private final int[] asciiColumn;                  // ASCII char -> column of asciiNext, -1 if no term uses it
+    private final int columns;
+    private final int[] asciiNext;                    // state * columns + column -> next state
+    private final Map<Character, Integer>[] children; // trie edges, used for non-ASCII characters
+    private final int[] fail;
+    private final int[][] outputs;                    // state -> lengths of the terms ending there, longest first
+    private final int termCount;
+
+    private AhoCorasickMatcher(int[] asciiColumn, int columns, int[] asciiNext, Map<Character, Integer>[] children,
+                               int[] fail, int[][] outputs, int termCount) {
+        this.asciiColumn = asciiColumn;
+        this.columns = columns;
+        this.asciiNext = asciiNext;
+        this.children = children;
+        this.fail = fail;
+        this.outputs = outputs;
+        this.termCount = termCount;
+    }
+
+    /**
+     * Builds the automaton.
+     * @param terms The blocked terms; blank entries are ignored and case does not matter.
+     * @return The matcher.
+     */
+    @SuppressWarnings("unchecked")
+    public static AhoCorasickMatcher build(Collection<String> terms) {
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> termLength = new ArrayList<>(); // length of the term ending at a state, 0 if none
+        trie.add(new HashMap<>());
+        termLength.add(0);
+
+        int termCount = 0;
+        for (String rawTerm : terms) {
+            String term = rawTerm.strip();
+            if (term.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < term.length(); i++) {
+                char c = Character.toLowerCase(term.charAt(i));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(c, next);
+                    trie.add(new HashMap<>());
+                    termLength.add(0);
+                }
+                state = next;
+            }
+            if (termLength.get(state) == 0) {
+                termCount++;
+            }
+            termLength.set(state, term.length());
+        }
+
+        int[] asciiColumn = new int[ASCII];
+        Arrays.fill(asciiColumn, -1);
+        int columns = 0;
+        for (Map<Character, Integer> edges : trie) {
+            for (char c : edges.keySet()) {
+                if (c < ASCII && asciiColumn[c] < 0) {
+                    asciiColumn[c] = columns++;
+                }
+            }
+        }
+
+        int stateCount = trie.size();
+        int[] fail = new int[stateCount];
+        int[][] outputs = new int[stateCount][];
+        int[] asciiNext = new int[stateCount * columns];
+        outputs[0] = NO_OUTPUT;
+
+        // Breadth-first, so the failure target of a state is always complete before the state itself
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ASCII; c++) {
+            if (asciiColumn[c] >= 0) {
+                Integer child = trie.get(0).get((char) c);
+                asciiNext[asciiColumn[c]] = child == null ? 0 : child;
+            }
+        }
+        for (int child : trie.get(0).values()) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = mergeOutputs(termLength.get(state), outputs[fail[state]]);
+            for (Map.Entry<Character, Integer> edge : trie.get(state).entrySet()) {
+                int child = edge.getValue();
+                fail[child] = step(trie, fail, fail[state], edge.getKey());
+                queue.add(child);
+            }
+            for (int c = 0; c < ASCII; c++) {
+                int column = asciiColumn[c];
+                if (column >= 0) {
+                    Integer child = trie.get(state).get((char) c);
+                    asciiNext[state * columns + column] = child != null ? child : asciiNext[fail[state] * columns + column];
+                }
+            }
+        }
+
+        return new AhoCorasickMatcher(asciiColumn, columns, asciiNext, trie.toArray(new Map[0]), fail, outputs, termCount);
+    }
+
+    /**
+     * @return The number of distinct terms in the automaton.
+     */
+    public int termCount() {
+        return termCount;
+    }
+
+    /**
+     * @param text A chat message.
+     * @return True if the text contains at least one blocked term.
+     */
+    public boolean matches(String text) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, Character.toLowerCase(text.charAt(i)));
+            for (int length : outputs[state]) {
+                if (isWholeWord(text, i - length + 1, i)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces every character of each blocked term in the text with '*', keeping whitespace.
+     * @param text A chat message.
+     * @return The masked text, or the same instance if nothing matched.
+     */
+    public String mask(String text) {
+        char[] masked = null; // Only copied once the first match is found
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, Character.toLowerCase(text.charAt(i)));
+            for (int length : outputs[state]) {
+                int start = i - length + 1;
+                if (isWholeWord(text, start, i)) {
+                    if (masked == null) {
+                        masked = text.toCharArray();
+                    }
+                    for (int j = start; j <= i; j++) {
+                        if (!Character.isWhitespace(masked[j])) {
+                            masked[j] = '*';
+                        }
+                    }
+                    break; // Outputs are longest first, so shorter terms here are already covered
+                }
+            }
+        }
+        return masked == null ? text : new String(masked);
+    }
+
+    private int next(int state, char c) {
+        if (c < ASCII) {
+            int column = asciiColumn[c];
+            return column < 0 ? 0 : asciiNext[state * columns + column]; // No term contains c
+        }
+        while (true) {
+            Integer child = children[state].get(c);
+            if (child != null) {
+                return child;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private static int step(List<Map<Character, Integer>> trie, int[] fail, int state, char c) {
+        while (true) {
+            Integer child = trie.get(state).get(c);
+            if (child != null) {
+                return child;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private static int[] mergeOutputs(int ownLength, int[] inherited) {
+        if (ownLength == 0) {
+            return inherited;
+        }
+        // The state's own term is the longest one ending here; suffix terms reached through the
+        // failure link are all shorter and already ordered longest first
+        int[] merged = new int[inherited.length + 1];
+        merged[0] = ownLength;
+        System.arraycopy(inherited, 0, merged, 1, inherited.length);
+        return merged;
+    }
+
+    private static boolean isWholeWord(String text, int start, int end) {
+        return (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1)))
+                && (end == text.length() - 1 || !Character.isLetterOrDigit(text.charAt(end + 1)));
+    }
+
+    @Override
+    public String toString() {
+        return "AhoCorasickMatcher{terms=" + termCount + ", states=" + fail.length + "}";
+    }
+}
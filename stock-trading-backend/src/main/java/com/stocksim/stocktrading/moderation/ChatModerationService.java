@@ -0,0 +1,135 @@
+package com.stocksim.stocktrading.moderation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+/**
+ * Blocked-term filtering of chat messages before they are broadcast.
+ *
+ * The terms are compiled into an {@link AhoCorasickMatcher}, so checking a message costs one pass over
+ * its text however long the list is. The list is read from chat.moderation.terms-file (one term per
+ * line, '#' starts a comment) or, while that file does not exist, from the default list bundled in
+ * the jar. The file is polled for changes and a new automaton is built off the inbound threads and
+ * swapped in atomically, so edits take effect without a restart.
+ */
+@Service
+public class ChatModerationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatModerationService.class);
+
+    private static final String DEFAULT_TERMS = "moderation/blocked-terms.txt";
+
+    /**
+     * What happens to a message containing a blocked term.
+     */
+    public enum Action {
+        MASK,  // The term is replaced with '*' and the message is delivered
+        REJECT // The message is dropped
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.moderation.terms-file}")
+    private Path termsFile;
+
+    @Value("${chat.moderation.action}")
+    private Action action;
+
+    private volatile AhoCorasickMatcher matcher = AhoCorasickMatcher.build(List.of());
+
+    // Modification time of the terms file the current matcher was built from, null for the bundled list
+    private FileTime loadedModified;
+
+    private Counter blockedCounter;
+
+    @PostConstruct
+    public void init() throws IOException {
+        blockedCounter = meterRegistry.counter("chat.moderation.blocked", "action", action.name().toLowerCase());
+        if (Files.exists(termsFile)) {
+            reloadIfChanged();
+        } else {
+            try (InputStream in = new ClassPathResource(DEFAULT_TERMS).getInputStream()) {
+                matcher = AhoCorasickMatcher.build(readTerms(in));
+            }
+            logger.info("Loaded {} blocked chat terms from the bundled list ({} not found).", matcher.termCount(), termsFile);
+        }
+    }
+
+    /**
+     * Rebuilds the matcher when the terms file has been created or modified since the last load.
+     * A file that cannot be read leaves the current matcher in place.
+     */
+    @Scheduled(fixedDelayString = "${chat.moderation.reload-check-ms}")
+    public synchronized void reloadIfChanged() {
+        try {
+            if (!Files.exists(termsFile)) {
+                return;
+            }
+            FileTime modified = Files.getLastModifiedTime(termsFile);
+            if (modified.equals(loadedModified)) {
+                return;
+            }
+            AhoCorasickMatcher rebuilt;
+            try (InputStream in = Files.newInputStream(termsFile)) {
+                rebuilt = AhoCorasickMatcher.build(readTerms(in));
+            }
+            matcher = rebuilt;
+            loadedModified = modified;
+            logger.info("Loaded {} blocked chat terms from {}.", rebuilt.termCount(), termsFile);
+        } catch (IOException e) {
+            logger.error("Could not reload blocked chat terms from {}; keeping the current list: {}", termsFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Applies the configured action to a chat message.
+     * @param text The message text.
+     * @return The text to deliver (masked if needed), or null if the message must be dropped.
+     */
+    public String moderate(String text) {
+        if (text == null || text.isEmpty()) {
+            return text;
+        }
+        AhoCorasickMatcher current = matcher;
+        if (action == Action.REJECT) {
+            if (current.matches(text)) {
+                blockedCounter.increment();
+                return null;
+            }
+            return text;
+        }
+        String masked = current.mask(text);
+        if (masked != text) {
+            blockedCounter.increment();
+        }
+        return masked;
+    }
+
+    private static List<String> readTerms(InputStream in) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .map(String::strip)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .toList();
+        }
+    }
+}
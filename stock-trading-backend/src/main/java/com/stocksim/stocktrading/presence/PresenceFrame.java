@@ -0,0 +1,26 @@
+package com.stocksim.stocktrading.presence;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Presence report of one node, sent over the cluster bus every presence.flush-ms.
+ * A snapshot lists all users online on the node and replaces what the receivers knew about it;
+ * otherwise the frame only carries the node's transitions since its previous report, and an empty
+ * one still tells the receivers that the node is alive.
+ */
+@Getter
+public class PresenceFrame {
+    private final String nodeId;
+    private final boolean snapshot;
+    private final List<String> online;
+    private final List<String> offline;
+
+    public PresenceFrame(String nodeId, boolean snapshot, List<String> online, List<String> offline) {
+        this.nodeId = nodeId;
+        this.snapshot = snapshot;
+        this.online = online;
+        this.offline = offline;
+    }
+}
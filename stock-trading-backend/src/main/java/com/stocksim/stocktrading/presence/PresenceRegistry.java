@@ -0,0 +1,143 @@
+package com.stocksim.stocktrading.presence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Users with an open WebSocket session on this node.
+ *
+ * A session is added on STOMP CONNECT and removed on DISCONNECT, or when no frame (heartbeats
+ * included, see {@link #touch}) has arrived from it for presence.timeout-ms, which covers connections
+ * that die without a close. Expiry is tracked in a {@link TimingWheel} advanced every presence.tick-ms.
+ *
+ * A user is online while they have at least one session. Only the latest online/offline transition
+ * of each user is kept until {@link PresenceService} drains them, so a burst of reconnects collapses
+ * into at most one change per user and flush interval.
+ */
+@Component
+public class PresenceRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceRegistry.class);
+
+    private final TimingWheel wheel;
+
+    private final Map<String, TimingWheel.Entry> sessions = new ConcurrentHashMap<>();
+
+    // username -> number of open sessions on this node
+    private final Map<String, Integer> sessionCounts = new ConcurrentHashMap<>();
+
+    // username -> latest transition not yet drained (true = came online)
+    private final Map<String, Boolean> pendingChanges = new ConcurrentHashMap<>();
+
+    public PresenceRegistry(@Value("${presence.timeout-ms}") long timeoutMs,
+                            @Value("${presence.tick-ms}") long tickMs,
+                            @Value("${presence.wheel-slots}") int wheelSlots) {
+        this.wheel = new TimingWheel(wheelSlots, Math.max(1, timeoutMs / tickMs));
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (user != null && sessionId != null) {
+            connected(sessionId, user.getName());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        TimingWheel.Entry entry = sessions.remove(event.getSessionId());
+        if (entry != null) {
+            leave(entry.username);
+        }
+    }
+
+    /**
+     * Records activity of a session; called for every inbound frame, so it only extends a deadline.
+     * A session not known here (e.g., expired while its frames were delayed) is added again.
+     * @param sessionId The WebSocket session id.
+     * @param username The authenticated user of the session.
+     */
+    public void touch(String sessionId, String username) {
+        TimingWheel.Entry entry = sessions.get(sessionId);
+        if (entry != null) {
+            entry.extend(wheel.nextDeadline());
+        } else {
+            connected(sessionId, username);
+        }
+    }
+
+    /**
+     * Advances the timing wheel and removes the sessions that have gone silent.
+     */
+    @Scheduled(fixedRateString = "${presence.tick-ms}")
+    public void tick() {
+        for (TimingWheel.Entry entry : wheel.advance()) {
+            if (sessions.remove(entry.sessionId, entry)) {
+                logger.debug("Presence of session {} ({}) expired.", entry.sessionId, entry.username);
+                leave(entry.username);
+            }
+        }
+    }
+
+    /**
+     * @return The users with at least one session on this node.
+     */
+    public Set<String> localUsers() {
+        return new HashSet<>(sessionCounts.keySet());
+    }
+
+    /**
+     * Takes the transitions collected since the previous call.
+     * @return username -> true if the user came online, false if they went offline.
+     */
+    public Map<String, Boolean> drainChanges() {
+        Map<String, Boolean> drained = new HashMap<>();
+        for (Map.Entry<String, Boolean> change : pendingChanges.entrySet()) {
+            // Conditional remove, so a transition recorded meanwhile stays for the next drain
+            if (pendingChanges.remove(change.getKey(), change.getValue())) {
+                drained.put(change.getKey(), change.getValue());
+            }
+        }
+        return drained;
+    }
+
+    private void connected(String sessionId, String username) {
+        TimingWheel.Entry entry = new TimingWheel.Entry(sessionId, username, wheel.nextDeadline());
+        if (sessions.putIfAbsent(sessionId, entry) != null) {
+            return; // Already tracked, e.g., touched by a frame before the connected event
+        }
+        wheel.schedule(entry);
+        sessionCounts.compute(username, (key, count) -> {
+            if (count == null) {
+                pendingChanges.put(key, Boolean.TRUE);
+                return 1;
+            }
+            return count + 1;
+        });
+    }
+
+    private void leave(String username) {
+        sessionCounts.computeIfPresent(username, (key, count) -> {
+            if (count == 1) {
+                pendingChanges.put(key, Boolean.FALSE);
+                return null;
+            }
+            return count - 1;
+        });
+    }
+}
@@ -0,0 +1,184 @@
+package com.stocksim.stocktrading.presence;
+
+import com.stocksim.stocktrading.cluster.ClusterBroadcaster;
+import com.stocksim.stocktrading.cluster.ClusterNode;
+import com.stocksim.stocktrading.dto.PresenceDiffDTO;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cluster-wide chat presence, published to clients as periodic batched diffs on "/topic/presence".
+ *
+ * Every presence.flush-ms each node reports the transitions of its {@link PresenceRegistry} over the
+ * cluster bus (and, every presence.snapshot-every reports, its full user list, which brings nodes that
+ * started later up to date). Each node merges the reports into the set of users online on any node and
+ * sends its own clients one diff per interval with the net changes, so a reconnect storm costs each
+ * client a handful of messages instead of one per event. A node that stops reporting for
+ * presence.node-timeout-ms is dropped together with its users.
+ */
+@Service
+public class PresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    public static final String PRESENCE_TOPIC = "/topic/presence";
+
+    // Internal cluster destination carrying PresenceFrames
+    private static final String PRESENCE_REPORT = "cluster/presence";
+
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Autowired
+    private ClusterNode clusterNode;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${presence.snapshot-every}")
+    private int snapshotEvery;
+
+    @Value("${presence.node-timeout-ms}")
+    private long nodeTimeoutMs;
+
+    private long reports = 0;
+
+    // Guarded by this: nodeId -> users online there, and when the node last reported
+    private final Map<String, Set<String>> usersByNode = new HashMap<>();
+    private final Map<String, Long> lastReportMillis = new HashMap<>();
+
+    // Guarded by this: username -> number of nodes it is online on
+    private final Map<String, Integer> nodeCounts = new HashMap<>();
+
+    // Guarded by this: username -> net change not yet sent to clients (true = came online)
+    private final Map<String, Boolean> pendingDiff = new HashMap<>();
+
+    @PostConstruct
+    public void registerClusterHandler() {
+        clusterBroadcaster.registerHandler(PRESENCE_REPORT, payload -> apply((PresenceFrame) payload));
+    }
+
+    /**
+     * @return The users online on any node, sorted.
+     */
+    public synchronized List<String> onlineUsers() {
+        List<String> users = new ArrayList<>(nodeCounts.keySet());
+        users.sort(null);
+        return users;
+    }
+
+    /**
+     * Reports this node's presence to the cluster and sends the accumulated diff to local clients.
+     */
+    @Scheduled(fixedRateString = "${presence.flush-ms}")
+    public void flush() {
+        Map<String, Boolean> changes = presenceRegistry.drainChanges();
+        PresenceFrame report;
+        if (reports++ % snapshotEvery == 0) {
+            report = new PresenceFrame(clusterNode.getNodeId(), true, new ArrayList<>(presenceRegistry.localUsers()), List.of());
+        } else {
+            List<String> online = new ArrayList<>();
+            List<String> offline = new ArrayList<>();
+            changes.forEach((username, isOnline) -> (isOnline ? online : offline).add(username));
+            report = new PresenceFrame(clusterNode.getNodeId(), false, online, offline);
+        }
+        clusterBroadcaster.broadcast(PRESENCE_REPORT, report);
+
+        PresenceDiffDTO diff = takeDiff();
+        if (diff != null) {
+            messagingTemplate.convertAndSend(PRESENCE_TOPIC, diff);
+        }
+    }
+
+    private synchronized void apply(PresenceFrame report) {
+        String nodeId = report.getNodeId();
+        lastReportMillis.put(nodeId, System.currentTimeMillis());
+        Set<String> users = usersByNode.computeIfAbsent(nodeId, key -> new HashSet<>());
+        if (report.isSnapshot()) {
+            Set<String> current = new HashSet<>(report.getOnline());
+            for (String username : users) {
+                if (!current.contains(username)) {
+                    removeFromNode(username);
+                }
+            }
+            for (String username : current) {
+                if (!users.contains(username)) {
+                    addToNode(username);
+                }
+            }
+            usersByNode.put(nodeId, current);
+            return;
+        }
+        for (String username : report.getOnline()) {
+            if (users.add(username)) {
+                addToNode(username);
+            }
+        }
+        for (String username : report.getOffline()) {
+            if (users.remove(username)) {
+                removeFromNode(username);
+            }
+        }
+    }
+
+    private synchronized PresenceDiffDTO takeDiff() {
+        long silentSince = System.currentTimeMillis() - nodeTimeoutMs;
+        Iterator<Map.Entry<String, Long>> nodes = lastReportMillis.entrySet().iterator();
+        while (nodes.hasNext()) {
+            Map.Entry<String, Long> node = nodes.next();
+            if (node.getValue() < silentSince) {
+                nodes.remove();
+                Set<String> users = usersByNode.remove(node.getKey());
+                logger.warn("No presence report from node {} for {} ms; treating its {} users as offline.", node.getKey(), nodeTimeoutMs, users.size());
+                users.forEach(this::removeFromNode);
+            }
+        }
+
+        if (pendingDiff.isEmpty()) {
+            return null;
+        }
+        List<String> online = new ArrayList<>();
+        List<String> offline = new ArrayList<>();
+        pendingDiff.forEach((username, isOnline) -> (isOnline ? online : offline).add(username));
+        pendingDiff.clear();
+        return new PresenceDiffDTO(online, offline);
+    }
+
+    private void addToNode(String username) {
+        if (nodeCounts.merge(username, 1, Integer::sum) == 1) {
+            record(username, true);
+        }
+    }
+
+    private void removeFromNode(String username) {
+        Integer remaining = nodeCounts.computeIfPresent(username, (key, count) -> count == 1 ? null : count - 1);
+        if (remaining == null) {
+            record(username, false);
+        }
+    }
+
+    private void record(String username, boolean online) {
+        // Going back to the state clients last saw cancels the pending change
+        Boolean previous = pendingDiff.remove(username);
+        if (previous == null) {
+            pendingDiff.put(username, online);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.stocksim.stocktrading.presence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hashed timing wheel for session expiry.
+ *
+ * Entries sit in the slot of their deadline tick. Extending a deadline only writes the entry's
+ * deadline field and does not move it: when its old slot comes round, an entry whose deadline has
+ * moved on is put into the slot of the new deadline instead of expiring. A session that sends a frame
+ * every second therefore costs one volatile write per frame, and the wheel only touches each entry
+ * about once per timeout.
+ *
+ * {@link #schedule} and {@link Entry#extend} may be called from any thread; {@link #advance} must only
+ * be called from one thread at a time.
+ */
+final class TimingWheel {
+
+    /**
+     * A session tracked by the wheel.
+     */
+    static final class Entry {
+        final String sessionId;
+        final String username;
+        private volatile long deadlineTick;
+
+        Entry(String sessionId, String username, long deadlineTick) {
+            this.sessionId = sessionId;
+            this.username = username;
+            this.deadlineTick = deadlineTick;
+        }
+
+        void extend(long deadlineTick) {
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final Queue<Entry>[] slots;
+    private final int mask;
+    private final long timeoutTicks;
+    private volatile long currentTick = 0;
+
+    /**
+     * @param slotCount Number of slots, a power of two.
+     * @param timeoutTicks Ticks after which an entry that was not extended expires.
+     */
+    @SuppressWarnings("unchecked")
+    TimingWheel(int slotCount, long timeoutTicks) {
+        if (slotCount < 1 || Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("Timing wheel slot count must be a power of two: " + slotCount);
+        }
+        this.slots = new Queue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = slotCount - 1;
+        this.timeoutTicks = timeoutTicks;
+    }
+
+    /**
+     * @return The deadline of an entry extended now.
+     */
+    long nextDeadline() {
+        return currentTick + timeoutTicks;
+    }
+
+    /**
+     * Adds a new entry expiring at its deadline unless extended.
+     */
+    void schedule(Entry entry) {
+        slots[(int) (entry.deadlineTick & mask)].add(entry);
+    }
+
+    /**
+     * Moves the wheel one tick forward.
+     * @return The entries whose deadline has passed; they are no longer in the wheel.
+     */
+    List<Entry> advance() {
+        long tick = ++currentTick;
+        Queue<Entry> slot = slots[(int) (tick & mask)];
+
+        // Drain first, so entries put back into this same slot are not seen again in this tick
+        List<Entry> due = new ArrayList<>();
+        for (Entry entry = slot.poll(); entry != null; entry = slot.poll()) {
+            due.add(entry);
+        }
+
+        List<Entry> expired = new ArrayList<>();
+        for (Entry entry : due) {
+            if (entry.deadlineTick > tick) {
+                schedule(entry); // Extended since it was placed here, or due in a later round of the wheel
+            } else {
+                expired.add(entry);
+            }
+        }
+        return expired;
+    }
+}
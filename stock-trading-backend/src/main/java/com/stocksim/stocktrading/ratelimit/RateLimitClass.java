@@ -0,0 +1,9 @@
+package com.stocksim.stocktrading.ratelimit;
+
+/**
+ * Groups of endpoints that share a per-user request budget.
+ */
+public enum RateLimitClass {
+    CHAT,  // STOMP SENDs to /app/chat.*
+    TRADE  // REST calls to /api/trade/**
+}
@@ -0,0 +1,50 @@
+package com.stocksim.stocktrading.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the per-user {@link RateLimitClass#TRADE} budget to "/api/trade/**".
+ * Runs after AuthTokenFilter so the caller is known; unauthenticated calls are left to the
+ * security rules. Rejected calls get a 429 without reaching the controller or the database.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String TRADE_PATH_PREFIX = "/api/trade/";
+
+    // Same shape as MessageResponse, so the frontend shows it like any other trade error
+    private static final String REJECTED_BODY = "{\"message\":\"Too many trade requests. Please slow down.\"}";
+
+    @Autowired
+    private TokenBucketRateLimiter rateLimiter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(TRADE_PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !rateLimiter.tryAcquire(RateLimitClass.TRADE, authentication.getName())) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write(REJECTED_BODY);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
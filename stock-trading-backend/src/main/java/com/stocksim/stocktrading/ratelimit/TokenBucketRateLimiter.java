@@ -0,0 +1,144 @@
+package com.stocksim.stocktrading.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user token buckets, one independent table per {@link RateLimitClass}.
+ *
+ * Each bucket is a single AtomicLong holding its "theoretical arrival time" (the GCRA form of a
+ * token bucket): a request is allowed if advancing that time by one refill interval keeps it within
+ * capacity intervals of now. Checking and taking a token is one compare-and-set, with no locks and
+ * no allocation once the user's bucket exists, so rejections are as cheap as acceptances.
+ *
+ * Memory is bounded: buckets that have been full for idle-evict-ms are swept periodically, and once
+ * a table holds max-entries buckets, new users are let through uncounted until a sweep frees room.
+ */
+@Component
+public class TokenBucketRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ratelimit.chat.capacity}")
+    private int chatCapacity;
+
+    @Value("${ratelimit.chat.refill-per-second}")
+    private double chatRefillPerSecond;
+
+    @Value("${ratelimit.trade.capacity}")
+    private int tradeCapacity;
+
+    @Value("${ratelimit.trade.refill-per-second}")
+    private double tradeRefillPerSecond;
+
+    @Value("${ratelimit.max-entries}")
+    private int maxEntries;
+
+    @Value("${ratelimit.idle-evict-ms}")
+    private long idleEvictMs;
+
+    private final Map<RateLimitClass, Limit> limits = new EnumMap<>(RateLimitClass.class);
+
+    // class -> (user key -> theoretical arrival time in System.nanoTime() units)
+    private final Map<RateLimitClass, ConcurrentHashMap<String, AtomicLong>> buckets = new EnumMap<>(RateLimitClass.class);
+
+    private final Map<RateLimitClass, Counter> rejectedCounters = new EnumMap<>(RateLimitClass.class);
+    private final Map<RateLimitClass, Counter> overflowCounters = new EnumMap<>(RateLimitClass.class);
+
+    @PostConstruct
+    public void init() {
+        limits.put(RateLimitClass.CHAT, new Limit(chatCapacity, chatRefillPerSecond));
+        limits.put(RateLimitClass.TRADE, new Limit(tradeCapacity, tradeRefillPerSecond));
+        for (RateLimitClass limitClass : RateLimitClass.values()) {
+            ConcurrentHashMap<String, AtomicLong> table = new ConcurrentHashMap<>();
+            buckets.put(limitClass, table);
+            String tag = limitClass.name().toLowerCase();
+            rejectedCounters.put(limitClass, meterRegistry.counter("ratelimit.rejected", "class", tag));
+            overflowCounters.put(limitClass, meterRegistry.counter("ratelimit.table.overflow", "class", tag));
+            Gauge.builder("ratelimit.buckets", table, Map::size).tag("class", tag).register(meterRegistry);
+        }
+    }
+
+    /**
+     * Takes one token from a user's bucket.
+     * @param limitClass The endpoint class being called.
+     * @param key The user (username) making the call.
+     * @return True if the call may proceed, false if it must be rejected.
+     */
+    public boolean tryAcquire(RateLimitClass limitClass, String key) {
+        Limit limit = limits.get(limitClass);
+        ConcurrentHashMap<String, AtomicLong> table = buckets.get(limitClass);
+        long now = System.nanoTime();
+
+        AtomicLong bucket = table.get(key);
+        if (bucket == null) {
+            if (table.size() >= maxEntries) {
+                overflowCounters.get(limitClass).increment();
+                return true; // Fail open rather than punish unknown users while the table is full
+            }
+            bucket = table.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long arrival = bucket.get();
+            long next = Math.max(arrival, now) + limit.intervalNanos;
+            if (next - now > limit.burstNanos) {
+                rejectedCounters.get(limitClass).increment();
+                return false;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have been full for at least idle-evict-ms; a dropped user simply
+     * starts again with a full bucket.
+     */
+    @Scheduled(fixedDelayString = "${ratelimit.idle-evict-ms}")
+    public void evictIdle() {
+        long idleBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleEvictMs);
+        for (Map.Entry<RateLimitClass, ConcurrentHashMap<String, AtomicLong>> entry : buckets.entrySet()) {
+            int before = entry.getValue().size();
+            entry.getValue().values().removeIf(bucket -> bucket.get() - idleBefore < 0);
+            int evicted = before - entry.getValue().size();
+            if (evicted > 0) {
+                logger.debug("Evicted {} idle {} rate-limit buckets", evicted, entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * A bucket of capacity tokens refilled at refillPerSecond, expressed as GCRA intervals.
+     */
+    private static final class Limit {
+        private final long intervalNanos; // Time to refill one token
+        private final long burstNanos;    // Time to refill a whole bucket
+
+        Limit(int capacity, double refillPerSecond) {
+            if (capacity < 1 || refillPerSecond <= 0) {
+                throw new IllegalArgumentException("Rate limit capacity and refill rate must be positive");
+            }
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+            this.burstNanos = intervalNanos * capacity;
+        }
+    }
+}
@@ -1,18 +1,61 @@
 package com.stocksim.stocktrading.repository;
 
+import com.stocksim.stocktrading.dto.ChatMessageDTO;
 import com.stocksim.stocktrading.model.ChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Spring Data JPA Repository for the ChatMessage entity.
  */
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
-    // Find recent messages for a specific chat room, ordered by timestamp
-    List<ChatMessage> findTop50ByChatRoomIdOrderByTimestampAsc(String chatRoomId);
+    // Newest messages of a room first, with their senders, used to warm the in-memory history buffers
+    @Query("select m from ChatMessage m join fetch m.sender where m.chatRoomId = :chatRoomId order by m.timestamp desc, m.id desc")
+    List<ChatMessage> findRecentByChatRoomId(@Param("chatRoomId") String chatRoomId, Pageable pageable);
 
-    // Find all messages for a specific chat room, ordered by timestamp
-    List<ChatMessage> findByChatRoomIdOrderByTimestampAsc(String chatRoomId);
-}
\ No newline at end of file
+    // Every room that has at least one message
+    @Query("select distinct m.chatRoomId from ChatMessage m where m.chatRoomId is not null")
+    List<String> findDistinctChatRoomIds();
+
+    // Timestamp of a paging cursor, looked up by primary key
+    @Query("select m.timestamp from ChatMessage m where m.id = :id and m.chatRoomId = :chatRoomId")
+    Optional<LocalDateTime> findTimestampByIdAndChatRoomId(@Param("id") Long id, @Param("chatRoomId") String chatRoomId);
+
+    // One page of messages older than the cursor (timestamp, id), newest first. Seeks through the
+    // (chat_room_id, timestamp, id) index, so every page costs the same no matter how deep it is.
+    @Query("select new com.stocksim.stocktrading.dto.ChatMessageDTO(m.id, s.username, m.messageText, m.timestamp, m.chatRoomId) " +
+            "from ChatMessage m join m.sender s " +
+            "where m.chatRoomId = :chatRoomId and (m.timestamp < :timestamp or (m.timestamp = :timestamp and m.id < :id)) " +
+            "order by m.timestamp desc, m.id desc")
+    List<ChatMessageDTO> findPageBefore(@Param("chatRoomId") String chatRoomId, @Param("timestamp") LocalDateTime timestamp,
+                                        @Param("id") Long id, Pageable pageable);
+
+    // Messages persisted after the given id, in id order; used by the search index to catch up
+    @Query("select new com.stocksim.stocktrading.dto.ChatMessageDTO(m.id, s.username, m.messageText, m.timestamp, m.chatRoomId) " +
+            "from ChatMessage m join m.sender s where m.id > :afterId order by m.id")
+    List<ChatMessageDTO> findAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Messages by id, e.g., the hits of a search
+    @Query("select new com.stocksim.stocktrading.dto.ChatMessageDTO(m.id, s.username, m.messageText, m.timestamp, m.chatRoomId) " +
+            "from ChatMessage m join m.sender s where m.id in :ids")
+    List<ChatMessageDTO> findDtosByIdIn(@Param("ids") List<Long> ids);
+
+    // Oldest messages of a room written before the cutoff, in (timestamp, id) order; the next archive segment
+    @Query("select new com.stocksim.stocktrading.dto.ChatMessageDTO(m.id, s.username, m.messageText, m.timestamp, m.chatRoomId) " +
+            "from ChatMessage m join m.sender s where m.chatRoomId = :chatRoomId and m.timestamp < :cutoff " +
+            "order by m.timestamp, m.id")
+    List<ChatMessageDTO> findArchivable(@Param("chatRoomId") String chatRoomId, @Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    // Deletes one chunk of archived messages; callers keep chunks small so row locks are short-lived
+    @Modifying
+    @Query("delete from ChatMessage m where m.id in :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+}
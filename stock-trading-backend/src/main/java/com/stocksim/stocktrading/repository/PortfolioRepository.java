@@ -3,11 +3,22 @@ package com.stocksim.stocktrading.repository;
 import com.stocksim.stocktrading.model.Portfolio;
 import com.stocksim.stocktrading.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
     // Corrected: Specify Portfolio as the generic type for Optional
     Optional<Portfolio> findByUser(User user);
+
+    // A user's portfolio with owner, holdings and stocks fetched in one query, for reads and trades
+    @Query("select p from Portfolio p join fetch p.user u left join fetch p.holdings h left join fetch h.stock where u.username = :username")
+    Optional<Portfolio> findWithHoldingsByUsername(@Param("username") String username);
+
+    // Every portfolio that holds at least one stock, with owner, holdings and stocks fetched in one query
+    @Query("select distinct p from Portfolio p join fetch p.user join fetch p.holdings h join fetch h.stock")
+    List<Portfolio> findAllWithHoldings();
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.stocksim.stocktrading.repository;
+
+import com.stocksim.stocktrading.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Spring Data JPA Repository for the RevokedToken entity (the JWT denylist).
+ */
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    // Entries added since the given denylist version, in the order they were added
+    List<RevokedToken> findByIdGreaterThanOrderByIdAsc(Long id);
+
+    // Removes entries that can no longer match an unexpired token
+    @Modifying
+    @Query("delete from RevokedToken r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,43 @@
+package com.stocksim.stocktrading.repository;
+
+import com.stocksim.stocktrading.model.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA Repository for the SchedulerLease entity.
+ * Acquisition, renewal and release are single conditional UPDATEs, so the database decides which node wins.
+ * Expiry is set and checked against the database's clock ("local datetime"), never a node's, so the nodes'
+ * clocks do not have to agree.
+ */
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    // Takes over a released or expired lease and bumps the fencing token; returns 1 if this node won
+    @Modifying
+    @Query("update SchedulerLease l set l.ownerNodeId = :nodeId, l.fencingToken = l.fencingToken + 1, " +
+            "l.expiresAt = local datetime + (:ttlMs * 1000000) nanosecond " +
+            "where l.name = :name and (l.ownerNodeId is null or l.expiresAt < local datetime)")
+    int acquire(@Param("name") String name, @Param("nodeId") String nodeId, @Param("ttlMs") long ttlMs);
+
+    // Reads the token straight from the database, bypassing any lease instance cached in the persistence context
+    @Query("select l.fencingToken from SchedulerLease l where l.name = :name")
+    Long findFencingToken(@Param("name") String name);
+
+    // Extends a lease this node still holds under the given token; returns 0 if it was lost
+    @Modifying
+    @Query("update SchedulerLease l set l.expiresAt = local datetime + (:ttlMs * 1000000) nanosecond " +
+            "where l.name = :name and l.ownerNodeId = :nodeId and l.fencingToken = :fencingToken")
+    int renew(@Param("name") String name, @Param("nodeId") String nodeId,
+              @Param("fencingToken") Long fencingToken, @Param("ttlMs") long ttlMs);
+
+    // Gives the lease up so another node can take it over without waiting for expiry
+    @Modifying
+    @Query("update SchedulerLease l set l.ownerNodeId = null, l.expiresAt = local datetime " +
+            "where l.name = :name and l.ownerNodeId = :nodeId and l.fencingToken = :fencingToken")
+    int release(@Param("name") String name, @Param("nodeId") String nodeId,
+                @Param("fencingToken") Long fencingToken);
+}
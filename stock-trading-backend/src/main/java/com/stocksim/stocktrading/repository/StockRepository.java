@@ -1,13 +1,32 @@
 package com.stocksim.stocktrading.repository;
 
 import com.stocksim.stocktrading.model.Stock;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface StockRepository extends JpaRepository<Stock, Long> {
+    // The symbol -> id result comes from the query cache, the row from the stocks region; trades bypass both (see TradeService)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Stock> findBySymbol(String symbol);
     Boolean existsBySymbol(String symbol);
-}
\ No newline at end of file
+
+    // Writes a fetched price unless a node holding a newer lease has already written one; returns 0 when fenced off
+    @Modifying
+    @Transactional
+    @Query("update Stock s set s.currentPrice = :price, s.lastUpdated = :lastUpdated, s.priceFencingToken = :fencingToken " +
+            "where s.id = :id and (s.priceFencingToken is null or s.priceFencingToken <= :fencingToken)")
+    int updatePriceFenced(@Param("id") Long id, @Param("price") BigDecimal price,
+                          @Param("lastUpdated") LocalDateTime lastUpdated, @Param("fencingToken") Long fencingToken);
+}
@@ -1,14 +1,32 @@
 package com.stocksim.stocktrading.repository;
 
-import com.stocksim.stocktrading.model.Portfolio;
+import com.stocksim.stocktrading.dto.TransactionDTO;
 import com.stocksim.stocktrading.model.Transaction;
+import com.stocksim.stocktrading.model.TransactionType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
-    // Corrected: Specify Transaction as the generic type for List
-    List<Transaction> findByPortfolio(Portfolio portfolio);
-}
\ No newline at end of file
+    // One page of a user's transactions older than the cursor (transactionTime, id) and not older than
+    // fromTime, newest first, optionally of one symbol and/or type. Seeks through the
+    // (portfolio_id, transaction_time, id) index, so every page costs the same no matter how deep it is.
+    @Query("select new com.stocksim.stocktrading.dto.TransactionDTO(t.id, s.symbol, s.name, t.type, t.quantity, t.pricePerShare, t.totalAmount, t.transactionTime) " +
+            "from Transaction t join t.stock s join t.portfolio p " +
+            "where p.user.id = :userId " +
+            "and (t.transactionTime < :beforeTime or (t.transactionTime = :beforeTime and t.id < :beforeId)) " +
+            "and t.transactionTime >= :fromTime " +
+            "and (:symbol is null or s.symbol = :symbol) and (:type is null or t.type = :type) " +
+            "order by t.transactionTime desc, t.id desc")
+    List<TransactionDTO> findPageBefore(@Param("userId") Long userId,
+                                        @Param("beforeTime") LocalDateTime beforeTime, @Param("beforeId") Long beforeId,
+                                        @Param("fromTime") LocalDateTime fromTime,
+                                        @Param("symbol") String symbol, @Param("type") TransactionType type,
+                                        Pageable pageable);
+}
@@ -1,8 +1,11 @@
 package com.stocksim.stocktrading.repository;
 
 import com.stocksim.stocktrading.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -17,9 +20,25 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Custom query method to find a user by username
     Optional <User> findByUsername(String username);
 
+    // With the roles loaded, for callers building a UserDTO outside a transaction
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesByUsername(String username);
+
     // Custom query method to check if a user exists by username
     Boolean existsByUsername(String username);
 
     // Custom query method to check if a user exists by email
     Boolean existsByEmail(String email);
+
+    // Username and email of users after the given id, in id order; selects only the projected columns
+    List<Identity> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Projection of a user's unique identifiers.
+     */
+    interface Identity {
+        Long getId();
+        String getUsername();
+        String getEmail();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,472 @@
+package com.stocksim.stocktrading.search;
+
+import com.stocksim.stocktrading.archive.ChatArchive;
+import com.stocksim.stocktrading.datasource.WorkloadClass;
+import com.stocksim.stocktrading.datasource.WorkloadContext;
+import com.stocksim.stocktrading.dto.ChatMessageDTO;
+import com.stocksim.stocktrading.event.ChatMessagesPersistedEvent;
+import com.stocksim.stocktrading.repository.ChatMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * In-process inverted index over chat messages, answering full-text queries with message ids.
+ *
+ * New messages (every persisted batch, from any node) go into an in-memory buffer. When the buffer
+ * holds flush-docs messages it is frozen into an immutable {@link IndexSegment} with delta/varint
+ * compressed posting lists and written to its own file in index-dir; once more than max-segments
+ * segments exist, the smallest merge-factor of them are merged into one. File writes and merges run
+ * on a single background thread, so queries and the write path never wait on disk.
+ *
+ * Segment files are written in the order the segments were frozen. A failed write is retried, and
+ * later segments wait for it. If the node stops while a write still fails, no later segment is written
+ * either; the ids those segments account for are read back from the database on the next start.
+ *
+ * Every segment records the ids it accounts for (see {@link IndexSegment}), not just its highest one:
+ * live batches and catch-up pages fill the buffer side by side, and write-behind batches can commit ids
+ * below those already indexed, so a segment's highest id says nothing about the ids below it. On
+ * startup the segment files are loaded and the database is read back from the lowest id no segment
+ * accounts for, indexing the messages still missing, so the index catches up with whatever it missed
+ * while down. An index built from scratch first reads the {@link ChatArchive}, so archived messages
+ * remain searchable.
+ * Queries match messages containing all query terms and return the newest first.
+ */
+@Service
+public class ChatSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatSearchIndex.class);
+
+    // Messages read per query while catching up from the database
+    private static final int CATCH_UP_PAGE_SIZE = 5000;
+
+    // The catch-up takes a gap between ids for good only among messages at least this old: a
+    // write-behind batch commits within seconds of its messages' timestamps (flush interval and retries)
+    private static final long SETTLED_AFTER_MS = 60_000;
+
+    // Query terms beyond this are ignored; each one costs a posting list decode per segment
+    private static final int MAX_QUERY_TERMS = 8;
+
+    // Pause before retrying a failed segment write, doubled per attempt up to the maximum
+    private static final long WRITE_RETRY_MS = 100;
+    private static final long MAX_WRITE_RETRY_MS = 5000;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ChatArchive chatArchive;
+
+    private final Path directory;
+    private final int flushDocs;
+    private final int maxSegments;
+    private final int mergeFactor;
+
+    // Copy-on-write list of searchable segments, replaced under segmentsLock
+    private volatile List<IndexSegment> segments = List.of();
+    private final Object segmentsLock = new Object();
+    private long nextGeneration = 1; // Guarded by segmentsLock
+
+    // In-memory buffer of not yet frozen messages, guarded by bufferLock
+    private final Object bufferLock = new Object();
+    private Map<String, LongList> buffer = new HashMap<>();
+    private int bufferedDocs = 0;
+    private IdRanges bufferCovered = new IdRanges();
+
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "chat-index"));
+
+    private volatile boolean closing = false;
+    // Set on the indexer thread once a write was given up; no later segment may then reach the disk
+    private boolean writesHalted = false;
+
+    public ChatSearchIndex(@Value("${chat.search.index-dir}") String indexDir,
+                           @Value("${chat.search.flush-docs}") int flushDocs,
+                           @Value("${chat.search.max-segments}") int maxSegments,
+                           @Value("${chat.search.merge-factor}") int mergeFactor) {
+        this.directory = Paths.get(indexDir);
+        this.flushDocs = flushDocs;
+        this.maxSegments = maxSegments;
+        this.mergeFactor = Math.max(2, mergeFactor);
+    }
+
+    /**
+     * Loads the segment files, dropping those already replaced by a merged segment.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        List<IndexSegment> loaded = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(".seg")).toList()) {
+                try {
+                    loaded.add(IndexSegment.read(file));
+                } catch (IOException e) {
+                    logger.warn("Skipping unreadable chat index segment {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        Set<Long> replaced = IndexSegment.replacedGenerations(loaded);
+        List<IndexSegment> live = new ArrayList<>();
+        for (IndexSegment segment : loaded) {
+            if (replaced.contains(segment.generation())) {
+                Files.deleteIfExists(IndexSegment.fileFor(directory, segment.generation()));
+            } else {
+                live.add(segment);
+            }
+            nextGeneration = Math.max(nextGeneration, segment.generation() + 1);
+        }
+        segments = List.copyOf(live);
+        logger.info("Chat search index opened in {}: {} segments, {} messages.",
+                directory.toAbsolutePath(), live.size(), live.stream().mapToLong(IndexSegment::docCount).sum());
+    }
+
+    /**
+     * Indexes, in the background, the persisted messages that no segment on disk accounts for.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUp() {
+        IdRanges indexed = new IdRanges();
+        for (IndexSegment segment : segments) {
+            indexed.addAll(segment.covered());
+        }
+        long resumeAfter = indexed.firstMissing() - 1;
+        indexer.execute(() -> {
+            WorkloadContext.set(WorkloadClass.CHAT); // The indexer thread only ever reads chat messages
+            LocalDateTime settledBefore = LocalDateTime.now().minus(Duration.ofMillis(SETTLED_AFTER_MS));
+            long afterId = resumeAfter;
+            int caughtUp = 0;
+            if (indexed.isEmpty()) {
+                int[] archived = {0};
+                chatArchive.forEachSegment(messages -> {
+                    add(messages);
+                    archived[0] += messages.size();
+                });
+                caughtUp += archived[0];
+            }
+            while (true) {
+                List<ChatMessageDTO> page = chatMessageRepository.findAfterId(afterId, PageRequest.of(0, CATCH_UP_PAGE_SIZE));
+                if (page.isEmpty()) {
+                    break;
+                }
+                List<ChatMessageDTO> missing = page.stream().filter(message -> !indexed.contains(message.getId())).toList();
+                // The gaps up to the last settled message hold no message and never will
+                long settledThrough = afterId;
+                for (ChatMessageDTO message : page) {
+                    if (!message.getTimestamp().isBefore(settledBefore)) {
+                        break;
+                    }
+                    settledThrough = message.getId();
+                }
+                add(missing, afterId + 1, settledThrough);
+                caughtUp += missing.size();
+                afterId = page.get(page.size() - 1).getId();
+            }
+            logger.info("Chat search index caught up with {} messages after id {}.", caughtUp, resumeAfter);
+        });
+    }
+
+    @EventListener
+    public void onMessagesPersisted(ChatMessagesPersistedEvent event) {
+        add(event.getMessages());
+    }
+
+    /**
+     * Adds persisted messages to the in-memory buffer, freezing it into a segment when full.
+     * @param messages Messages with their database ids.
+     */
+    public void add(List<ChatMessageDTO> messages) {
+        add(messages, 1, 0);
+    }
+
+    /**
+     * @param absentFrom First id of a range known to hold no other messages than those given.
+     * @param absentThrough Last id of that range; below absentFrom for none.
+     */
+    private void add(List<ChatMessageDTO> messages, long absentFrom, long absentThrough) {
+        Map<String, LongList> frozen = null;
+        int frozenDocs = 0;
+        IdRanges frozenCovered = null;
+        synchronized (bufferLock) {
+            for (ChatMessageDTO message : messages) {
+                if (message.getId() == null) {
+                    continue;
+                }
+                for (String term : ChatTokenizer.terms(message.getMessageText())) {
+                    buffer.computeIfAbsent(term, key -> new LongList()).add(message.getId());
+                }
+                bufferedDocs++;
+                bufferCovered.add(message.getId());
+            }
+            bufferCovered.add(absentFrom, absentThrough);
+            if (bufferedDocs >= flushDocs) {
+                frozen = buffer;
+                frozenDocs = bufferedDocs;
+                frozenCovered = bufferCovered;
+                buffer = new HashMap<>();
+                bufferedDocs = 0;
+                bufferCovered = new IdRanges();
+            }
+        }
+        if (frozen != null) {
+            scheduleWrite(freeze(frozen, frozenDocs, frozenCovered));
+        }
+    }
+
+    /**
+     * Finds the messages containing every term of the query.
+     * @param query Free text; tokenized like the messages.
+     * @param limit Maximum number of ids to return.
+     * @return Matching message ids, newest (highest) first.
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> terms = ChatTokenizer.terms(query).stream().limit(MAX_QUERY_TERMS).toList();
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        List<IndexSegment> searched = segments;
+
+        List<long[]> perTerm = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            List<long[]> lists = new ArrayList<>(searched.size() + 1);
+            for (IndexSegment segment : searched) {
+                long[] postings = segment.postings(term);
+                if (postings.length > 0) {
+                    lists.add(postings);
+                }
+            }
+            synchronized (bufferLock) {
+                LongList buffered = buffer.get(term);
+                if (buffered != null) {
+                    lists.add(buffered.toSortedArray());
+                }
+            }
+            if (lists.isEmpty()) {
+                return List.of(); // A term with no postings: nothing can match all terms
+            }
+            perTerm.add(IndexSegment.union(lists));
+        }
+
+        // Intersect starting from the rarest term so the candidate set shrinks fastest
+        perTerm.sort(Comparator.comparingInt(list -> list.length));
+        long[] matches = perTerm.get(0);
+        for (int i = 1; i < perTerm.size() && matches.length > 0; i++) {
+            matches = intersect(matches, perTerm.get(i));
+        }
+
+        List<Long> newestFirst = new ArrayList<>(Math.min(limit, matches.length));
+        for (int i = matches.length - 1; i >= 0 && newestFirst.size() < limit; i--) {
+            newestFirst.add(matches[i]);
+        }
+        return newestFirst;
+    }
+
+    /**
+     * Turns frozen buffer contents into a searchable segment.
+     * @return The segment, not written yet.
+     */
+    private IndexSegment freeze(Map<String, LongList> frozen, int docCount, IdRanges covered) {
+        Map<String, long[]> termDocs = new HashMap<>(frozen.size() * 2);
+        frozen.forEach((term, ids) -> termDocs.put(term, ids.toSortedArray()));
+        IndexSegment segment;
+        synchronized (segmentsLock) {
+            segment = IndexSegment.build(nextGeneration++, termDocs, docCount, covered, new long[0]);
+            List<IndexSegment> updated = new ArrayList<>(segments);
+            updated.add(segment);
+            segments = List.copyOf(updated);
+        }
+        return segment;
+    }
+
+    private void scheduleWrite(IndexSegment segment) {
+        try {
+            indexer.execute(() -> {
+                writeSegment(segment);
+                mergeIfNeeded();
+            });
+        } catch (RejectedExecutionException e) {
+            // Frozen after shutdown (e.g., by a catch-up that outlasted it); the next start reads these messages again
+            logger.debug("Chat index segment {} not written: the index is closed.", segment.generation());
+        }
+    }
+
+    /**
+     * Writes a segment file, retrying until it succeeds or the index is closed. Runs on the indexer thread.
+     * @return Whether the file was written.
+     */
+    private boolean writeSegment(IndexSegment segment) {
+        long retryMs = WRITE_RETRY_MS;
+        while (!writesHalted) {
+            try {
+                segment.write(directory);
+                logger.debug("Wrote chat index segment {} ({} messages)", segment.generation(), segment.docCount());
+                return true;
+            } catch (IOException e) {
+                if (closing) {
+                    // The segment stays searchable until shutdown; the next start reads its messages from the database
+                    writesHalted = true;
+                    logger.error("Could not write chat index segment {}: {}; it and later segments are not written.",
+                            segment.generation(), e.getMessage());
+                    break;
+                }
+                logger.warn("Could not write chat index segment {}, retrying in {} ms: {}",
+                        segment.generation(), retryMs, e.getMessage());
+            }
+            try {
+                Thread.sleep(retryMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                writesHalted = true;
+            }
+            retryMs = Math.min(retryMs * 2, MAX_WRITE_RETRY_MS);
+        }
+        return false;
+    }
+
+    /**
+     * Merges the smallest segments while there are more than max-segments. Runs on the indexer thread.
+     */
+    private void mergeIfNeeded() {
+        while (segments.size() > maxSegments) {
+            List<IndexSegment> parts = segments.stream()
+                    .sorted(Comparator.comparingInt(IndexSegment::docCount))
+                    .limit(mergeFactor)
+                    .toList();
+            IndexSegment merged;
+            synchronized (segmentsLock) {
+                merged = IndexSegment.merge(nextGeneration++, parts);
+            }
+            if (!writeSegment(merged)) {
+                return; // The parts' files stay as they are
+            }
+            synchronized (segmentsLock) {
+                List<IndexSegment> updated = new ArrayList<>(segments);
+                updated.removeAll(parts);
+                updated.add(merged);
+                segments = List.copyOf(updated);
+            }
+            for (IndexSegment part : parts) {
+                try {
+                    Files.deleteIfExists(IndexSegment.fileFor(directory, part.generation()));
+                } catch (IOException e) {
+                    logger.warn("Could not delete merged chat index segment {}: {}", part.generation(), e.getMessage());
+                }
+            }
+            logger.debug("Merged {} chat index segments into segment {} ({} messages)",
+                    parts.size(), merged.generation(), merged.docCount());
+        }
+    }
+
+    /**
+     * Freezes what is left in the buffer and waits for pending writes, so the next start
+     * only has to catch up with messages persisted while this node was down.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        closing = true; // A write still failing now is given up rather than retried
+        // Queued behind a catch-up still in progress, which can still schedule its own segments meanwhile
+        Future<?> flushed = indexer.submit(() -> {
+            IndexSegment last = freezeRemaining();
+            if (last != null) {
+                writeSegment(last);
+            }
+        });
+        try {
+            flushed.get(30, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Chat search index not fully flushed on shutdown: {}", e.toString());
+        }
+        indexer.shutdown();
+        indexer.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return The segment holding what was left in the buffer, or null if it was empty.
+     */
+    private IndexSegment freezeRemaining() {
+        Map<String, LongList> remaining;
+        int remainingDocs;
+        IdRanges remainingCovered;
+        synchronized (bufferLock) {
+            remaining = buffer;
+            remainingDocs = bufferedDocs;
+            remainingCovered = bufferCovered;
+            buffer = new HashMap<>();
+            bufferedDocs = 0;
+            bufferCovered = new IdRanges();
+        }
+        if (remainingDocs == 0 && remainingCovered.isEmpty()) {
+            return null;
+        }
+        return freeze(remaining, remainingDocs, remainingCovered);
+    }
+
+    private static long[] intersect(long[] left, long[] right) {
+        long[] out = new long[Math.min(left.length, right.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                out[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    /**
+     * Growable list of message ids for one term of the in-memory buffer.
+     */
+    private static final class LongList {
+        private long[] values = new long[4];
+        private int size = 0;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        // Batches from several nodes may arrive out of id order, and the catch-up may repeat a message
+        long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return IndexSegment.distinct(sorted, sorted.length);
+        }
+    }
+}
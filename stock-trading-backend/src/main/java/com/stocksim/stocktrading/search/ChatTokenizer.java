@@ -0,0 +1,42 @@
+package com.stocksim.stocktrading.search;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits chat text into lower-cased terms: maximal runs of letters and digits.
+ * Used for both indexing and queries, so a query term matches exactly the indexed terms.
+ */
+final class ChatTokenizer {
+
+    // Longer runs (e.g., pasted hashes) are not useful search terms and would bloat the dictionary
+    static final int MAX_TERM_LENGTH = 40;
+
+    private ChatTokenizer() {
+    }
+
+    /**
+     * @param text The text to tokenize, may be null.
+     * @return The distinct terms of the text, in order of first occurrence.
+     */
+    static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start <= MAX_TERM_LENGTH) {
+                    terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+}
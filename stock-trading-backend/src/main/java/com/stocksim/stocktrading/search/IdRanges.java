@@ -0,0 +1,90 @@
+package com.stocksim.stocktrading.search;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Set of message ids held as disjoint inclusive ranges, e.g., the ids a segment of the chat search
+ * index accounts for. Adjacent and overlapping ranges are coalesced, so a run of consecutive ids
+ * takes one entry. Not thread-safe.
+ */
+final class IdRanges {
+
+    // Range start -> range end (inclusive); no two ranges overlap or touch
+    private final TreeMap<Long, Long> ranges = new TreeMap<>();
+
+    /**
+     * @param flat Ranges as produced by {@link #toArray}.
+     * @return The ranges.
+     */
+    static IdRanges of(long[] flat) {
+        IdRanges ids = new IdRanges();
+        for (int i = 0; i + 1 < flat.length; i += 2) {
+            ids.add(flat[i], flat[i + 1]);
+        }
+        return ids;
+    }
+
+    void add(long id) {
+        add(id, id);
+    }
+
+    /**
+     * Adds every id from first to last, both included; nothing if last is below first.
+     */
+    void add(long first, long last) {
+        if (last < first) {
+            return;
+        }
+        Map.Entry<Long, Long> before = ranges.floorEntry(first);
+        if (before != null && before.getValue() >= first - 1) {
+            first = before.getKey();
+            last = Math.max(last, before.getValue());
+        }
+        Map.Entry<Long, Long> after = ranges.higherEntry(first);
+        while (after != null && after.getKey() <= last + 1) {
+            last = Math.max(last, after.getValue());
+            ranges.remove(after.getKey());
+            after = ranges.higherEntry(first);
+        }
+        ranges.put(first, last);
+    }
+
+    void addAll(IdRanges other) {
+        other.ranges.forEach(this::add);
+    }
+
+    boolean contains(long id) {
+        Map.Entry<Long, Long> range = ranges.floorEntry(id);
+        return range != null && range.getValue() >= id;
+    }
+
+    /**
+     * @return The lowest positive id not in the set.
+     */
+    long firstMissing() {
+        Map.Entry<Long, Long> first = ranges.floorEntry(1L);
+        return first != null && first.getValue() >= 1 ? first.getValue() + 1 : 1;
+    }
+
+    long max() {
+        return ranges.isEmpty() ? 0 : ranges.lastEntry().getValue();
+    }
+
+    boolean isEmpty() {
+        return ranges.isEmpty();
+    }
+
+    /**
+     * @return The ranges as ascending (first, last) pairs.
+     */
+    long[] toArray() {
+        long[] flat = new long[ranges.size() * 2];
+        int i = 0;
+        for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+            flat[i++] = range.getKey();
+            flat[i++] = range.getValue();
+        }
+        return flat;
+    }
+}
@@ -0,0 +1,235 @@
+package com.stocksim.stocktrading.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable part of the chat search index: term -> compressed posting list of message ids.
+ *
+ * A segment is built from the in-memory buffer once it is full, or by merging smaller segments,
+ * and is stored in its own file ("segment-{generation}.seg"). A merged segment records the
+ * generations it replaces, so leftovers of a merge interrupted before the old files were deleted
+ * can be recognized and removed on the next start.
+ *
+ * Each segment also records the message ids it accounts for: the ids it indexes, plus the gaps
+ * between them that the catch-up found to hold no message. The next start resumes from the lowest id
+ * no segment accounts for.
+ */
+final class IndexSegment {
+
+    private static final int MAGIC = 0x43485358; // "CHSX"
+    private static final int VERSION = 2;
+    private static final int VERSION_WITH_MAX_DOC_ID = 1; // Accounted for every id up to its highest
+
+    private final long generation;
+    private final int docCount;
+    private final long[] covered; // Accounted ids, as flat ranges (see IdRanges)
+    private final long[] replaces;
+    private final Map<String, Postings> terms;
+
+    private record Postings(int count, byte[] bytes) {
+    }
+
+    private IndexSegment(long generation, int docCount, long[] covered, long[] replaces, Map<String, Postings> terms) {
+        this.generation = generation;
+        this.docCount = docCount;
+        this.covered = covered;
+        this.replaces = replaces;
+        this.terms = terms;
+    }
+
+    /**
+     * @param generation The new segment's generation.
+     * @param termDocs Term -> strictly ascending message ids.
+     * @param docCount Number of messages indexed.
+     * @param covered Message ids accounted for: those indexed, and any known not to exist.
+     * @param replaces Generations of the segments this one was merged from (empty for a flush).
+     * @return The segment.
+     */
+    static IndexSegment build(long generation, Map<String, long[]> termDocs, int docCount, IdRanges covered, long[] replaces) {
+        Map<String, Postings> terms = new HashMap<>(termDocs.size() * 2);
+        termDocs.forEach((term, ids) -> terms.put(term, new Postings(ids.length, PostingsCodec.encode(ids, ids.length))));
+        return new IndexSegment(generation, docCount, covered.toArray(), replaces, terms);
+    }
+
+    /**
+     * Merges segments into one, combining the posting lists of each term.
+     */
+    static IndexSegment merge(long generation, List<IndexSegment> parts) {
+        Map<String, List<long[]>> lists = new HashMap<>();
+        int docCount = 0;
+        IdRanges covered = new IdRanges();
+        long[] replaces = new long[parts.size()];
+        for (int i = 0; i < parts.size(); i++) {
+            IndexSegment part = parts.get(i);
+            part.terms.forEach((term, postings) ->
+                    lists.computeIfAbsent(term, key -> new ArrayList<>()).add(PostingsCodec.decode(postings.bytes, postings.count)));
+            docCount += part.docCount;
+            covered.addAll(part.covered());
+            replaces[i] = part.generation;
+        }
+        Map<String, long[]> termDocs = new HashMap<>(lists.size() * 2);
+        lists.forEach((term, postingLists) -> termDocs.put(term, union(postingLists)));
+        return build(generation, termDocs, docCount, covered, replaces);
+    }
+
+    /**
+     * @param term A term produced by {@link ChatTokenizer}.
+     * @return The ascending ids of the messages containing the term.
+     */
+    long[] postings(String term) {
+        Postings postings = terms.get(term);
+        return postings == null ? new long[0] : PostingsCodec.decode(postings.bytes, postings.count);
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    IdRanges covered() {
+        return IdRanges.of(covered);
+    }
+
+    long[] replaces() {
+        return replaces;
+    }
+
+    static Path fileFor(Path directory, long generation) {
+        return directory.resolve(String.format("segment-%012d.seg", generation));
+    }
+
+    /**
+     * Writes the segment to a temporary file and atomically moves it into place,
+     * so a crash never leaves a partial segment behind.
+     */
+    void write(Path directory) throws IOException {
+        Path target = fileFor(directory, generation);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+            out.writeInt(docCount);
+            // Ranges ascend and may be single ids, so the gaps are never negative
+            out.writeInt(covered.length);
+            byte[] coveredBytes = PostingsCodec.encode(covered, covered.length);
+            out.writeInt(coveredBytes.length);
+            out.write(coveredBytes);
+            out.writeInt(replaces.length);
+            for (long replaced : replaces) {
+                out.writeLong(replaced);
+            }
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> entry : new TreeMap<>(terms).entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().count);
+                out.writeInt(entry.getValue().bytes.length);
+                out.write(entry.getValue().bytes);
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static IndexSegment read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version != VERSION && version != VERSION_WITH_MAX_DOC_ID) {
+                throw new IOException("Not a chat index segment: " + file);
+            }
+            long generation = in.readLong();
+            int docCount = in.readInt();
+            long[] covered;
+            if (version == VERSION_WITH_MAX_DOC_ID) {
+                long maxDocId = in.readLong();
+                covered = maxDocId > 0 ? new long[]{1, maxDocId} : new long[0];
+            } else {
+                int coveredCount = in.readInt();
+                byte[] coveredBytes = new byte[in.readInt()];
+                in.readFully(coveredBytes);
+                covered = PostingsCodec.decode(coveredBytes, coveredCount);
+            }
+            long[] replaces = new long[in.readInt()];
+            for (int i = 0; i < replaces.length; i++) {
+                replaces[i] = in.readLong();
+            }
+            int termCount = in.readInt();
+            Map<String, Postings> terms = new HashMap<>(termCount * 2);
+            for (int i = 0; i < termCount; i++) {
+                String term = in.readUTF();
+                int count = in.readInt();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                terms.put(term, new Postings(count, bytes));
+            }
+            return new IndexSegment(generation, docCount, covered, replaces, terms);
+        }
+    }
+
+    /**
+     * @param lists Ascending id lists, possibly overlapping.
+     * @return The ascending union without duplicates.
+     */
+    static long[] union(List<long[]> lists) {
+        if (lists.size() == 1) {
+            return lists.get(0);
+        }
+        int total = 0;
+        for (long[] list : lists) {
+            total += list.length;
+        }
+        long[] all = new long[total];
+        int position = 0;
+        for (long[] list : lists) {
+            System.arraycopy(list, 0, all, position, list.length);
+            position += list.length;
+        }
+        Arrays.sort(all);
+        return distinct(all, all.length);
+    }
+
+    /**
+     * @param ids Ascending ids, the first count of which are used.
+     * @return The ids without duplicates.
+     */
+    static long[] distinct(long[] ids, int count) {
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || ids[unique - 1] != ids[i]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, unique);
+    }
+
+    /**
+     * @param segments Loaded segments.
+     * @return The generations replaced by a merged segment among them.
+     */
+    static Set<Long> replacedGenerations(List<IndexSegment> segments) {
+        Set<Long> replaced = new HashSet<>();
+        for (IndexSegment segment : segments) {
+            for (long generation : segment.replaces) {
+                replaced.add(generation);
+            }
+        }
+        return replaced;
+    }
+}
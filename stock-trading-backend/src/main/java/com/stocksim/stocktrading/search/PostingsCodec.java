@@ -0,0 +1,62 @@
+package com.stocksim.stocktrading.search;
+
+import java.util.Arrays;
+
+/**
+ * Compresses posting lists (ascending message ids) as variable-length deltas: each id is stored as
+ * the gap to the previous one in 7-bit groups, so dense lists take one or two bytes per posting
+ * instead of eight.
+ */
+final class PostingsCodec {
+
+    private PostingsCodec() {
+    }
+
+    /**
+     * @param ids Ascending ids (repeated ids are stored as zero gaps).
+     * @param count Number of ids to encode from the start of the array.
+     * @return The encoded postings.
+     */
+    static byte[] encode(long[] ids, int count) {
+        byte[] out = new byte[Math.max(16, count * 2)];
+        int position = 0;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long delta = ids[i] - previous;
+            previous = ids[i];
+            if (out.length - position < 10) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            while ((delta & ~0x7FL) != 0) {
+                out[position++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            out[position++] = (byte) delta;
+        }
+        return Arrays.copyOf(out, position);
+    }
+
+    /**
+     * @param bytes Postings produced by {@link #encode}.
+     * @param count Number of ids they hold.
+     * @return The ascending ids.
+     */
+    static long[] decode(byte[] bytes, int count) {
+        long[] ids = new long[count];
+        int position = 0;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += delta;
+            ids[i] = previous;
+        }
+        return ids;
+    }
+}
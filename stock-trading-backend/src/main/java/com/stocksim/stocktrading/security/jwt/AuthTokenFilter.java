@@ -1,6 +1,6 @@
 package com.stocksim.stocktrading.security.jwt;
 
-import com.stocksim.stocktrading.security.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -26,9 +26,6 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired // Injects JwtUtils for token operations
     private JwtUtils jwtUtils;
 
-    @Autowired // Injects UserDetailsServiceImpl to load user details
-    private UserDetailsServiceImpl userDetailsService;
-
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
     /**
@@ -45,12 +42,11 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         try {
 // 1. Parse JWT from the request header
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-// 2. Extract username from JWT
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                // 3. Load UserDetails for the extracted username
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // 2. Verify the token once and get its claims (null if invalid or revoked)
+            Claims claims = jwt != null ? jwtUtils.parseVerifiedClaims(jwt) : null;
+            if (claims != null) {
+                // 3. Build UserDetails from the verified claims; no database lookup per request
+                UserDetails userDetails = jwtUtils.buildPrincipal(claims);
 
                 // 4. Create an authentication object
                 UsernamePasswordAuthenticationToken authentication =
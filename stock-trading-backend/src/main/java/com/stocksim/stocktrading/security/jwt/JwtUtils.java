@@ -4,14 +4,20 @@ import com.stocksim.stocktrading.security.services.UserDetailsImpl;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * Utility class for JWT (JSON Web Token) operations.
@@ -28,6 +34,21 @@ public class JwtUtils {
     @Value("${spring.jwt.expirationMs}")
     private int jwtExpirationMs;
 
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    // Decoded once from jwtSecret; both are immutable and safe to share between threads
+    private Key signingKey;
+    private JwtParser parser;
+
+    // Claims carrying the principal, so requests are authenticated without loading the user
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
     // Add a PostConstruct method to log the loaded secret (first few chars for security)
     // This helps confirm if the @Value injection is working as expected.
     // @PostConstruct
@@ -46,11 +67,26 @@ public class JwtUtils {
      */
     public String generateJwtToken(Authentication authentication) {
         // Get UserDetailsImpl from the authentication object
-        UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+        return generateJwtToken((UserDetailsImpl) authentication.getPrincipal());
+    }
+
+    /**
+     * Generates a JWT token carrying everything needed to rebuild the principal without a database lookup.
+     * @param userPrincipal The user the token is issued to.
+     * @return The generated JWT token string.
+     */
+    public String generateJwtToken(UserDetailsImpl userPrincipal) {
+        List<String> roles = userPrincipal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
 
         // Build the JWT token
         String jwt = Jwts.builder()
                 .setSubject((userPrincipal.getUsername())) // Set subject to username
+                .setId(UUID.randomUUID().toString()) // Unique token id, so a single token can be revoked
+                .claim(CLAIM_USER_ID, userPrincipal.getId())
+                .claim(CLAIM_ROLES, roles)
+                .claim(CLAIM_TOKEN_VERSION, userPrincipal.getTokenVersion())
                 .setIssuedAt(new Date()) // Set token issuance date
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs)) // Set token expiration date
                 .signWith(key(), SignatureAlgorithm.HS256) // Sign the token with HS256 algorithm and secret key
@@ -60,11 +96,24 @@ public class JwtUtils {
         return jwt;
     }
 
+    /**
+     * Decodes the signing key once, so a malformed secret also fails the startup instead of the first request.
+     */
+    @PostConstruct
+    public void init() {
+        signingKey = decodeKey();
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
     /**
      * Retrieves the signing key from the JWT secret.
      * @return The signing key.
      */
     private Key key() {
+        return signingKey;
+    }
+
+    private Key decodeKey() {
         // Decode the base64 encoded secret and create a Key object
         // This is where the Base64 decoding happens.
         try {
@@ -82,8 +131,7 @@ public class JwtUtils {
      */
     public String getUserNameFromJwtToken(String token) {
         // Parse the token and get the subject (username)
-        return Jwts.parserBuilder().setSigningKey(key()).build()
-                .parseClaimsJws(token).getBody().getSubject();
+        return parser.parseClaimsJws(token).getBody().getSubject();
     }
 
     /**
@@ -92,11 +140,36 @@ public class JwtUtils {
      * @return True if the token is valid, false otherwise.
      */
     public boolean validateJwtToken(String authToken) {
+        return parseVerifiedClaims(authToken) != null;
+    }
+
+    /**
+     * Verifies a token's signature and expiry, checks it against the denylist and returns its claims.
+     * Tokens seen recently skip the signature check through the {@link VerifiedTokenCache}; the denylist is always checked.
+     * @param authToken The JWT token string.
+     * @return The claims, or null if the token is invalid, expired, revoked or lacks the principal claims.
+     */
+    public Claims parseVerifiedClaims(String authToken) {
         try {
-            // Parse and validate the token using the signing key
-            Jwts.parserBuilder().setSigningKey(key()).build().parse(authToken);
+            Claims claims = verifiedTokenCache.get(authToken);
+            if (claims == null) {
+                // Parse and validate the token using the signing key
+                claims = parser.parseClaimsJws(authToken).getBody();
+                verifiedTokenCache.put(authToken, claims);
+            }
+            Long userId = claims.get(CLAIM_USER_ID, Long.class);
+            Integer tokenVersion = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+            if (userId == null || tokenVersion == null) {
+                // Issued before the claims were added; the user has to sign in again
+                logger.debug("JWT token lacks the principal claims.");
+                return null;
+            }
+            if (tokenDenylist.isRevoked(userId, tokenVersion, claims.getId())) {
+                logger.debug("JWT token {} of user {} is revoked.", claims.getId(), claims.getSubject());
+                return null;
+            }
             logger.debug("JWT token is valid.");
-            return true;
+            return claims;
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -111,6 +184,26 @@ public class JwtUtils {
             logger.error("An unexpected error occurred during JWT validation: {}", e.getMessage(), e);
         }
 
-        return false;
+        return null;
+    }
+
+    /**
+     * Builds the principal of a verified token from its claims alone.
+     * The principal has no email or password; code needing them loads the User by id.
+     * @param claims Claims returned by {@link #parseVerifiedClaims}.
+     * @return The principal.
+     */
+    public UserDetailsImpl buildPrincipal(Claims claims) {
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        List<GrantedAuthority> authorities = roles == null ? List.of() : roles.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(String.valueOf(role)))
+                .toList();
+        return new UserDetailsImpl(
+                claims.get(CLAIM_USER_ID, Long.class),
+                claims.getSubject(),
+                null,
+                null,
+                authorities,
+                claims.get(CLAIM_TOKEN_VERSION, Integer.class));
     }
 }
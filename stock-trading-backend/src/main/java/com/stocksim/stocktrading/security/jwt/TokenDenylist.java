@@ -0,0 +1,133 @@
+package com.stocksim.stocktrading.security.jwt;
+
+import com.stocksim.stocktrading.model.RevokedToken;
+import com.stocksim.stocktrading.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of the revoked_tokens table, consulted for every authenticated request and STOMP CONNECT.
+ *
+ * The table is loaded at startup and then followed incrementally: {@link #refresh} reads only the rows
+ * with an id above the highest one applied so far (the denylist version). Ids are assigned at insert but
+ * rows become visible at commit, so a lower id can appear after a higher one; ids skipped by a read are
+ * therefore looked up again on each refresh until they show up or GAP_GRACE_MS has passed (a rolled back
+ * insert leaves a permanent gap). Only the MAX_GAP_SPAN ids right below a new row are looked for: a wider
+ * jump (purged rows, a reseeded sequence) cannot be commits still in flight. New revocations are also
+ * pushed to every node by {@link TokenRevocationService}, so they take effect without waiting for the
+ * next refresh; the refresh fills in anything a node missed. Checking a token therefore never touches
+ * the database.
+ */
+@Component
+public class TokenDenylist {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenDenylist.class);
+
+    // How long a skipped id is looked for; far longer than the transaction inserting a revocation
+    private static final long GAP_GRACE_MS = 120_000;
+
+    // Most skipped ids tracked below one new row; far more than concurrent revocations can leave in flight
+    private static final long MAX_GAP_SPAN = 1_000;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private record UserRevocation(int minTokenVersion, LocalDateTime expiresAt) {
+    }
+
+    // userId -> tokens below this version are revoked
+    private final Map<Long, UserRevocation> revokedUsers = new ConcurrentHashMap<>();
+
+    // jti -> expiry of the revoked token
+    private final Map<String, LocalDateTime> revokedTokens = new ConcurrentHashMap<>();
+
+    // Highest revoked_tokens id applied; written only by refresh
+    private volatile long version = 0;
+
+    // Ids below the version not seen yet -> when they were first missed; guarded by refresh's lock
+    private final Map<Long, Long> gaps = new HashMap<>();
+
+    @PostConstruct
+    public void load() {
+        refresh();
+        logger.info("Loaded JWT denylist at version {} ({} users, {} tokens).", version, revokedUsers.size(), revokedTokens.size());
+    }
+
+    /**
+     * @param userId The "uid" claim of a verified token.
+     * @param tokenVersion Its "ver" claim.
+     * @param tokenId Its "jti" claim.
+     * @return True if the token has been revoked.
+     */
+    public boolean isRevoked(Long userId, int tokenVersion, String tokenId) {
+        if (tokenId != null && revokedTokens.containsKey(tokenId)) {
+            return true;
+        }
+        UserRevocation revocation = revokedUsers.get(userId);
+        return revocation != null && tokenVersion < revocation.minTokenVersion();
+    }
+
+    /**
+     * Applies one entry, e.g., received from another node. Applying an entry twice is harmless.
+     */
+    public void apply(RevokedToken entry) {
+        if (entry.getTokenId() != null) {
+            revokedTokens.put(entry.getTokenId(), entry.getExpiresAt());
+        }
+        if (entry.getUserId() != null && entry.getMinTokenVersion() != null) {
+            UserRevocation revocation = new UserRevocation(entry.getMinTokenVersion(), entry.getExpiresAt());
+            // Entries may arrive out of order; the highest version wins
+            revokedUsers.merge(entry.getUserId(), revocation,
+                    (current, added) -> added.minTokenVersion() > current.minTokenVersion() ? added : current);
+        }
+    }
+
+    /**
+     * Applies the entries added since the last refresh, including late commits below the version,
+     * and forgets the expired ones.
+     */
+    @Scheduled(fixedDelayString = "${jwt.denylist.refresh-ms}", initialDelayString = "${jwt.denylist.refresh-ms}")
+    public synchronized void refresh() {
+        long nowMs = System.currentTimeMillis();
+        if (!gaps.isEmpty()) {
+            for (RevokedToken late : revokedTokenRepository.findAllById(gaps.keySet())) {
+                apply(late);
+                gaps.remove(late.getId());
+            }
+            gaps.values().removeIf(firstMissedMs -> nowMs - firstMissedMs > GAP_GRACE_MS);
+        }
+
+        List<RevokedToken> added = revokedTokenRepository.findByIdGreaterThanOrderByIdAsc(version);
+        for (RevokedToken entry : added) {
+            // On the first load, ids below the lowest row are purged entries rather than gaps
+            long firstMissing = version == 0 ? entry.getId() : version + 1;
+            if (entry.getId() - firstMissing > MAX_GAP_SPAN) {
+                logger.warn("JWT denylist skipped from version {} to {}; treating ids {} to {} as purged.",
+                        version, entry.getId(), firstMissing, entry.getId() - MAX_GAP_SPAN - 1);
+                firstMissing = entry.getId() - MAX_GAP_SPAN;
+            }
+            for (long missing = firstMissing; missing < entry.getId(); missing++) {
+                gaps.put(missing, nowMs);
+            }
+            apply(entry);
+            version = entry.getId();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+        revokedUsers.values().removeIf(revocation -> revocation.expiresAt().isBefore(now));
+        if (!added.isEmpty()) {
+            logger.debug("JWT denylist refreshed to version {}.", version);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.stocksim.stocktrading.security.jwt;
+
+import com.stocksim.stocktrading.cluster.ClusterBroadcaster;
+import com.stocksim.stocktrading.cluster.LeaderLeaseService;
+import com.stocksim.stocktrading.model.RevokedToken;
+import com.stocksim.stocktrading.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records JWT revocations in the revoked_tokens table and pushes them to the {@link TokenDenylist} of
+ * every node over the cluster bus.
+ *
+ * Kept apart from the denylist itself, which sits on the request and STOMP CONNECT path and so must not
+ * depend on the cluster bus (the bus needs the messaging template the WebSocket configuration creates).
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    // Internal cluster destination carrying RevokedToken entries
+    private static final String TOKEN_REVOKED = "cluster/token-revoked";
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Autowired
+    private LeaderLeaseService leaderLeaseService;
+
+    @Value("${spring.jwt.expirationMs}")
+    private int jwtExpirationMs;
+
+    @PostConstruct
+    public void registerClusterHandler() {
+        clusterBroadcaster.registerHandler(TOKEN_REVOKED, payload -> tokenDenylist.apply((RevokedToken) payload));
+    }
+
+    /**
+     * Revokes every token of a user issued with a version below minTokenVersion, e.g., after a password change.
+     * @param userId The ID of the user.
+     * @param minTokenVersion The user's new token version.
+     */
+    @Transactional
+    public void revokeUserTokens(Long userId, int minTokenVersion) {
+        // Every token the entry can match has expired one token lifetime from now
+        LocalDateTime expiresAt = LocalDateTime.now().plusNanos(jwtExpirationMs * 1_000_000L);
+        publish(revokedTokenRepository.save(RevokedToken.forUser(userId, minTokenVersion, expiresAt)));
+        logger.info("Revoked tokens of user {} below version {}.", userId, minTokenVersion);
+    }
+
+    /**
+     * Revokes a single token, e.g., on sign-out.
+     * @param tokenId The "jti" claim of the token.
+     * @param expiresAt The token's own expiry.
+     */
+    @Transactional
+    public void revokeToken(String tokenId, LocalDateTime expiresAt) {
+        publish(revokedTokenRepository.save(RevokedToken.forToken(tokenId, expiresAt)));
+        logger.debug("Revoked token {}.", tokenId);
+    }
+
+    /**
+     * Deletes entries that can no longer match an unexpired token; run by the leader node only.
+     */
+    @Scheduled(fixedDelayString = "${jwt.denylist.purge-ms}", initialDelayString = "${jwt.denylist.purge-ms}")
+    @Transactional
+    public void purgeExpired() {
+        if (!leaderLeaseService.isLeader()) {
+            return;
+        }
+        int purged = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            logger.debug("Purged {} expired JWT denylist entries.", purged);
+        }
+    }
+
+    // Other nodes only hear about the entry once it is committed, so a rolled-back change revokes nothing
+    private void publish(RevokedToken entry) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clusterBroadcaster.broadcast(TOKEN_REVOKED, entry);
+                }
+            });
+        } else {
+            clusterBroadcaster.broadcast(TOKEN_REVOKED, entry);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.stocksim.stocktrading.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Claims of recently verified tokens, so a client sending the same token with every request pays for
+ * the signature check and JSON parsing once per jwt.cache.ttl-ms instead of once per request.
+ *
+ * Entries are keyed by the SHA-256 of the token, which keeps bearer tokens themselves out of the heap,
+ * and are valid until the token expires or ttl-ms pass, whichever comes first. Revocation is not
+ * cached: {@link JwtUtils} checks the {@link TokenDenylist} on every hit.
+ *
+ * Memory is bounded: expired entries are swept every ttl-ms, and once the cache holds max-entries
+ * tokens, further tokens are verified uncached until a sweep frees room. A max-entries of 0 disables
+ * the cache.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerifiedTokenCache.class);
+
+    private record Entry(Claims claims, long validUntilMillis) {
+    }
+
+    private final Map<ByteBuffer, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long ttlMs;
+
+    public VerifiedTokenCache(@Value("${jwt.cache.max-entries}") int maxEntries,
+                              @Value("${jwt.cache.ttl-ms}") long ttlMs) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * @param token A token string.
+     * @return The claims it had when it was verified, or null if it is not cached or no longer valid.
+     */
+    public Claims get(String token) {
+        if (maxEntries == 0) {
+            return null;
+        }
+        ByteBuffer key = hash(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.validUntilMillis() <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.claims();
+    }
+
+    /**
+     * Caches the claims of a token whose signature and expiry have just been verified.
+     */
+    public void put(String token, Claims claims) {
+        if (maxEntries == 0 || entries.size() >= maxEntries) {
+            return;
+        }
+        long validUntil = System.currentTimeMillis() + ttlMs;
+        if (claims.getExpiration() != null) {
+            validUntil = Math.min(validUntil, claims.getExpiration().getTime());
+        }
+        entries.put(hash(token), new Entry(claims, validUntil));
+    }
+
+    /**
+     * Drops entries whose token has expired or that have been cached for ttl-ms.
+     */
+    @Scheduled(fixedDelayString = "${jwt.cache.ttl-ms}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        int before = entries.size();
+        entries.values().removeIf(entry -> entry.validUntilMillis() <= now);
+        int evicted = before - entries.size();
+        if (evicted > 0) {
+            logger.debug("Evicted {} verified tokens from the cache", evicted);
+        }
+    }
+
+    private static ByteBuffer hash(String token) {
+        try {
+            // ByteBuffer compares by content, so the digest can be used as a map key as-is
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Required of every Java platform
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.stocksim.stocktrading.security.services;
+
+import com.stocksim.stocktrading.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt password encoder that does its hashing on a small dedicated pool instead of the calling
+ * (Tomcat request) thread.
+ *
+ * BCrypt is deliberately CPU-bound, so a burst of sign-ins or sign-ups hashed on request threads would
+ * occupy every worker and starve trading requests. Here at most one hash per pool thread runs at a
+ * time, at most queue-capacity wait, and anything beyond that is rejected at once with a
+ * {@link ServiceUnavailableException} (HTTP 503), as is a hash still queued after wait-timeout-ms.
+ *
+ * Hashes with a work factor other than the configured strength report {@link #upgradeEncoding}, so
+ * the authentication provider rehashes the password on the user's next successful sign-in.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    // "$2a$10$..." -> work factor 10
+    private static final Pattern BCRYPT_COST = Pattern.compile("\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final BCryptPasswordEncoder delegate;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    private final long waitTimeoutMs;
+    private final Counter rejectedCounter;
+
+    /**
+     * @param strength BCrypt work factor (log2 of the rounds).
+     * @param threads Pool threads; 0 for one per available processor.
+     * @param queueCapacity Hashes allowed to wait for a thread.
+     * @param waitTimeoutMs How long a caller waits for its hash before giving up.
+     */
+    public BoundedPasswordEncoder(int strength, int threads, int queueCapacity, long waitTimeoutMs, MeterRegistry meterRegistry) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+        this.waitTimeoutMs = waitTimeoutMs;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.rejectedCounter = meterRegistry.counter("password.hashing.rejected");
+        meterRegistry.gauge("password.hashing.queued", executor, pool -> pool.getQueue().size());
+        logger.info("Password hashing: BCrypt strength {}, {} threads, queue of {}.", strength, poolSize, queueCapacity);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher cost = BCRYPT_COST.matcher(encodedPassword);
+        return cost.lookingAt() && Integer.parseInt(cost.group(1)) != strength;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private <T> T submit(Callable<T> hashing) {
+        Future<T> result;
+        try {
+            result = executor.submit(hashing);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Too many sign-in requests. Please try again shortly.");
+        }
+        try {
+            return result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Too many sign-in requests. Please try again shortly.");
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Password hashing was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause; // E.g., IllegalArgumentException for an over-long password
+            }
+            throw new IllegalStateException("Password hashing failed.", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.stocksim.stocktrading.security.services;
+
+import com.stocksim.stocktrading.model.ERole;
+import com.stocksim.stocktrading.model.Role;
+import com.stocksim.stocktrading.repository.RoleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The rows of the roles table, which only change at startup (see DataLoader), kept in memory so
+ * assigning roles on sign-up needs no queries.
+ *
+ * The map is replaced as a whole and never modified. It is loaded once the application is ready (after
+ * DataLoader has created the roles) and reloaded if a role is asked for that it does not contain.
+ */
+@Component
+public class RoleCache {
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    private volatile Map<ERole, Role> roles = Map.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Map<ERole, Role> loaded = new EnumMap<>(ERole.class);
+        for (Role role : roleRepository.findAll()) {
+            loaded.put(role.getName(), role);
+        }
+        roles = Collections.unmodifiableMap(loaded);
+    }
+
+    /**
+     * @param name The role name.
+     * @return The role, detached; only its id is used when it is assigned to a user.
+     * @throws RuntimeException if the role does not exist.
+     */
+    public Role get(ERole name) {
+        Role role = roles.get(name);
+        if (role == null) {
+            load(); // Asked for before the application was ready, or the role was added since
+            role = roles.get(name);
+        }
+        if (role == null) {
+            throw new RuntimeException("Error: Role is not found.");
+        }
+        return role;
+    }
+}
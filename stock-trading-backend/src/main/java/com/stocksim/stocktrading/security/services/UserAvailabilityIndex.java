@@ -0,0 +1,127 @@
+package com.stocksim.stocktrading.security.services;
+
+import com.stocksim.stocktrading.cluster.ClusterBroadcaster;
+import com.stocksim.stocktrading.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bloom filters over all usernames and emails, so a sign-up with a new username and email (the usual
+ * case) needs no uniqueness queries.
+ *
+ * "May exist" answers are checked against the database as before; "does not exist" answers are
+ * definite for every user this node has heard of. Users registered on other nodes are added through
+ * the cluster bus, and the unique constraints on the users table still reject any duplicate that gets
+ * past the filters (e.g., two concurrent sign-ups for the same name). Values are lower-cased, so the
+ * filters never rule out a case-insensitive match.
+ *
+ * The filters are filled from the users table once the application is ready; until then every value
+ * "may exist".
+ */
+@Component
+public class UserAvailabilityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserAvailabilityIndex.class);
+
+    // Internal cluster destination carrying Added payloads
+    private static final String USER_ADDED = "cluster/user-added";
+
+    private static final int LOAD_BATCH_SIZE = 10000;
+
+    /**
+     * A username and/or email now in use; either may be null.
+     */
+    private record Added(String username, String email) {
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    private final BloomFilter usernames;
+    private final BloomFilter emails;
+    private volatile boolean loaded = false;
+
+    public UserAvailabilityIndex(@Value("${signup.bloom.expected-users}") long expectedUsers,
+                                 @Value("${signup.bloom.false-positive-rate}") double falsePositiveRate) {
+        this.usernames = new BloomFilter(expectedUsers, falsePositiveRate);
+        this.emails = new BloomFilter(expectedUsers, falsePositiveRate);
+    }
+
+    @PostConstruct
+    public void registerClusterHandler() {
+        clusterBroadcaster.registerHandler(USER_ADDED, payload -> add((Added) payload));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long users = 0;
+        long afterId = 0;
+        while (true) {
+            List<UserRepository.Identity> batch = userRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            for (UserRepository.Identity identity : batch) {
+                add(new Added(identity.getUsername(), identity.getEmail()));
+                afterId = identity.getId();
+            }
+            users += batch.size();
+            if (batch.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+        }
+        loaded = true;
+        logger.info("Loaded {} usernames and emails into the sign-up filters.", users);
+    }
+
+    /**
+     * @return False only if no user has this username (ignoring case).
+     */
+    public boolean usernameMayExist(String username) {
+        return !loaded || usernames.mightContain(normalize(username));
+    }
+
+    /**
+     * @return False only if no user has this email (ignoring case).
+     */
+    public boolean emailMayExist(String email) {
+        return !loaded || emails.mightContain(normalize(email));
+    }
+
+    /**
+     * Records a new user on every node.
+     */
+    public void recordUser(String username, String email) {
+        clusterBroadcaster.broadcast(USER_ADDED, new Added(username, email));
+    }
+
+    /**
+     * Records a changed email on every node; the old one stays in the filter and merely "may exist".
+     */
+    public void recordEmail(String email) {
+        clusterBroadcaster.broadcast(USER_ADDED, new Added(null, email));
+    }
+
+    private void add(Added added) {
+        if (added.username() != null) {
+            usernames.add(normalize(added.username()));
+        }
+        if (added.email() != null) {
+            emails.add(normalize(added.email()));
+        }
+    }
+
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -33,6 +33,8 @@ public class UserDetailsImpl implements UserDetails {
 
     private Collection<? extends GrantedAuthority> authorities;
 
+    private int tokenVersion;
+
     /**
      * Constructor for UserDetailsImpl.
      * @param id The user's ID.
@@ -43,11 +45,21 @@ public class UserDetailsImpl implements UserDetails {
      */
     public UserDetailsImpl(Long id, String username, String email, String password,
                            Collection<? extends GrantedAuthority> authorities) {
+        this(id, username, email, password, authorities, 0);
+    }
+
+    /**
+     * Constructor for UserDetailsImpl with the user's current JWT version.
+     * @param tokenVersion The version carried in tokens issued to this user.
+     */
+    public UserDetailsImpl(Long id, String username, String email, String password,
+                           Collection<? extends GrantedAuthority> authorities, int tokenVersion) {
         this.id = id;
         this.username = username;
         this.email = email;
         this.password = password;
         this.authorities = authorities;
+        this.tokenVersion = tokenVersion;
     }
 
     /**
@@ -72,7 +84,8 @@ public class UserDetailsImpl implements UserDetails {
                 user.getUsername(),
                 user.getEmail(),
                 user.getPasswordHash(), // Use passwordHash from User entity
-                authorities);
+                authorities,
+                user.getTokenVersion());
     }
 
     @Override
@@ -88,6 +101,10 @@ public class UserDetailsImpl implements UserDetails {
         return email;
     }
 
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
     @Override
     public String getPassword() {
         return password;
@@ -1,10 +1,12 @@
 // UserDetailsServiceImpl.java
 package com.stocksim.stocktrading.security.services;
 
+import com.stocksim.stocktrading.cache.SecondLevelCacheInvalidator;
 import com.stocksim.stocktrading.model.User;
 import com.stocksim.stocktrading.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -15,11 +17,14 @@ import org.springframework.transaction.annotation.Transactional;
  This service is responsible for loading user-specific data during authentication.
  */
 @Service // Marks this class as a Spring Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired // Injects UserRepository dependency
     UserRepository userRepository;
 
+    @Autowired // Other nodes drop their cached copy of a rehashed user
+    private SecondLevelCacheInvalidator secondLevelCacheInvalidator;
+
     /**
      Loads user details by username for authentication.
      @param username The username to load.
@@ -36,4 +41,21 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 // Build and return UserDetailsImpl from the found User entity
         return UserDetailsImpl.build(user);
     }
-}
\ No newline at end of file
+
+    /**
+     Stores a password rehashed by the authentication provider, e.g., after the BCrypt strength changed.
+     @param user The user who just signed in.
+     @param newPassword The password hashed with the current settings.
+     @return UserDetails carrying the new hash.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User entity = userRepository.findByUsername(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + user.getUsername()));
+        entity.setPasswordHash(newPassword);
+        secondLevelCacheInvalidator.userChanged(entity.getId());
+        userRepository.save(entity);
+        return UserDetailsImpl.build(entity);
+    }
+}
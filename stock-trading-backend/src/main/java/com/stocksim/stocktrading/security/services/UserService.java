@@ -1,15 +1,26 @@
 package com.stocksim.stocktrading.security.services;
+import com.stocksim.stocktrading.cache.SecondLevelCacheInvalidator;
 import com.stocksim.stocktrading.dto.EmailUpdateRequest;
 import com.stocksim.stocktrading.dto.PasswordChangeRequest;
+import com.stocksim.stocktrading.dto.SignupRequest;
 import com.stocksim.stocktrading.exception.BadRequestException;
+import com.stocksim.stocktrading.model.ERole;
+import com.stocksim.stocktrading.model.Portfolio;
+import com.stocksim.stocktrading.model.Role;
 import com.stocksim.stocktrading.model.User;
+import com.stocksim.stocktrading.repository.PortfolioRepository;
 import com.stocksim.stocktrading.repository.UserRepository;
+import com.stocksim.stocktrading.security.jwt.TokenRevocationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class UserService {
@@ -20,6 +31,79 @@ public class UserService {
     @Autowired
     private PasswordEncoder encoder;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private UserAvailabilityIndex userAvailabilityIndex;
+
+    @Autowired
+    private RoleCache roleCache;
+
+    @Autowired
+    private SecondLevelCacheInvalidator secondLevelCacheInvalidator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Registers a new user with a default portfolio.
+     *
+     * Uniqueness is pre-checked against the database only when the {@link UserAvailabilityIndex} cannot rule
+     * a duplicate out, and roles come from the {@link RoleCache}, so a typical sign-up runs nothing but its
+     * inserts. The password is hashed before the transaction starts, so no connection is held meanwhile.
+     *
+     * @param request The sign-up request.
+     * @return The new User object.
+     * @throws BadRequestException if the username or email is already in use.
+     * @throws org.springframework.dao.DataIntegrityViolationException if a duplicate slipped past the pre-checks and hit a unique constraint.
+     */
+    public User registerUser(SignupRequest request) {
+        // Check if username already exists
+        if (userAvailabilityIndex.usernameMayExist(request.getUsername()) && userRepository.existsByUsername(request.getUsername())) {
+            throw new BadRequestException("Error: Username is already taken!");
+        }
+
+        // Check if email already exists
+        if (userAvailabilityIndex.emailMayExist(request.getEmail()) && userRepository.existsByEmail(request.getEmail())) {
+            throw new BadRequestException("Error: Email is already in use!");
+        }
+
+        String passwordHash = encoder.encode(request.getPassword()); // Encode password before saving
+
+        // Assign roles to the user. Default to ROLE_USER if no roles are specified.
+        Set<Role> roles = new HashSet<>();
+        if (request.getRole() == null || request.getRole().isEmpty()) {
+            roles.add(roleCache.get(ERole.ROLE_USER));
+        } else {
+            for (String role : request.getRole()) {
+                switch (role) {
+                    case "admin" -> roles.add(roleCache.get(ERole.ROLE_ADMIN));
+                    case "mod" -> roles.add(roleCache.get(ERole.ROLE_MODERATOR));
+                    default -> roles.add(roleCache.get(ERole.ROLE_USER)); // Default to user role
+                }
+            }
+        }
+
+        User user = transactionTemplate.execute(status -> {
+            User created = new User(request.getUsername(), request.getEmail(), passwordHash);
+            created.setRoles(roles);
+            userRepository.save(created); // Save the new user
+
+            // Create a default portfolio for the new user
+            Portfolio portfolio = new Portfolio(created, new BigDecimal("100000.00"));
+            created.setPortfolio(portfolio); // Link portfolio back to user
+            portfolioRepository.save(portfolio); // Save the new portfolio
+            return created;
+        });
+
+        userAvailabilityIndex.recordUser(user.getUsername(), user.getEmail());
+        return user;
+    }
+
     /**
      * Updates the email address of a user.
      *
@@ -44,11 +128,13 @@ public class UserService {
         }
 
         user.setEmail(request.getNewEmail());
+        userAvailabilityIndex.recordEmail(request.getNewEmail());
+        secondLevelCacheInvalidator.userChanged(userId);
         return userRepository.save(user);
     }
 
     /**
-     * Changes the password of a user.
+     * Changes the password of a user and revokes every token issued before the change.
      *
      * @param userId The ID of the user to update.
      * @param request The password change request containing current, new, and confirm new passwords.
@@ -76,6 +162,9 @@ public class UserService {
         }
 
         user.setPasswordHash(encoder.encode(request.getNewPassword())); // Use setPasswordHash()
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        tokenRevocationService.revokeUserTokens(userId, user.getTokenVersion());
+        secondLevelCacheInvalidator.userChanged(userId);
         return userRepository.save(user);
     }
 
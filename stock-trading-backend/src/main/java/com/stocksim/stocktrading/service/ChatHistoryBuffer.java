@@ -0,0 +1,132 @@
+package com.stocksim.stocktrading.service;
+
+import com.stocksim.stocktrading.datasource.Workload;
+import com.stocksim.stocktrading.datasource.WorkloadClass;
+import com.stocksim.stocktrading.dto.ChatMessageDTO;
+import com.stocksim.stocktrading.event.ChatMessagesPersistedEvent;
+import com.stocksim.stocktrading.repository.ChatMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the most recent persisted messages of every chat room in a fixed-size ring buffer,
+ * so the chat history endpoint is served from memory.
+ *
+ * The buffers are warmed from the database at startup and then fed with every persisted batch
+ * ({@link ChatMessagesPersistedEvent}), including batches written by other nodes.
+ */
+@Component
+public class ChatHistoryBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatHistoryBuffer.class);
+
+    // Messages from different nodes arrive interleaved, so reads order the window explicitly.
+    // A message whose batch has not been inserted yet has no id; it sorts after persisted ones of the same instant.
+    private static final Comparator<ChatMessageDTO> CHRONOLOGICAL =
+            Comparator.comparing(ChatMessageDTO::getTimestamp)
+                    .thenComparing(ChatMessageDTO::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    private final int capacity;
+
+    private final Map<String, RoomBuffer> rooms = new ConcurrentHashMap<>();
+
+    public ChatHistoryBuffer(@Value("${chat.history.buffer-size}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Loads the newest messages of every room once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Workload(WorkloadClass.CHAT)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        for (String chatRoomId : chatMessageRepository.findDistinctChatRoomIds()) {
+            List<ChatMessageDTO> newestFirst = chatMessageRepository
+                    .findRecentByChatRoomId(chatRoomId, PageRequest.of(0, capacity)).stream()
+                    .map(ChatMessageDTO::new)
+                    .toList();
+            RoomBuffer buffer = room(chatRoomId);
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                buffer.add(newestFirst.get(i));
+            }
+        }
+        logger.info("Chat history buffers warmed up for {} rooms.", rooms.size());
+    }
+
+    /**
+     * Appends a persisted batch to the buffers of its rooms.
+     * @param event The event carrying messages that now have their database ids.
+     */
+    @EventListener
+    public void onMessagesPersisted(ChatMessagesPersistedEvent event) {
+        event.getMessages().forEach(this::append);
+    }
+
+    /**
+     * @param chatRoomId The ID of the chat room.
+     * @return Up to buffer-size of the room's newest messages, oldest first.
+     */
+    public List<ChatMessageDTO> recent(String chatRoomId) {
+        RoomBuffer buffer = rooms.get(chatRoomId);
+        if (buffer == null) {
+            return Collections.emptyList();
+        }
+        List<ChatMessageDTO> messages = buffer.snapshot();
+        messages.sort(CHRONOLOGICAL);
+        return messages;
+    }
+
+    private void append(ChatMessageDTO message) {
+        room(message.getChatRoomId()).add(message);
+    }
+
+    private RoomBuffer room(String chatRoomId) {
+        return rooms.computeIfAbsent(chatRoomId, key -> new RoomBuffer(capacity));
+    }
+
+    /**
+     * Ring buffer of one room; once full, each new message overwrites the oldest.
+     */
+    private static final class RoomBuffer {
+        private final ChatMessageDTO[] slots;
+        private int next = 0;
+        private int size = 0;
+
+        RoomBuffer(int capacity) {
+            this.slots = new ChatMessageDTO[capacity];
+        }
+
+        synchronized void add(ChatMessageDTO message) {
+            slots[next] = message;
+            next = (next + 1) % slots.length;
+            size = Math.min(size + 1, slots.length);
+        }
+
+        synchronized List<ChatMessageDTO> snapshot() {
+            List<ChatMessageDTO> messages = new ArrayList<>(size);
+            int start = (next - size + slots.length) % slots.length;
+            for (int i = 0; i < size; i++) {
+                messages.add(slots[(start + i) % slots.length]);
+            }
+            return messages;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.stocksim.stocktrading.service;
+
+import com.stocksim.stocktrading.cluster.ClusterBroadcaster;
+import com.stocksim.stocktrading.datasource.WorkloadClass;
+import com.stocksim.stocktrading.datasource.WorkloadContext;
+import com.stocksim.stocktrading.dto.ChatMessageDTO;
+import com.stocksim.stocktrading.event.ChatMessagesPersistedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind persistence for chat messages.
+ *
+ * Messages are queued in a bounded in-memory queue and a single background thread inserts them in
+ * JDBC batches, as soon as batch-size messages are waiting or flush-interval-ms after the first one
+ * arrived. When the queue is full the caller writes its message itself (back-pressure instead of
+ * dropping). On shutdown the writer stops taking new work and flushes everything still queued.
+ * A batch that still fails after MAX_ATTEMPTS inserts is lost; its messages are counted as
+ * chat.write_behind.dropped.
+ * Persisted batches, as new copies carrying their ids, are shared over the cluster bus and republished on
+ * every node as a {@link ChatMessagesPersistedEvent} (history buffer, search index).
+ */
+@Component
+public class ChatMessageWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageWriter.class);
+
+    private static final String INSERT_SQL =
+            "insert into chat_messages (sender_id, message_text, timestamp, chat_room_id) values (?, ?, ?, ?)";
+
+    // Internal cluster destination carrying batches of freshly persisted messages
+    private static final String CHAT_PERSISTED = "cluster/chat-persisted";
+
+    // Number of attempts for a batch before its messages are given up (e.g., database down for good)
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final BlockingQueue<PendingChatMessage> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+
+    private volatile boolean running = true;
+    // Held shared while a message is queued and exclusively by stop(), so nothing is queued after the final drain
+    private final ReadWriteLock queueLock = new ReentrantReadWriteLock();
+    private Thread writerThread;
+    private Counter persistedCounter;
+    private Counter droppedCounter;
+
+    public ChatMessageWriter(@Value("${chat.write-behind.queue-capacity}") int queueCapacity,
+                             @Value("${chat.write-behind.batch-size}") int batchSize,
+                             @Value("${chat.write-behind.flush-interval-ms}") long flushIntervalMs,
+                             @Value("${chat.write-behind.offer-timeout-ms}") long offerTimeoutMs) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        Gauge.builder("chat.write_behind.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        persistedCounter = meterRegistry.counter("chat.write_behind.persisted");
+        droppedCounter = meterRegistry.counter("chat.write_behind.dropped");
+        clusterBroadcaster.registerHandler(CHAT_PERSISTED, payload -> {
+            @SuppressWarnings("unchecked")
+            List<ChatMessageDTO> messages = (List<ChatMessageDTO>) payload;
+            eventPublisher.publishEvent(new ChatMessagesPersistedEvent(messages));
+        });
+        writerThread = new Thread(this::runWriter, "chat-writer");
+        writerThread.start();
+    }
+
+    /**
+     * Queues a message for persistence. The message is copied and never modified, since it may be
+     * serialized for clients at the same time; the copies shared once persisted carry the ids.
+     * @param senderId The id of the sending user.
+     * @param message The message as broadcast to clients.
+     */
+    public void enqueue(Long senderId, ChatMessageDTO message) {
+        PendingChatMessage pending = new PendingChatMessage(senderId, message.getSenderUsername(),
+                message.getMessageText(), message.getTimestamp(), message.getChatRoomId());
+        queueLock.readLock().lock();
+        try {
+            if (running && queue.offer(pending, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queueLock.readLock().unlock();
+        }
+        // Queue full or writer stopping: persist on the caller's thread rather than lose the message
+        flush(List.of(pending));
+    }
+
+    private void runWriter() {
+        WorkloadContext.set(WorkloadClass.CHAT); // Batches are inserted on the chat pool
+        List<PendingChatMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingChatMessage first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingChatMessage next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false; // Flush what we have; the loop drains the rest
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Inserts a batch, retrying a failed batch a few times before giving its messages up,
+     * then shares the persisted messages with the cluster.
+     */
+    private void flush(List<PendingChatMessage> batch) {
+        List<ChatMessageDTO> persisted = insertWithRetries(batch);
+        if (persisted == null) {
+            droppedCounter.increment(batch.size());
+            logger.error("Dropped {} chat messages after {} failed attempts.", batch.size(), MAX_ATTEMPTS);
+            return;
+        }
+        persistedCounter.increment(batch.size());
+        logger.debug("Persisted {} chat messages", batch.size());
+        // Outside the retries: the rows exist now, and inserting them again would duplicate them
+        try {
+            clusterBroadcaster.broadcast(CHAT_PERSISTED, persisted);
+        } catch (Exception e) {
+            logger.error("Failed to share {} persisted chat messages with the cluster: {}", batch.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return The persisted messages with their ids, or null if the batch was not inserted within MAX_ATTEMPTS attempts.
+     */
+    private List<ChatMessageDTO> insertWithRetries(List<PendingChatMessage> batch) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                return insertBatch(batch);
+            } catch (Exception e) {
+                logger.warn("Chat batch of {} messages failed (attempt {}/{}): {}",
+                        batch.size(), attempt, MAX_ATTEMPTS, e.getMessage());
+                if (attempt < MAX_ATTEMPTS) {
+                    try {
+                        Thread.sleep(100L * attempt);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private List<ChatMessageDTO> insertBatch(List<PendingChatMessage> batch) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        PendingChatMessage pending = batch.get(i);
+                        ps.setLong(1, pending.senderId);
+                        ps.setString(2, pending.messageText);
+                        ps.setTimestamp(3, Timestamp.valueOf(pending.timestamp));
+                        ps.setString(4, pending.chatRoomId);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<ChatMessageDTO> persisted = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Object key = i < keys.size() ? keys.get(i).values().stream().findFirst().orElse(null) : null;
+            PendingChatMessage pending = batch.get(i);
+            persisted.add(new ChatMessageDTO(key instanceof Number number ? number.longValue() : null,
+                    pending.senderUsername, pending.messageText, pending.timestamp, pending.chatRoomId));
+        }
+        return persisted;
+    }
+
+    /**
+     * Stops accepting queued work and waits for the writer to flush everything still queued.
+     * Runs before the DataSource is closed, since this bean depends on it.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Waits for enqueue calls already past the running check; later ones write their message themselves
+        queueLock.writeLock().lock();
+        try {
+            running = false; // The writer notices within one flush interval; not interrupted so an in-flight batch completes
+        } finally {
+            queueLock.writeLock().unlock();
+        }
+        writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        // Anything the writer could not reach in time is written here
+        List<PendingChatMessage> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+        logger.info("Chat write-behind queue flushed on shutdown.");
+    }
+
+    // What is persisted of a message, copied when it is queued
+    private record PendingChatMessage(Long senderId, String senderUsername, String messageText,
+                                      LocalDateTime timestamp, String chatRoomId) {
+    }
+}
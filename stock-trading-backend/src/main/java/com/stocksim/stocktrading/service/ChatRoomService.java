@@ -0,0 +1,271 @@
+package com.stocksim.stocktrading.service;
+
+import com.stocksim.stocktrading.cluster.ClusterBroadcaster;
+import com.stocksim.stocktrading.dto.ChatMessageDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Routes chat messages to per-room topics ("/topic/chat.{roomId}") and tracks room membership.
+ *
+ * Membership is the set of WebSocket sessions on this node subscribed to a room's topic. A message
+ * reaches every node over the cluster bus, but a node only hands it to its broker when it has local
+ * members in that room, so fan-out work is proportional to the room's size rather than to the number
+ * of connected users.
+ *
+ * Local delivery runs on a fixed set of single-threaded worker lanes, a room always mapping to the
+ * same lane, so messages of a room stay in order. Each room waits in its own bounded queue, and a lane
+ * takes one message from each of its rooms with pending messages in turn: a hot room fills and drops
+ * from its own queue only, while the other rooms of its lane keep their place in the rotation.
+ */
+@Service
+public class ChatRoomService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatRoomService.class);
+
+    public static final String ROOM_TOPIC_PREFIX = "/topic/chat.";
+
+    // Internal cluster destination carrying chat messages of every room
+    private static final String CHAT_MESSAGE = "cluster/chat-message";
+
+    // Room ids end up in a destination and in chat_messages.chat_room_id (length 50)
+    private static final Pattern ROOM_ID = Pattern.compile("[A-Za-z0-9_-]{1,50}");
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Lane[] lanes;
+
+    private final int roomQueueCapacity;
+
+    // roomId -> messages waiting for local delivery; present only while it has some
+    private final Map<String, RoomQueue> roomQueues = new ConcurrentHashMap<>();
+
+    // roomId -> ids of the local sessions subscribed to it
+    private final Map<String, Set<String>> membersByRoom = new ConcurrentHashMap<>();
+
+    // sessionId -> (subscriptionId -> roomId), needed because UNSUBSCRIBE only carries the subscription id
+    private final Map<String, Map<String, String>> roomsBySession = new ConcurrentHashMap<>();
+
+    private Counter rejectedCounter;
+
+    public ChatRoomService(@Value("${chat.rooms.lanes}") int laneCount,
+                           @Value("${chat.rooms.room-queue-capacity}") int roomQueueCapacity) {
+        this.roomQueueCapacity = roomQueueCapacity;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane("chat-lane-" + i);
+        }
+    }
+
+    @PostConstruct
+    public void registerClusterHandler() {
+        rejectedCounter = meterRegistry.counter("chat.rooms.lane.rejected");
+        for (Lane lane : lanes) {
+            lane.thread.start();
+        }
+        clusterBroadcaster.registerHandler(CHAT_MESSAGE, payload -> deliverLocally((ChatMessageDTO) payload));
+    }
+
+    @PreDestroy
+    public void shutdownLanes() throws InterruptedException {
+        for (Lane lane : lanes) {
+            lane.thread.interrupt();
+        }
+        for (Lane lane : lanes) {
+            lane.thread.join(5000);
+        }
+    }
+
+    /**
+     * @param roomId A client-supplied room id.
+     * @return True if the id can be used as a room (letters, digits, '_' and '-', at most 50 characters).
+     */
+    public static boolean isValidRoomId(String roomId) {
+        return roomId != null && ROOM_ID.matcher(roomId).matches();
+    }
+
+    /**
+     * @param roomId The room id.
+     * @return The STOMP destination of the room.
+     */
+    public static String topicFor(String roomId) {
+        return ROOM_TOPIC_PREFIX + roomId;
+    }
+
+    /**
+     * Sends a message to the members of its room on every node.
+     * @param message The message; its chatRoomId must be a valid room id.
+     */
+    public void broadcast(ChatMessageDTO message) {
+        clusterBroadcaster.broadcast(CHAT_MESSAGE, message);
+    }
+
+    /**
+     * @param roomId The room id.
+     * @return The number of sessions on this node subscribed to the room.
+     */
+    public int localMemberCount(String roomId) {
+        Set<String> members = membersByRoom.get(roomId);
+        return members == null ? 0 : members.size();
+    }
+
+    private void deliverLocally(ChatMessageDTO message) {
+        String roomId = message.getChatRoomId();
+        if (localMemberCount(roomId) == 0) {
+            return; // Nobody in this room on this node
+        }
+        while (true) {
+            RoomQueue room = roomQueues.computeIfAbsent(roomId, RoomQueue::new);
+            boolean wasIdle;
+            synchronized (room) {
+                if (room.retired) {
+                    continue; // Drained and removed meanwhile; the next one takes its place
+                }
+                if (room.pending.size() >= roomQueueCapacity) {
+                    rejectedCounter.increment();
+                    logger.warn("Chat queue of room {} is full; dropping live delivery of a message (it is still persisted).", roomId);
+                    return;
+                }
+                wasIdle = room.pending.isEmpty();
+                room.pending.add(message);
+            }
+            if (wasIdle) {
+                lanes[Math.floorMod(roomId.hashCode(), lanes.length)].ready.add(room);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Messages of one room waiting for delivery. A queue is in its lane's rotation exactly while it has
+     * pending messages; once drained it is retired and removed, so idle rooms cost nothing.
+     */
+    private static final class RoomQueue {
+        private final String roomId;
+        private final ArrayDeque<ChatMessageDTO> pending = new ArrayDeque<>(); // Guarded by this
+        private boolean retired; // Guarded by this
+
+        RoomQueue(String roomId) {
+            this.roomId = roomId;
+        }
+    }
+
+    /**
+     * A delivery thread serving its rooms round-robin: one message from the room at the head of the
+     * rotation, which then goes to the back if it has more.
+     */
+    private final class Lane implements Runnable {
+        private final BlockingQueue<RoomQueue> ready = new LinkedBlockingQueue<>();
+        private final Thread thread;
+
+        Lane(String name) {
+            this.thread = new Thread(this, name);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    RoomQueue room = ready.take();
+                    ChatMessageDTO message;
+                    boolean more;
+                    synchronized (room) {
+                        message = room.pending.poll();
+                        more = !room.pending.isEmpty();
+                        if (!more) {
+                            room.retired = true;
+                            roomQueues.remove(room.roomId, room);
+                        }
+                    }
+                    try {
+                        messagingTemplate.convertAndSend(topicFor(room.roomId), message);
+                    } catch (RuntimeException e) {
+                        logger.error("Live delivery of a chat message to room {} failed: {}", room.roomId, e.getMessage());
+                    }
+                    if (more) {
+                        ready.add(room);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // Shutting down
+            }
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(ROOM_TOPIC_PREFIX)) {
+            return;
+        }
+        String roomId = destination.substring(ROOM_TOPIC_PREFIX.length());
+        if (!isValidRoomId(roomId)) {
+            return; // Rejected by JwtChannelInterceptor before reaching the broker
+        }
+        roomsBySession.computeIfAbsent(accessor.getSessionId(), key -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), roomId);
+        membersByRoom.compute(roomId, (key, members) -> {
+            Set<String> updated = members != null ? members : ConcurrentHashMap.newKeySet();
+            updated.add(accessor.getSessionId());
+            return updated;
+        });
+        logger.debug("Session {} joined chat room {} ({} local members)", accessor.getSessionId(), roomId, localMemberCount(roomId));
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = roomsBySession.get(accessor.getSessionId());
+        if (subscriptions == null) {
+            return;
+        }
+        String roomId = subscriptions.remove(accessor.getSubscriptionId());
+        if (roomId != null && !subscriptions.containsValue(roomId)) {
+            leave(roomId, accessor.getSessionId());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = roomsBySession.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(roomId -> leave(roomId, event.getSessionId()));
+        }
+    }
+
+    private void leave(String roomId, String sessionId) {
+        membersByRoom.computeIfPresent(roomId, (key, members) -> {
+            members.remove(sessionId);
+            return members.isEmpty() ? null : members;
+        });
+    }
+}
@@ -1,19 +1,36 @@
 package com.stocksim.stocktrading.service;
-import com.stocksim.stocktrading.model.ChatMessage;
+import com.stocksim.stocktrading.archive.ChatArchive;
+import com.stocksim.stocktrading.datasource.Workload;
+import com.stocksim.stocktrading.datasource.WorkloadClass;
+import com.stocksim.stocktrading.dto.ChatMessageDTO;
+import com.stocksim.stocktrading.exception.BadRequestException;
 import com.stocksim.stocktrading.model.User;
 import com.stocksim.stocktrading.repository.ChatMessageRepository;
 import com.stocksim.stocktrading.repository.UserRepository;
+import com.stocksim.stocktrading.search.ChatSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service class for managing chat messages.
+ * New messages are persisted write-behind by {@link ChatMessageWriter}, off the STOMP inbound thread,
+ * and recent history is served from the {@link ChatHistoryBuffer}. Messages past the retention age live
+ * in the {@link ChatArchive}; history and search read it where the database runs out.
  */
 @Service
+@Workload(WorkloadClass.CHAT)
 public class ChatService {
     @Autowired
     private ChatMessageRepository chatMessageRepository;
@@ -21,28 +38,134 @@ public class ChatService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
+
+    @Autowired
+    private ChatHistoryBuffer chatHistoryBuffer;
+
+    @Autowired
+    private ChatSearchIndex chatSearchIndex;
+
+    @Autowired
+    private ChatArchive chatArchive;
+
+    // username -> user id, for senders without an authenticated principal (e.g., "System")
+    private final Map<String, Long> senderIds = new ConcurrentHashMap<>();
+
+    /**
+     * Queues a chat message for batched persistence; it is broadcast without waiting for the insert.
+     * @param senderId The id of the message sender.
+     * @param chatMessageDTO The message as broadcast to clients; the writer queues a copy and leaves it unchanged.
+     */
+    public void queueChatMessage(Long senderId, ChatMessageDTO chatMessageDTO) {
+        chatMessageWriter.enqueue(senderId, chatMessageDTO);
+    }
+
     /**
-     * Saves a new chat message to the database.
+     * Resolves a sender's user id, looking it up in the database only the first time.
      * @param senderUsername The username of the message sender.
-     * @param messageText The content of the message.
+     * @return The sender's user id.
+     */
+    public Long resolveSenderId(String senderUsername) {
+        return senderIds.computeIfAbsent(senderUsername, username -> userRepository.findByUsername(username)
+                .map(User::getId)
+                .orElseThrow(() -> new UsernameNotFoundException("Sender user not found: " + username)));
+    }
+
+    /**
+     * Retrieves the most recent chat messages of a chat room from the in-memory history buffer.
      * @param chatRoomId The ID of the chat room.
-     * @return The saved ChatMessage entity.
+     * @return Up to the newest chat.history.buffer-size messages, oldest first.
      */
-    @Transactional
-    public ChatMessage saveChatMessage(String senderUsername, String messageText, String chatRoomId) {
-        User sender = userRepository.findByUsername(senderUsername)
-                .orElseThrow(() -> new UsernameNotFoundException("Sender user not found: " + senderUsername));
-        ChatMessage chatMessage = new ChatMessage(sender, messageText, chatRoomId);
-        return chatMessageRepository.save(chatMessage);
+    public List<ChatMessageDTO> getRecentChatMessages(String chatRoomId) {
+        return chatHistoryBuffer.recent(chatRoomId);
     }
 
     /**
-     * Retrieves recent chat messages for a specific chat room.
+     * Retrieves one page of a chat room's history.
+     * Without a cursor the newest page comes from the in-memory history buffer. Older messages (after a
+     * cursor, or once the buffer runs out) are read with a keyset query, whose cost does not grow with the
+     * page depth, and a page the database cannot fill is completed from the archive.
      * @param chatRoomId The ID of the chat room.
-     * @return A list of recent ChatMessage entities.
+     * @param beforeId Id of the oldest message the client already has, or null for the newest page.
+     * @param limit Maximum number of messages to return.
+     * @return The page, oldest first.
+     * @throws BadRequestException if the cursor is not a message of this room.
+     */
+    @Transactional(readOnly = true)
+    public List<ChatMessageDTO> getChatMessagesBefore(String chatRoomId, Long beforeId, int limit) {
+        if (beforeId == null) {
+            List<ChatMessageDTO> recent = getRecentChatMessages(chatRoomId);
+            if (recent.size() >= limit) {
+                return new ArrayList<>(recent.subList(recent.size() - limit, recent.size()));
+            }
+            // Fewer buffered messages than requested: continue in the database, then in the archive
+            List<ChatMessageDTO> newestFirst = new ArrayList<>(recent);
+            Collections.reverse(newestFirst);
+            if (recent.isEmpty()) {
+                chatMessageRepository.findRecentByChatRoomId(chatRoomId, PageRequest.of(0, limit)).stream()
+                        .map(ChatMessageDTO::new)
+                        .forEach(newestFirst::add);
+            } else {
+                ChatMessageDTO oldest = recent.get(0);
+                newestFirst.addAll(chatMessageRepository.findPageBefore(chatRoomId, oldest.getTimestamp(), oldest.getId(),
+                        PageRequest.of(0, limit - recent.size())));
+            }
+            return completeFromArchive(chatRoomId, newestFirst, null, 0, limit);
+        }
+        LocalDateTime cursorTimestamp = chatMessageRepository.findTimestampByIdAndChatRoomId(beforeId, chatRoomId)
+                .or(() -> chatArchive.findTimestamp(chatRoomId, beforeId))
+                .orElseThrow(() -> new BadRequestException("Unknown history cursor: " + beforeId));
+        List<ChatMessageDTO> page = chatMessageRepository.findPageBefore(chatRoomId, cursorTimestamp, beforeId, PageRequest.of(0, limit));
+        return completeFromArchive(chatRoomId, page, cursorTimestamp, beforeId, limit);
+    }
+
+    /**
+     * Fills a short page with archived messages older than its oldest message, or than the cursor
+     * when the page is empty.
+     * @param newestFirst A page read from the database or the buffer, newest first.
+     * @param timestamp Timestamp of the cursor the page was read with, null for the newest page.
+     * @param id Id of that cursor.
+     * @return The completed page, oldest first.
+     */
+    private List<ChatMessageDTO> completeFromArchive(String chatRoomId, List<ChatMessageDTO> newestFirst,
+                                                     LocalDateTime timestamp, long id, int limit) {
+        List<ChatMessageDTO> page = new ArrayList<>(newestFirst);
+        if (page.size() < limit) {
+            ChatMessageDTO oldest = page.isEmpty() ? null : page.get(page.size() - 1);
+            List<ChatMessageDTO> archived = oldest != null
+                    ? chatArchive.findPageBefore(chatRoomId, oldest.getTimestamp(), oldest.getId(), limit - page.size())
+                    : chatArchive.findPageBefore(chatRoomId, timestamp, id, limit - page.size());
+            Set<Long> ids = new HashSet<>();
+            page.forEach(message -> ids.add(message.getId()));
+            archived.stream().filter(message -> ids.add(message.getId())).forEach(page::add);
+        }
+        Collections.reverse(page);
+        return page;
+    }
+
+    /**
+     * Full-text search across all rooms, answered by the in-process {@link ChatSearchIndex};
+     * only the hits are read from the database.
+     * @param query Free text; messages must contain every term.
+     * @param limit Maximum number of messages to return.
+     * @return The matching messages, newest first.
      */
     @Transactional(readOnly = true)
-    public List<ChatMessage> getRecentChatMessages(String chatRoomId) {
-        return chatMessageRepository.findTop50ByChatRoomIdOrderByTimestampAsc(chatRoomId);
+    public List<ChatMessageDTO> searchChatMessages(String query, int limit) {
+        List<Long> ids = chatSearchIndex.search(query, limit);
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ChatMessageDTO> messages = new ArrayList<>(chatMessageRepository.findDtosByIdIn(ids));
+        if (messages.size() < ids.size()) {
+            // The rest have been moved to the archive since they were indexed
+            Set<Long> missing = new HashSet<>(ids);
+            messages.forEach(message -> missing.remove(message.getId()));
+            messages.addAll(chatArchive.findByIds(missing));
+        }
+        messages.sort(Comparator.comparing(ChatMessageDTO::getId).reversed());
+        return messages;
     }
-}
\ No newline at end of file
+}
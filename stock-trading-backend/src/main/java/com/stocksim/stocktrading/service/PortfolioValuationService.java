@@ -0,0 +1,246 @@
+package com.stocksim.stocktrading.service;
+
+import com.stocksim.stocktrading.cluster.ClusterBroadcaster;
+import com.stocksim.stocktrading.datasource.Workload;
+import com.stocksim.stocktrading.datasource.WorkloadClass;
+import com.stocksim.stocktrading.dto.HoldingDTO;
+import com.stocksim.stocktrading.dto.PortfolioDTO;
+import com.stocksim.stocktrading.dto.PortfolioValuationDTO;
+import com.stocksim.stocktrading.dto.PriceTickDTO;
+import com.stocksim.stocktrading.event.PortfolioChangedEvent;
+import com.stocksim.stocktrading.event.PriceTickEvent;
+import com.stocksim.stocktrading.repository.PortfolioRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a live valuation of every portfolio that holds stock and pushes it to its owner
+ * on "/user/queue/portfolio" whenever a price tick or a trade changes it.
+ *
+ * A reverse index from symbol to the ids of the portfolios holding it means a tick only touches
+ * the holders of that symbol, and each touched valuation is updated incrementally
+ * (quantity * price delta) instead of being recomputed from the database.
+ *
+ * Every node keeps the full index: trades are shared over the cluster bus and ticks arrive through
+ * the cluster price stream, while pushes only go to users connected to the local node.
+ *
+ * A refresh and a tick for the same portfolio never interleave: both run inside a compute on its
+ * entry in the valuations map. A refresh values the holdings at the latest delivered ticks, since the
+ * trade's snapshot may predate a tick that the replaced valuation had already applied.
+ */
+@Service
+public class PortfolioValuationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioValuationService.class);
+
+    public static final String PORTFOLIO_QUEUE = "/queue/portfolio";
+
+    // Internal cluster destination carrying post-trade portfolio snapshots
+    private static final String PORTFOLIO_CHANGED = "cluster/portfolio-changed";
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private SimpUserRegistry simpUserRegistry;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Autowired
+    private PriceStreamService priceStreamService;
+
+    // symbol -> ids of the portfolios currently holding it
+    private final Map<String, Set<Long>> holdersBySymbol = new ConcurrentHashMap<>();
+
+    // portfolio id -> live valuation
+    private final Map<Long, PortfolioValuation> valuations = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void registerClusterHandler() {
+        clusterBroadcaster.registerHandler(PORTFOLIO_CHANGED, payload -> {
+            PortfolioValuation valuation = refresh((PortfolioDTO) payload);
+            push(valuation, valuation.snapshot(null));
+        });
+    }
+
+    /**
+     * Builds the index from every portfolio with at least one holding once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Workload(WorkloadClass.REPORTING)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        portfolioRepository.findAllWithHoldings().forEach(portfolio -> refresh(new PortfolioDTO(portfolio)));
+        logger.info("Portfolio valuation index warmed up: {} portfolios across {} symbols.",
+                valuations.size(), holdersBySymbol.size());
+    }
+
+    /**
+     * Shares a committed trade with every node, each of which re-indexes the portfolio
+     * and pushes the new valuation if the owner is connected to it.
+     * @param event The event carrying the post-trade portfolio snapshot.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPortfolioChanged(PortfolioChangedEvent event) {
+        clusterBroadcaster.broadcast(PORTFOLIO_CHANGED, event.getPortfolio());
+    }
+
+    /**
+     * Applies a price tick to the holders of the ticked symbol only.
+     * @param event The event carrying the delivered tick.
+     */
+    @EventListener
+    public void onPriceTick(PriceTickEvent event) {
+        PriceTickDTO tick = event.getTick();
+        Set<Long> holders = holdersBySymbol.get(tick.getSymbol());
+        if (holders == null || holders.isEmpty()) {
+            return;
+        }
+        for (Long portfolioId : holders) {
+            PortfolioValuationDTO[] update = new PortfolioValuationDTO[1];
+            PortfolioValuation valuation = valuations.computeIfPresent(portfolioId, (id, current) -> {
+                update[0] = current.applyPrice(tick.getSymbol(), tick.getCurrentPrice());
+                return current;
+            });
+            if (valuation != null && update[0] != null) {
+                push(valuation, update[0]);
+            }
+        }
+        logger.debug("Revalued {} portfolios holding {}", holders.size(), tick.getSymbol());
+    }
+
+    /**
+     * Replaces the valuation of a portfolio and moves it between symbol buckets as needed.
+     * @param portfolio The current portfolio snapshot.
+     * @return The new valuation.
+     */
+    private PortfolioValuation refresh(PortfolioDTO portfolio) {
+        PortfolioValuation[] updated = new PortfolioValuation[1];
+        valuations.compute(portfolio.getId(), (id, previous) -> {
+            updated[0] = new PortfolioValuation(portfolio, priceStreamService);
+
+            for (String symbol : updated[0].symbols()) {
+                holdersBySymbol.computeIfAbsent(symbol, key -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            if (previous != null) {
+                for (String symbol : previous.symbols()) {
+                    if (!updated[0].holds(symbol)) {
+                        Set<Long> holders = holdersBySymbol.get(symbol);
+                        if (holders != null) {
+                            holders.remove(id);
+                        }
+                    }
+                }
+            }
+            // Nothing to revalue until the next buy
+            return updated[0].symbols().isEmpty() ? null : updated[0];
+        });
+        return updated[0];
+    }
+
+    private void push(PortfolioValuation valuation, PortfolioValuationDTO update) {
+        // Skip building a STOMP frame for users without an open WebSocket session
+        if (simpUserRegistry.getUser(valuation.username) == null) {
+            return;
+        }
+        messagingTemplate.convertAndSendToUser(valuation.username, PORTFOLIO_QUEUE, update);
+    }
+
+    /**
+     * Running valuation of a single portfolio. All mutation is synchronized on the instance,
+     * since ticks arrive on the scheduler thread while snapshots are pushed from request threads.
+     */
+    private static final class PortfolioValuation {
+        private final Long portfolioId;
+        private final String username;
+        private final BigDecimal cashBalance;
+        private final Map<String, Position> positions = new HashMap<>();
+        private BigDecimal marketValue = BigDecimal.ZERO;
+        private BigDecimal costBasis = BigDecimal.ZERO;
+
+        /**
+         * @param portfolio The portfolio snapshot.
+         * @param priceStreamService Source of the latest ticks, which take precedence over the snapshot's prices.
+         */
+        PortfolioValuation(PortfolioDTO portfolio, PriceStreamService priceStreamService) {
+            this.portfolioId = portfolio.getId();
+            this.username = portfolio.getUsername();
+            this.cashBalance = portfolio.getCashBalance();
+            for (HoldingDTO holding : portfolio.getHoldings()) {
+                BigDecimal quantity = BigDecimal.valueOf(holding.getQuantity());
+                PriceTickDTO tick = priceStreamService.latestTick(holding.getSymbol());
+                BigDecimal price = tick != null ? tick.getCurrentPrice() : holding.getCurrentPrice();
+                positions.put(holding.getSymbol(), new Position(quantity, price));
+                marketValue = marketValue.add(quantity.multiply(price));
+                costBasis = costBasis.add(quantity.multiply(holding.getAverageBuyPrice()));
+            }
+        }
+
+        synchronized Set<String> symbols() {
+            return Set.copyOf(positions.keySet());
+        }
+
+        synchronized boolean holds(String symbol) {
+            return positions.containsKey(symbol);
+        }
+
+        /**
+         * Moves the market value by quantity * (new price - last price).
+         * @return The new valuation, or null if the portfolio does not hold the symbol or the price is unchanged.
+         */
+        synchronized PortfolioValuationDTO applyPrice(String symbol, BigDecimal price) {
+            Position position = positions.get(symbol);
+            if (position == null || position.lastPrice.compareTo(price) == 0) {
+                return null;
+            }
+            marketValue = marketValue.add(position.quantity.multiply(price.subtract(position.lastPrice)));
+            position.lastPrice = price;
+            return snapshot(symbol);
+        }
+
+        synchronized PortfolioValuationDTO snapshot(String changedSymbol) {
+            PortfolioValuationDTO dto = new PortfolioValuationDTO();
+            dto.setPortfolioId(portfolioId);
+            dto.setCashBalance(cashBalance);
+            dto.setMarketValue(marketValue.setScale(4, RoundingMode.HALF_UP));
+            dto.setCostBasis(costBasis.setScale(4, RoundingMode.HALF_UP));
+            dto.setUnrealizedPnl(marketValue.subtract(costBasis).setScale(4, RoundingMode.HALF_UP));
+            dto.setTotalValue(cashBalance.add(marketValue).setScale(4, RoundingMode.HALF_UP));
+            dto.setChangedSymbol(changedSymbol);
+            dto.setValuedAt(LocalDateTime.now());
+            return dto;
+        }
+    }
+
+    private static final class Position {
+        private final BigDecimal quantity;
+        private BigDecimal lastPrice;
+
+        Position(BigDecimal quantity, BigDecimal lastPrice) {
+            this.quantity = quantity;
+            this.lastPrice = lastPrice;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.stocksim.stocktrading.service;
+
+import com.stocksim.stocktrading.cluster.ClusterBroadcaster;
+import com.stocksim.stocktrading.dto.PriceResumeDTO;
+import com.stocksim.stocktrading.dto.PriceTickDTO;
+import com.stocksim.stocktrading.dto.StockDTO;
+import com.stocksim.stocktrading.event.PriceTickEvent;
+import com.stocksim.stocktrading.event.StockPriceUpdatedEvent;
+import com.stocksim.stocktrading.repository.StockRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes price ticks on "/topic/prices" as a sequenced, resumable stream.
+ *
+ * The node that fetched a price numbers the tick (epoch + sequence) and broadcasts it over the
+ * cluster bus. Every node, the origin included, keeps the delivered ticks in a fixed-size replay
+ * buffer before forwarding them to its local subscribers. A client that reconnects to any node
+ * sends its last epoch/sequence and receives either the ticks it missed or, when they have already
+ * left the buffer, a snapshot of the latest tick per symbol, so reconnects never have to go back
+ * to "/api/stocks".
+ */
+@Service
+public class PriceStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceStreamService.class);
+
+    public static final String PRICES_TOPIC = "/topic/prices";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Numbering used when this node originates ticks; restarts with every JVM, hence the start time as epoch
+    private final long originEpoch = System.currentTimeMillis();
+    private long originSequence = 0; // Guarded by originLock
+
+    // Separate from the delivery lock so two publishing nodes never wait on each other's delivery
+    private final Object originLock = new Object();
+
+    // State of the stream as delivered to this node, guarded by this
+    private final PriceTickDTO[] replayBuffer;
+    private long epoch;
+    private long latestSequence = 0;
+
+    // Latest tick per symbol, served as the snapshot
+    private final Map<String, PriceTickDTO> latestBySymbol = new ConcurrentHashMap<>();
+
+    public PriceStreamService(@Value("${prices.replay-buffer-size}") int replayBufferSize) {
+        this.replayBuffer = new PriceTickDTO[replayBufferSize];
+        this.epoch = originEpoch;
+    }
+
+    @PostConstruct
+    public void registerClusterHandler() {
+        clusterBroadcaster.registerHandler(PRICES_TOPIC, payload -> deliver((PriceTickDTO) payload));
+    }
+
+    /**
+     * Seeds the snapshot with the persisted prices so it also covers symbols that have not ticked yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedSnapshot() {
+        stockRepository.findAll().forEach(stock ->
+                latestBySymbol.putIfAbsent(stock.getSymbol(), new PriceTickDTO(new StockDTO(stock), epoch, 0)));
+        logger.info("Price stream snapshot seeded with {} symbols (epoch {}).", latestBySymbol.size(), epoch);
+    }
+
+    /**
+     * Sequences a price change committed by this node and broadcasts it to the cluster.
+     * @param event The event carrying the updated stock.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockPriceUpdated(StockPriceUpdatedEvent event) {
+        publish(event.getStock());
+    }
+
+    /**
+     * Assigns the next origin sequence number and broadcasts the tick. Numbering and publishing
+     * happen under the same lock so every node receives this origin's ticks in sequence order.
+     * Each node then hands them to its broker one at a time (see {@link #deliver}), and the broker keeps
+     * that order up to each subscriber (see WebSocketConfig), so clients see the sequence in order too.
+     * @param stock The updated stock.
+     * @return The published tick.
+     */
+    public PriceTickDTO publish(StockDTO stock) {
+        synchronized (originLock) {
+            PriceTickDTO tick = new PriceTickDTO(stock, originEpoch, ++originSequence);
+            clusterBroadcaster.broadcast(PRICES_TOPIC, tick);
+            return tick;
+        }
+    }
+
+    /**
+     * Records a tick delivered by the cluster bus and forwards it to this node's subscribers.
+     * A tick from a new epoch (e.g., another node took over fetching) restarts the replay buffer.
+     * @param tick The delivered tick.
+     */
+    private synchronized void deliver(PriceTickDTO tick) {
+        if (tick.getEpoch() != epoch) {
+            logger.info("Price stream epoch changed from {} to {}; clearing replay buffer.", epoch, tick.getEpoch());
+            Arrays.fill(replayBuffer, null);
+            epoch = tick.getEpoch();
+            latestSequence = tick.getSequence() - 1;
+        }
+        replayBuffer[(int) (tick.getSequence() % replayBuffer.length)] = tick;
+        latestSequence = tick.getSequence();
+        latestBySymbol.put(tick.getSymbol(), tick);
+        messagingTemplate.convertAndSend(PRICES_TOPIC, tick);
+        eventPublisher.publishEvent(new PriceTickEvent(tick));
+        logger.debug("Pushed price tick #{} for {} to {}", tick.getSequence(), tick.getSymbol(), PRICES_TOPIC);
+    }
+
+    /**
+     * @param symbol A stock symbol.
+     * @return The latest tick for it delivered on this node, or null if there has been none. It is recorded
+     *         before the {@link PriceTickEvent} for it is published.
+     */
+    public PriceTickDTO latestTick(String symbol) {
+        return latestBySymbol.get(symbol);
+    }
+
+    /**
+     * Answers a reconnecting client.
+     * @param lastEpoch The epoch of the last tick the client applied, or null.
+     * @param lastSequence The sequence of the last tick the client applied, or null.
+     * @return The missed ticks, or a snapshot when they can no longer be replayed.
+     */
+    public synchronized PriceResumeDTO resume(Long lastEpoch, Long lastSequence) {
+        long oldestBuffered = Math.max(1, latestSequence - replayBuffer.length + 1);
+        boolean replayable = lastEpoch != null && lastEpoch == epoch
+                && lastSequence != null && lastSequence <= latestSequence && lastSequence + 1 >= oldestBuffered;
+
+        if (replayable) {
+            List<PriceTickDTO> missed = new ArrayList<>((int) (latestSequence - lastSequence));
+            for (long sequence = lastSequence + 1; sequence <= latestSequence; sequence++) {
+                PriceTickDTO tick = replayBuffer[(int) (sequence % replayBuffer.length)];
+                if (tick == null || tick.getSequence() != sequence) {
+                    replayable = false; // Not delivered to this node (e.g., it joined mid-epoch)
+                    break;
+                }
+                missed.add(tick);
+            }
+            if (replayable) {
+                return new PriceResumeDTO(PriceResumeDTO.Mode.DELTAS, epoch, latestSequence, missed);
+            }
+        }
+        return new PriceResumeDTO(PriceResumeDTO.Mode.SNAPSHOT, epoch, latestSequence,
+                new ArrayList<>(latestBySymbol.values()));
+    }
+}
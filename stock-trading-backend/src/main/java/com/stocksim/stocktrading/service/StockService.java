@@ -1,13 +1,16 @@
 package com.stocksim.stocktrading.service;
 
+import com.stocksim.stocktrading.cache.SecondLevelCacheInvalidator;
+import com.stocksim.stocktrading.cluster.LeaderLeaseService;
 import com.stocksim.stocktrading.dto.StockDTO; // Import StockDTO
+import com.stocksim.stocktrading.event.StockPriceUpdatedEvent;
 import com.stocksim.stocktrading.model.Stock;
 import com.stocksim.stocktrading.repository.StockRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.messaging.simp.SimpMessagingTemplate; // Import this for sending WebSocket messages
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,6 +24,8 @@ import java.util.Optional;
  * Service class for managing stock-related business logic.
  * Interacts with StockRepository to perform CRUD operations on stocks.
  * Also handles scheduled updates of stock prices from an external API and pushes them via WebSockets.
+ * When several nodes run, only the holder of the "stock-price-refresh" lease fetches prices;
+ * the other nodes receive the resulting ticks over the cluster bus.
  */
 @Service
 public class StockService {
@@ -33,8 +38,14 @@ public class StockService {
     @Autowired
     private AlphaVantageService alphaVantageService;
 
-    @Autowired // Inject SimpMessagingTemplate to send messages over WebSocket
-    private SimpMessagingTemplate messagingTemplate;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private LeaderLeaseService leaderLeaseService;
+
+    @Autowired
+    private SecondLevelCacheInvalidator secondLevelCacheInvalidator;
 
     @Value("${alphavantage.fetch-interval-ms}")
     private long fetchIntervalMs;
@@ -63,6 +74,7 @@ public class StockService {
      */
     @Transactional
     public Stock saveStock(Stock stock) {
+        secondLevelCacheInvalidator.stocksChanged();
         return stockRepository.save(stock);
     }
 
@@ -72,6 +84,7 @@ public class StockService {
      */
     @Transactional
     public void deleteStock(Long id) {
+        secondLevelCacheInvalidator.stocksChanged();
         stockRepository.deleteById(id);
     }
 
@@ -87,15 +100,26 @@ public class StockService {
     /**
      * Scheduled task to periodically fetch and update stock prices from Alpha Vantage.
      * The fixedRateString uses the interval defined in application.yml.
-     * If a price changes, it pushes the update via WebSocket to clients subscribed to "/topic/prices".
+     * Only the lease holder runs the fetch. Each price is written with the lease's fencing token in its
+     * own statement, so a node that lost the lease mid-run cannot overwrite its successor's prices.
+     * If a price changes, it publishes a StockPriceUpdatedEvent, which PriceStreamService pushes
+     * via WebSocket to clients subscribed to "/topic/prices".
      */
     @Scheduled(fixedRateString = "${alphavantage.fetch-interval-ms}")
-    @Transactional // Ensure updates are transactional
     public void updateStockPricesScheduled() {
-        logger.info("Scheduled stock price update started at {}", LocalDateTime.now());
+        if (!leaderLeaseService.tryBecomeLeader()) {
+            logger.debug("Skipping scheduled stock price update: another node holds the refresh lease.");
+            return;
+        }
+        Long fencingToken = leaderLeaseService.currentFencingToken();
+        logger.info("Scheduled stock price update started at {} (fencing token {})", LocalDateTime.now(), fencingToken);
         List<Stock> stocks = stockRepository.findAll(); // FIXED: Added <Stock>
 
         for (Stock stock : stocks) {
+            if (!leaderLeaseService.isLeader()) {
+                logger.warn("Refresh lease lost; stopping scheduled stock price update.");
+                break;
+            }
             try {
                 // Fetch the latest price from Alpha Vantage
                 Optional<BigDecimal> newPriceOptional = alphaVantageService.getGlobalQuote(stock.getSymbol()); // FIXED: Added <BigDecimal>
@@ -104,15 +128,20 @@ public class StockService {
                     BigDecimal newPrice = newPriceOptional.get(); // Now correctly infers BigDecimal
                     if (newPrice.compareTo(stock.getCurrentPrice()) != 0) { // Only update if price has changed
                         BigDecimal oldPrice = stock.getCurrentPrice(); // Store old price for logging
+                        LocalDateTime updatedAt = LocalDateTime.now();
+                        if (stockRepository.updatePriceFenced(stock.getId(), newPrice, updatedAt, fencingToken) == 0) {
+                            logger.warn("Price write for {} rejected: a newer lease holder has taken over.", stock.getSymbol());
+                            break;
+                        }
                         stock.setCurrentPrice(newPrice);
-                        stock.setLastUpdated(LocalDateTime.now());
-                        stockRepository.save(stock);
+                        stock.setLastUpdated(updatedAt);
+                        stock.setPriceFencingToken(fencingToken);
                         logger.info("Updated price for {}: from {} to {}", stock.getSymbol(), oldPrice, newPrice);
 
                         // --- PUSH UPDATE VIA WEBSOCKET ---
-                        // Convert the updated Stock entity to a StockDTO before sending
-                        messagingTemplate.convertAndSend("/topic/prices", new StockDTO(stock));
-                        logger.debug("Pushed price update for {} to /topic/prices", stock.getSymbol());
+                        // PriceStreamService sequences the tick and broadcasts it to every node's "/topic/prices";
+                        // other listeners (e.g., live portfolio valuations) react to the delivered tick
+                        eventPublisher.publishEvent(new StockPriceUpdatedEvent(new StockDTO(stock)));
 
                     } else {
                         logger.debug("Price for {} remains {}", stock.getSymbol(), newPrice);
@@ -126,4 +155,4 @@ public class StockService {
         }
         logger.info("Scheduled stock price update finished.");
     }
-}
\ No newline at end of file
+}
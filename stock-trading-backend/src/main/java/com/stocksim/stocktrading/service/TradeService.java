@@ -1,28 +1,39 @@
 package com.stocksim.stocktrading.service;
 
+import com.stocksim.stocktrading.datasource.Workload;
+import com.stocksim.stocktrading.datasource.WorkloadClass;
 import com.stocksim.stocktrading.dto.PortfolioDTO;
 import com.stocksim.stocktrading.dto.TransactionDTO;
+import com.stocksim.stocktrading.dto.TransactionPageDTO;
+import com.stocksim.stocktrading.event.PortfolioChangedEvent;
+import com.stocksim.stocktrading.exception.BadRequestException;
 import com.stocksim.stocktrading.model.*;
 import com.stocksim.stocktrading.repository.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional; // Ensure this import is present
-import java.util.stream.Collectors;
 
 @Service
+@Workload(WorkloadClass.TRADING) // Trades keep their own connections however busy reporting gets
 public class TradeService {
 
-    @Autowired
-    private UserRepository userRepository;
-
     @Autowired
     private PortfolioRepository portfolioRepository;
 
@@ -35,16 +46,21 @@ public class TradeService {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Bounds of an unrestricted history page, within the DATETIME range of every supported database
+    static final LocalDateTime EARLIEST_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+    static final LocalDateTime LATEST_TIME = LocalDateTime.of(9999, 12, 31, 0, 0);
+
     @Transactional
     public PortfolioDTO buyStock(String username, String symbol, Long quantity) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        Portfolio portfolio = findPortfolio(username);
 
-        Portfolio portfolio = portfolioRepository.findByUser(user)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Portfolio not found for user: " + username));
-
-        Stock stock = stockRepository.findBySymbol(symbol)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Stock not found: " + symbol));
+        Stock stock = findStock(symbol);
 
         BigDecimal currentPrice = stock.getCurrentPrice();
         BigDecimal totalCost = currentPrice.multiply(BigDecimal.valueOf(quantity)).setScale(4, RoundingMode.HALF_UP);
@@ -55,8 +71,7 @@ public class TradeService {
 
         portfolio.setCashBalance(portfolio.getCashBalance().subtract(totalCost));
 
-        // --- Corrected Line for buyStock ---
-        Optional<Holding> existingHolding = holdingRepository.findByPortfolioAndStock(portfolio, stock);
+        Optional<Holding> existingHolding = findHolding(portfolio, stock);
         Holding holding;
 
         if (existingHolding.isPresent()) {
@@ -76,27 +91,22 @@ public class TradeService {
         holdingRepository.save(holding);
 
         Transaction transaction = new Transaction(portfolio, stock, TransactionType.BUY, quantity, currentPrice, totalCost);
-        portfolio.addTransaction(transaction);
-        transactionRepository.save(transaction);
+        transactionRepository.save(transaction); // Appended on its own; the portfolio holds no transaction list
 
         portfolioRepository.save(portfolio);
 
-        return new PortfolioDTO(portfolio);
+        PortfolioDTO portfolioDTO = new PortfolioDTO(portfolio);
+        eventPublisher.publishEvent(new PortfolioChangedEvent(portfolioDTO)); // Delivered to listeners after commit
+        return portfolioDTO;
     }
 
     @Transactional
     public PortfolioDTO sellStock(String username, String symbol, Long quantity) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        Portfolio portfolio = findPortfolio(username);
 
-        Portfolio portfolio = portfolioRepository.findByUser(user)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Portfolio not found for user: " + username));
-
-        Stock stock = stockRepository.findBySymbol(symbol)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Stock not found: " + symbol));
+        Stock stock = findStock(symbol);
 
-        // --- Corrected Line for sellStock ---
-        Optional<Holding> holdingOptional = holdingRepository.findByPortfolioAndStock(portfolio, stock);
+        Optional<Holding> holdingOptional = findHolding(portfolio, stock);
         if (holdingOptional.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No shares of " + symbol + " found in your portfolio.");
         }
@@ -120,35 +130,96 @@ public class TradeService {
         }
 
         Transaction transaction = new Transaction(portfolio, stock, TransactionType.SELL, quantity, currentPrice, totalProceeds);
-        portfolio.addTransaction(transaction);
-        transactionRepository.save(transaction);
+        transactionRepository.save(transaction); // Appended on its own; the portfolio holds no transaction list
 
         portfolioRepository.save(portfolio);
 
-        return new PortfolioDTO(portfolio);
+        PortfolioDTO portfolioDTO = new PortfolioDTO(portfolio);
+        eventPublisher.publishEvent(new PortfolioChangedEvent(portfolioDTO)); // Delivered to listeners after commit
+        return portfolioDTO;
     }
 
     @Transactional(readOnly = true)
     public PortfolioDTO getUserPortfolio(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
-
-        Portfolio portfolio = portfolioRepository.findByUser(user)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Portfolio not found for user: " + username));
+        Portfolio portfolio = findPortfolio(username);
 
         return new PortfolioDTO(portfolio);
     }
 
-    @Transactional(readOnly = true)
-    public List<TransactionDTO> getUserTransactions(String username) { // Corrected: Specify List<TransactionDTO>
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+    /**
+     * Reads the stock, and so the trade price, from the database rather than the second-level cache,
+     * and refreshes the cached copy with it. The tick's eviction alone is not enough: a transaction that
+     * began before the price was written can still load the old price and put it back into the cache.
+     */
+    private Stock findStock(String symbol) {
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode previousCacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.REFRESH);
+        try {
+            return stockRepository.findBySymbol(symbol)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Stock not found: " + symbol));
+        } finally {
+            session.setCacheMode(previousCacheMode);
+        }
+    }
 
-        Portfolio portfolio = portfolioRepository.findByUser(user)
+    /**
+     * Loads a user's portfolio together with its owner, holdings and their stocks in one query, so
+     * neither the trade logic nor the PortfolioDTO built from it triggers further lazy loads.
+     */
+    private Portfolio findPortfolio(String username) {
+        return portfolioRepository.findWithHoldingsByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Portfolio not found for user: " + username));
+    }
 
-        return transactionRepository.findByPortfolio(portfolio).stream()
-                .map(TransactionDTO::new)
-                .collect(Collectors.toList());
+    // The holdings are already loaded; no need to query for the one of this stock
+    private static Optional<Holding> findHolding(Portfolio portfolio, Stock stock) {
+        return portfolio.getHoldings().stream()
+                .filter(holding -> holding.getStock().getId().equals(stock.getId()))
+                .findFirst();
+    }
+
+    /**
+     * One page of a user's transaction history, newest first; a single range scan of the
+     * (portfolio_id, transaction_time, id) index however long the history is.
+     * @param userId The ID of the user.
+     * @param cursor The nextCursor of the previous page, or null for the newest page.
+     * @param symbol Only transactions of this stock, or null for all.
+     * @param type Only transactions of this type, or null for both.
+     * @param from Only transactions at or after this time, or null.
+     * @param to Only transactions before this time, or null.
+     * @param limit Maximum number of transactions.
+     * @return The page and the cursor of the next one.
+     * @throws BadRequestException if the cursor is malformed.
+     */
+    @Workload(WorkloadClass.REPORTING)
+    @Transactional(readOnly = true)
+    public TransactionPageDTO getTransactionPage(Long userId, String cursor, String symbol, TransactionType type,
+                                                 LocalDateTime from, LocalDateTime to, int limit) {
+        LocalDateTime beforeTime = to != null ? to : LATEST_TIME;
+        long beforeId = Long.MIN_VALUE; // An exclusive "to" admits no row at that exact time
+        if (cursor != null) {
+            int separator;
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+                separator = decoded.lastIndexOf('_');
+                beforeTime = LocalDateTime.parse(decoded.substring(0, separator));
+                beforeId = Long.parseLong(decoded.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Invalid cursor.");
+            }
+        }
+
+        // One row more than asked for tells whether there is a next page
+        List<TransactionDTO> rows = transactionRepository.findPageBefore(userId, beforeTime, beforeId,
+                from != null ? from : EARLIEST_TIME, symbol, type, PageRequest.of(0, limit + 1));
+        if (rows.size() <= limit) {
+            return new TransactionPageDTO(rows, null);
+        }
+        List<TransactionDTO> page = rows.subList(0, limit);
+        TransactionDTO last = page.get(limit - 1);
+        String nextCursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((last.getTransactionTime() + "_" + last.getId()).getBytes(StandardCharsets.US_ASCII));
+        return new TransactionPageDTO(new ArrayList<>(page), nextCursor);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+package com.stocksim.stocktrading.service;
+
+import com.stocksim.stocktrading.datasource.Workload;
+import com.stocksim.stocktrading.datasource.WorkloadClass;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stocksim.stocktrading.dto.TransactionDTO;
+import com.stocksim.stocktrading.model.TransactionType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a user's complete transaction history to a stream, oldest first, as NDJSON or CSV.
+ *
+ * Rows come from a forward-only cursor over a DTO projection and are written as they arrive, so
+ * neither the result list nor managed entities build up: memory stays constant however long the
+ * history is. The read runs in its own read-only transaction on the calling thread (the servlet
+ * container's async thread for a StreamingResponseBody), holding one connection until the last row.
+ */
+@Service
+@Workload(WorkloadClass.REPORTING) // A long export holds a reporting connection, never a trading one
+public class TransactionExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionExportService.class);
+
+    /**
+     * Supported export formats.
+     */
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        public final String contentType;
+        public final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+    }
+
+    private static final String CSV_HEADER = "id,transactionTime,transactionType,stockSymbol,stockName,quantity,pricePerShare,totalAmount";
+
+    // Same projection as the history pages, in chronological order, through the same index
+    private static final String EXPORT_QUERY =
+            "select new com.stocksim.stocktrading.dto.TransactionDTO(t.id, s.symbol, s.name, t.type, t.quantity, t.pricePerShare, t.totalAmount, t.transactionTime) " +
+            "from Transaction t join t.stock s join t.portfolio p " +
+            "where p.user.id = :userId " +
+            "and t.transactionTime >= :fromTime and t.transactionTime < :toTime " +
+            "and (:symbol is null or s.symbol = :symbol) and (:type is null or t.type = :type) " +
+            "order by t.transactionTime, t.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${transactions.export.fetch-size}")
+    private int fetchSize;
+
+    /**
+     * Streams the transactions of a user matching the filters.
+     * @param userId The ID of the user.
+     * @param symbol Only transactions of this stock, or null for all.
+     * @param type Only transactions of this type, or null for both.
+     * @param from Only transactions at or after this time, or null.
+     * @param to Only transactions before this time, or null.
+     * @param format The output format.
+     * @param out Receives the export; not closed.
+     * @return The number of transactions written.
+     */
+    public long export(Long userId, String symbol, TransactionType type, LocalDateTime from, LocalDateTime to,
+                       Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        try {
+            long written = readOnly.execute(status -> {
+                TypedQuery<TransactionDTO> query = entityManager.createQuery(EXPORT_QUERY, TransactionDTO.class)
+                        .setParameter("userId", userId)
+                        .setParameter("fromTime", from != null ? from : TradeService.EARLIEST_TIME)
+                        .setParameter("toTime", to != null ? to : TradeService.LATEST_TIME)
+                        .setParameter("symbol", symbol)
+                        .setParameter("type", type)
+                        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                        .setHint(HibernateHints.HINT_READ_ONLY, true);
+                try (Stream<TransactionDTO> rows = query.getResultStream()) {
+                    return write(rows.iterator(), format, writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+            logger.debug("Exported {} transactions of user {} as {}", written, userId, format);
+            return written;
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // Typically the client went away mid-export
+        }
+    }
+
+    private long write(Iterator<TransactionDTO> rows, Format format, Writer writer) throws IOException {
+        long count = 0;
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        while (rows.hasNext()) {
+            TransactionDTO row = rows.next();
+            if (format == Format.NDJSON) {
+                writer.write(objectMapper.writeValueAsString(row));
+            } else {
+                writer.write(String.valueOf(row.getId()));
+                writer.write(',');
+                writer.write(String.valueOf(row.getTransactionTime()));
+                writer.write(',');
+                writer.write(row.getTransactionType());
+                writer.write(',');
+                writer.write(csvField(row.getStockSymbol()));
+                writer.write(',');
+                writer.write(csvField(row.getStockName()));
+                writer.write(',');
+                writer.write(String.valueOf(row.getQuantity()));
+                writer.write(',');
+                writer.write(row.getPricePerShare().toPlainString());
+                writer.write(',');
+                writer.write(row.getTotalAmount().toPlainString());
+            }
+            writer.write('\n');
+            count++;
+        }
+        return count;
+    }
+
+    // RFC 4180 quoting for fields that may contain separators, quotes or line breaks
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
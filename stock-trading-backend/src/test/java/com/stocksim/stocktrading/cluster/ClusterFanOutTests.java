@@ -0,0 +1,176 @@
+package com.stocksim.stocktrading.cluster;
+
+import com.stocksim.stocktrading.StockTradingBackendApplication;
+import com.stocksim.stocktrading.dto.ChatMessageDTO;
+import com.stocksim.stocktrading.dto.PriceTickDTO;
+import com.stocksim.stocktrading.dto.StockDTO;
+import com.stocksim.stocktrading.repository.StockRepository;
+import com.stocksim.stocktrading.service.PriceStreamService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts several application contexts in one JVM, joined by the loopback cluster bus and sharing
+ * an in-memory H2 database, and checks that frames published on one node reach every node's broker.
+ */
+class ClusterFanOutTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterFanOutTests.class);
+
+    private static final int NODE_COUNT = 3;
+
+    private static final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private static final List<BlockingQueue<Received>> brokerInboxes = new ArrayList<>();
+
+    private record Received(String destination, String body, long receivedAtNanos) {
+    }
+
+    @BeforeAll
+    static void startNodes() {
+        for (int i = 0; i < NODE_COUNT; i++) {
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(StockTradingBackendApplication.class)
+                    .profiles("h2") // The nodes share the database
+                    .run(
+                            "--test.name=cluster-fan-out",
+                            "--server.port=0",
+                            "--cluster.node-id=node-" + i,
+                            "--cluster.bus.loopback.group=cluster-fan-out-test",
+                            "--chat.search.index-dir=target/cluster-fan-out/chat-index/node-" + i, // One index per node
+                            "--logging.level.org.springframework.security=INFO");
+            BlockingQueue<Received> inbox = new LinkedBlockingQueue<>();
+            context.getBean("brokerChannel", AbstractSubscribableChannel.class).addInterceptor(new ChannelInterceptor() {
+                @Override
+                public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                    String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+                    if (destination != null && destination.startsWith("/topic/")) {
+                        inbox.add(new Received(destination, new String((byte[]) message.getPayload(), StandardCharsets.UTF_8), System.nanoTime()));
+                    }
+                    return message;
+                }
+            });
+            nodes.add(context);
+            brokerInboxes.add(inbox);
+        }
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @BeforeEach
+    void clearInboxes() {
+        brokerInboxes.forEach(BlockingQueue::clear);
+    }
+
+    @AfterEach
+    void assertNoHandlerFailed() {
+        // The bus only logs a node's handler errors, so they would not fail the test otherwise
+        for (int i = 0; i < NODE_COUNT; i++) {
+            assertEquals(0, nodes.get(i).getBean(LoopbackClusterMessageBus.class).getFailedDeliveries(),
+                    "a node failed to handle a cluster frame published by node-" + i);
+        }
+    }
+
+    @Test
+    void priceTickPublishedOnOneNodeReachesEveryNodeWithTheSameSequence() throws Exception {
+        PriceTickDTO tick = nodes.get(0).getBean(PriceStreamService.class).publish(stock("AAPL", "171.25"));
+
+        for (BlockingQueue<Received> inbox : brokerInboxes) {
+            Received received = inbox.poll(5, TimeUnit.SECONDS);
+            assertNotNull(received, "every node's broker should receive the tick");
+            assertEquals(PriceStreamService.PRICES_TOPIC, received.destination());
+            assertTrue(received.body().contains("\"sequence\":" + tick.getSequence()), received.body());
+            assertTrue(received.body().contains("\"epoch\":" + tick.getEpoch()), received.body());
+        }
+    }
+
+    @Test
+    void chatFrameBroadcastFromAnyNodeReachesEveryNode() throws Exception {
+        ChatMessageDTO message = new ChatMessageDTO();
+        message.setSenderUsername("alice");
+        message.setMessageText("hello from node-2");
+        message.setChatRoomId("public");
+
+        nodes.get(2).getBean(ClusterBroadcaster.class).broadcast("/topic/publicChat", message);
+
+        for (BlockingQueue<Received> inbox : brokerInboxes) {
+            Received received = inbox.poll(5, TimeUnit.SECONDS);
+            assertNotNull(received, "every node's broker should receive the chat frame");
+            assertEquals("/topic/publicChat", received.destination());
+            assertTrue(received.body().contains("hello from node-2"), received.body());
+        }
+    }
+
+    @Test
+    void measuresLatencyAddedByTheClusterBus() throws Exception {
+        int iterations = 500;
+        SimpMessagingTemplate localTemplate = nodes.get(0).getBean(SimpMessagingTemplate.class);
+        ClusterBroadcaster broadcaster = nodes.get(0).getBean(ClusterBroadcaster.class);
+        ChatMessageDTO payload = new ChatMessageDTO();
+        payload.setMessageText("latency probe");
+
+        long[] local = new long[iterations];
+        long[] cluster = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            localTemplate.convertAndSend("/topic/latency", payload);
+            local[i] = brokerInboxes.get(0).poll(5, TimeUnit.SECONDS).receivedAtNanos() - start;
+
+            start = System.nanoTime();
+            broadcaster.broadcast("/topic/latency", payload);
+            long slowest = 0;
+            for (BlockingQueue<Received> inbox : brokerInboxes) {
+                Received received = inbox.poll(5, TimeUnit.SECONDS);
+                assertNotNull(received);
+                slowest = Math.max(slowest, received.receivedAtNanos() - start);
+            }
+            cluster[i] = slowest;
+            brokerInboxes.forEach(BlockingQueue::clear);
+        }
+
+        Arrays.sort(local);
+        Arrays.sort(cluster);
+        logger.info("Broker hand-off latency over {} frames: local p50={}us p99={}us, cluster ({} nodes) p50={}us p99={}us",
+                iterations, local[iterations / 2] / 1000, local[iterations * 99 / 100] / 1000,
+                NODE_COUNT, cluster[iterations / 2] / 1000, cluster[iterations * 99 / 100] / 1000);
+        assertTrue(cluster[iterations / 2] < TimeUnit.MILLISECONDS.toNanos(50), "loopback fan-out should add well under 50ms");
+    }
+
+    private static StockDTO stock(String symbol, String price) {
+        StockDTO stock = new StockDTO();
+        stock.setId(nodes.get(0).getBean(StockRepository.class).findBySymbol(symbol).orElseThrow().getId());
+        stock.setSymbol(symbol);
+        stock.setName(symbol);
+        stock.setCurrentPrice(new BigDecimal(price));
+        stock.setLastUpdated(LocalDateTime.now());
+        return stock;
+    }
+}
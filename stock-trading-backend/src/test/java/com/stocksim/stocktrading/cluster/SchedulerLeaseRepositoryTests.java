@@ -0,0 +1,60 @@
+package com.stocksim.stocktrading.cluster;
+
+import com.stocksim.stocktrading.model.SchedulerLease;
+import com.stocksim.stocktrading.repository.SchedulerLeaseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the lease UPDATEs against H2 and checks that expiry is set and compared on the database's
+ * clock: the lease row ends up ttl past the database's current time, and another node can take
+ * the lease over once that time has passed, regardless of the nodes' own clocks.
+ */
+@SpringBootTest(properties = "test.name=scheduler-lease")
+@ActiveProfiles("h2")
+class SchedulerLeaseRepositoryTests {
+
+    @Autowired
+    private SchedulerLeaseRepository leaseRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void leaseExpiresByTheDatabaseClock() throws Exception {
+        String name = "lease-clock-test";
+        long ttl = 500;
+        transactionTemplate.executeWithoutResult(status -> leaseRepository.saveAndFlush(new SchedulerLease(name)));
+
+        assertEquals(1, update(() -> leaseRepository.acquire(name, "node-a", ttl)), "a new lease is free");
+        Long millisLeft = jdbcTemplate.queryForObject(
+                "select datediff('MILLISECOND', current_timestamp, expires_at) from scheduler_leases where name = ?", Long.class, name);
+        assertTrue(millisLeft > 0 && millisLeft <= 500, "expiry should be ttl past the database's time, was " + millisLeft + " ms");
+
+        assertEquals(0, update(() -> leaseRepository.acquire(name, "node-b", ttl)), "the lease is held");
+        assertEquals(1, update(() -> leaseRepository.renew(name, "node-a", 1L, ttl)));
+
+        Thread.sleep(700);
+        assertEquals(0, update(() -> leaseRepository.renew(name, "node-b", 1L, ttl)), "only the holder renews");
+        assertEquals(1, update(() -> leaseRepository.acquire(name, "node-b", ttl)), "an expired lease is taken over");
+        assertEquals(2L, leaseRepository.findFencingToken(name));
+        assertEquals(0, update(() -> leaseRepository.renew(name, "node-a", 1L, ttl)), "the old token is fenced off");
+
+        assertEquals(1, update(() -> leaseRepository.release(name, "node-b", 2L)));
+        assertEquals(1, update(() -> leaseRepository.acquire(name, "node-a", ttl)), "a released lease is free right away");
+    }
+
+    private int update(java.util.function.IntSupplier statement) {
+        return transactionTemplate.execute(status -> statement.getAsInt());
+    }
+}
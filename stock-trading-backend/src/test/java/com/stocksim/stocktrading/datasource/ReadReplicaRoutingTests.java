@@ -0,0 +1,80 @@
+package com.stocksim.stocktrading.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the application against two in-memory H2 databases, a primary and a "replica" that is
+ * refreshed from a snapshot of the primary, and checks where transactions are routed.
+ */
+@SpringBootTest(properties = "test.name=read-replica-routing")
+@ActiveProfiles({"h2", "h2-replica"})
+class ReadReplicaRoutingTests {
+
+    private static final String SNAPSHOT = "target/read-replica-routing/snapshot.sql";
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void readOnlyTransactionsUseTheReplicaOnlyWhileItIsCurrent() {
+        JdbcTemplate primary = new JdbcTemplate(primaryDataSource);
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+
+        // The replica database is still empty
+        replicaLagMonitor.check();
+        assertFalse(replicaLagMonitor.isReplicaUsable());
+        BigDecimal seededPrice = price(true);
+
+        // "Replicate" the primary, then change it
+        primary.execute("SCRIPT TO '" + SNAPSHOT + "'");
+        replica.execute("RUNSCRIPT FROM '" + SNAPSHOT + "'");
+        primary.update("update stocks set current_price = 999.0000 where symbol = 'AAPL'");
+
+        replicaLagMonitor.check();
+        assertTrue(replicaLagMonitor.isReplicaUsable(), "lag " + replicaLagMonitor.getLagMs() + " ms");
+        assertEquals(0, seededPrice.compareTo(price(true)), "read-only transactions should read the replica");
+        assertEquals(0, new BigDecimal("999").compareTo(price(false)), "read-write transactions should read the primary");
+
+        // Replication falls far behind
+        replica.update("update replica_heartbeats set beat_at = timestamp '2000-01-01 00:00:00' where id = 1");
+        replicaLagMonitor.check();
+        assertFalse(replicaLagMonitor.isReplicaUsable());
+        assertEquals(0, new BigDecimal("999").compareTo(price(true)), "a lagging replica should not be read");
+    }
+
+    private BigDecimal price(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        // Plain JDBC on the transaction's connection, past the second-level cache
+        return transaction.execute(status -> new JdbcTemplate(dataSource)
+                .queryForObject("select current_price from stocks where symbol = 'AAPL'", BigDecimal.class));
+    }
+}
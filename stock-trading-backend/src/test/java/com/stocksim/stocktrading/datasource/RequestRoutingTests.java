@@ -0,0 +1,121 @@
+package com.stocksim.stocktrading.datasource;
+
+import com.stocksim.stocktrading.model.Portfolio;
+import com.stocksim.stocktrading.model.User;
+import com.stocksim.stocktrading.repository.PortfolioRepository;
+import com.stocksim.stocktrading.repository.UserRepository;
+import com.stocksim.stocktrading.security.services.UserDetailsImpl;
+import com.stocksim.stocktrading.service.TradeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sends an HTTP request that reads a portfolio and then trades, and checks that each transaction
+ * picks its own database: the read the replica, the trade the primary. A request-scoped
+ * EntityManager (open-in-view) would keep the first connection for the whole request. Also checks
+ * that controllers do not rely on one to load associations.
+ */
+@SpringBootTest(properties = "test.name=request-routing")
+@ActiveProfiles({"h2", "h2-replica"})
+@AutoConfigureMockMvc
+@Import(RequestRoutingTests.ReadThenTradeController.class)
+class RequestRoutingTests {
+
+    private static final String SNAPSHOT = "target/request-routing/snapshot.sql";
+
+    /**
+     * A read-only call followed by a write in one request.
+     */
+    @RestController
+    static class ReadThenTradeController {
+
+        @Autowired
+        private TradeService tradeService;
+
+        @PostMapping("/api/test/read-then-buy") // Public, see WebSecurityConfig
+        public String readThenBuy(@RequestParam String username, @RequestParam String symbol) {
+            BigDecimal readCash = tradeService.getUserPortfolio(username).getCashBalance();
+            tradeService.buyStock(username, symbol, 1L);
+            return readCash.toPlainString();
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Test
+    void readOnlyCallAndTradeInOneRequestAreRoutedSeparately() throws Exception {
+        User user = userRepository.save(new User("request-routing", "request-routing@example.com", "not-a-hash"));
+        portfolioRepository.save(new Portfolio(user, new BigDecimal("100000.00")));
+        JdbcTemplate primary = new JdbcTemplate(primaryDataSource);
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        primary.execute("SCRIPT TO '" + SNAPSHOT + "'");
+        replica.execute("RUNSCRIPT FROM '" + SNAPSHOT + "'");
+        // Tells the databases apart
+        replica.update("update portfolios set cash_balance = 1.0000 where user_id = ?", user.getId());
+        replicaLagMonitor.check();
+        assertTrue(replicaLagMonitor.isReplicaUsable(), "lag " + replicaLagMonitor.getLagMs() + " ms");
+
+        mockMvc.perform(post("/api/test/read-then-buy").param("username", "request-routing").param("symbol", "AAPL"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("1.0000")); // The read went to the replica
+
+        String cashQuery = "select cash_balance from portfolios where user_id = ?";
+        assertTrue(primary.queryForObject(cashQuery, BigDecimal.class, user.getId()).compareTo(new BigDecimal("100000")) < 0,
+                "the trade should have been written to the primary");
+        assertEquals(0, BigDecimal.ONE.compareTo(replica.queryForObject(cashQuery, BigDecimal.class, user.getId())),
+                "nothing should have been written to the replica");
+    }
+
+    @Test
+    void profileLoadsTheRolesWithoutARequestWideEntityManager() throws Exception {
+        User user = userRepository.save(new User("request-profile", "request-profile@example.com", "not-a-hash"));
+        UserDetailsImpl principal = new UserDetailsImpl(user.getId(), user.getUsername(), user.getEmail(), null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+        mockMvc.perform(get("/api/user/profile").with(user(principal)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("request-profile"));
+    }
+}
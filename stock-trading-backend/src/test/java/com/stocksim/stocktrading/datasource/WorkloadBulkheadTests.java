@@ -0,0 +1,111 @@
+package com.stocksim.stocktrading.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Saturates the REPORTING pools with a single-connection limit and checks that read-only TRADING
+ * transactions still get a connection on the replica, i.e., that the replica keeps the bulkheads too.
+ */
+@SpringBootTest(properties = {
+        "test.name=workload-bulkhead",
+        "datasource.workloads.reporting.max-pool-size=1",
+        "datasource.workloads.reporting.connection-timeout-ms=250"})
+@ActiveProfiles({"h2", "h2-replica"})
+class WorkloadBulkheadTests {
+
+    private static final String SNAPSHOT = "target/workload-bulkhead/snapshot.sql";
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void saturatedReportingPoolLeavesTradingReadsOnTheReplicaAlone() throws Exception {
+        new JdbcTemplate(primaryDataSource).execute("SCRIPT TO '" + SNAPSHOT + "'");
+        new JdbcTemplate(replicaDataSource).execute("RUNSCRIPT FROM '" + SNAPSHOT + "'");
+        replicaLagMonitor.check();
+        assertTrue(replicaLagMonitor.isReplicaUsable(), "lag " + replicaLagMonitor.getLagMs() + " ms");
+
+        ExecutorService reporter = Executors.newSingleThreadExecutor();
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // A long report holds the only REPORTING connection on the replica
+            Future<String> report = reporter.submit(() -> readOnly(WorkloadClass.REPORTING, jdbc -> {
+                String database = database(jdbc);
+                holding.countDown();
+                awaitUninterruptibly(release);
+                return database;
+            }));
+            assertTrue(holding.await(10, TimeUnit.SECONDS));
+
+            // The lazy connection proxy opens the connection, and so times out, at the first statement
+            assertThrows(TransientDataAccessResourceException.class, () -> readOnly(WorkloadClass.REPORTING, WorkloadBulkheadTests::database),
+                    "a second report should time out waiting for the REPORTING pool");
+            assertEquals("WORKLOAD-BULKHEAD-REPLICA", readOnly(WorkloadClass.TRADING, WorkloadBulkheadTests::database),
+                    "a trading read should get its own replica connection");
+
+            release.countDown();
+            assertEquals("WORKLOAD-BULKHEAD-REPLICA", report.get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            reporter.shutdown();
+        }
+    }
+
+    private <T> T readOnly(WorkloadClass workloadClass, Function<JdbcTemplate, T> work) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        WorkloadClass previous = WorkloadContext.set(workloadClass);
+        try {
+            return transaction.execute(status -> work.apply(new JdbcTemplate(dataSource)));
+        } finally {
+            WorkloadContext.set(previous);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String database(JdbcTemplate jdbc) {
+        return jdbc.queryForObject("select database()", String.class);
+    }
+}
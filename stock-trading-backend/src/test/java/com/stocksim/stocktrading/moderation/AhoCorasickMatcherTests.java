@@ -0,0 +1,74 @@
+package com.stocksim.stocktrading.moderation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the automaton's matching semantics: overlapping terms reached through failure links,
+ * whole-word boundaries, case folding and characters outside the dense ASCII table.
+ */
+class AhoCorasickMatcherTests {
+
+    @Test
+    void overlappingTermsAreAllFoundThroughFailureLinks() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.build(List.of("pump and dump", "and dump it", "dump"));
+
+        // "and dump it" starts inside "pump and dump" and is only reached by following its failure link
+        assertEquals("**** *** **** ** now", matcher.mask("pump and dump it now"));
+        assertEquals("and **** later", matcher.mask("and dump later"));
+        assertTrue(matcher.matches("they said and dump it"));
+        assertFalse(matcher.matches("pump and"));
+    }
+
+    @Test
+    void termsOnlyMatchWholeWords() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.build(List.of("ass", "scam"));
+
+        assertFalse(matcher.matches("first class"));
+        assertFalse(matcher.matches("assets"));
+        assertFalse(matcher.matches("scam2"));
+        assertFalse(matcher.matches("xscam"));
+        assertTrue(matcher.matches("ass"));
+        assertTrue(matcher.matches("what a scam!"));
+        assertTrue(matcher.matches("(scam)"));
+        assertEquals("class ***, ****-free", matcher.mask("class ass, scam-free"));
+    }
+
+    @Test
+    void matchingIgnoresCaseOfTermsAndText() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.build(List.of("Free Money", "SCAM", "scam", " ", ""));
+
+        assertEquals(2, matcher.termCount(), "blank terms are ignored and case variants are one term");
+        assertTrue(matcher.matches("FREE MONEY here"));
+        assertTrue(matcher.matches("a ScAm"));
+        assertEquals("**** ***** now", matcher.mask("fReE mOnEy now"));
+    }
+
+    @Test
+    void nonAsciiCharactersFollowTheTrieAndItsFailureLinks() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.build(List.of("ab éc", "éd", "schön"));
+
+        // After "ab é" the 'd' has no edge, so the failure link must lead to "é" and on to "éd"
+        assertEquals("ab **", matcher.mask("ab éd"));
+        assertEquals("ab **", matcher.mask("ab ÉD"));
+        assertEquals("***** und ** **", matcher.mask("SCHÖN und ab éc"));
+        assertFalse(matcher.matches("schöner"));
+        assertFalse(matcher.matches("aéd"), "a letter before the term is no word boundary, ASCII or not");
+        assertTrue(matcher.matches("ü éd"));
+    }
+
+    @Test
+    void textWithoutMatchesIsReturnedUnchanged() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.build(List.of("scam"));
+        String text = "nothing to see here";
+
+        assertSame(text, matcher.mask(text));
+        assertFalse(AhoCorasickMatcher.build(List.of()).matches("scam"));
+    }
+}
@@ -0,0 +1,143 @@
+package com.stocksim.stocktrading.moderation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per chat message of blocked-term filtering, with the {@link AhoCorasickMatcher} against a
+ * per-term indexOf loop, for growing term lists. Both sides use the same semantics: case-insensitive,
+ * whole words only; the "matches" pair stops at the first hit, the "mask" pair masks every hit.
+ *
+ * Not part of the test suite. Run it with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test.classpath -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test.classpath) com.stocksim.stocktrading.moderation.ChatModerationBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatModerationBenchmark {
+
+    private static final int MESSAGES = 1024; // Power of two, cycled through with a mask
+
+    @Param({"100", "1000", "10000"})
+    private int termCount;
+
+    private AhoCorasickMatcher matcher;
+    private List<String> terms;
+    private String[] messages;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        terms = new ArrayList<>(termCount);
+        for (int i = 0; i < termCount; i++) {
+            terms.add(word(random, 4 + random.nextInt(6)));
+        }
+        matcher = AhoCorasickMatcher.build(terms);
+
+        // Chat-sized messages (about 100 characters), one in ten containing a blocked term
+        messages = new String[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 100) {
+                text.append(word(random, 2 + random.nextInt(8))).append(' ');
+            }
+            if (i % 10 == 0) {
+                text.append(terms.get(random.nextInt(termCount)));
+            }
+            messages[i] = text.toString();
+        }
+    }
+
+    @Benchmark
+    public boolean ahoCorasickMatches() {
+        return matcher.matches(nextMessage());
+    }
+
+    @Benchmark
+    public boolean indexOfLoopMatches() {
+        String text = nextMessage().toLowerCase(Locale.ROOT);
+        for (String term : terms) {
+            for (int start = text.indexOf(term); start >= 0; start = text.indexOf(term, start + 1)) {
+                if (isWholeWord(text, start, start + term.length() - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public String ahoCorasickMask() {
+        return matcher.mask(nextMessage());
+    }
+
+    @Benchmark
+    public String indexOfLoopMask() {
+        String message = nextMessage();
+        String text = message.toLowerCase(Locale.ROOT);
+        char[] masked = null;
+        for (String term : terms) {
+            for (int start = text.indexOf(term); start >= 0; start = text.indexOf(term, start + 1)) {
+                int end = start + term.length() - 1;
+                if (isWholeWord(text, start, end)) {
+                    if (masked == null) {
+                        masked = message.toCharArray();
+                    }
+                    for (int j = start; j <= end; j++) {
+                        if (!Character.isWhitespace(masked[j])) {
+                            masked[j] = '*';
+                        }
+                    }
+                }
+            }
+        }
+        return masked == null ? message : new String(masked);
+    }
+
+    // Same boundary rule as the matcher: no letter or digit directly before or after the term
+    private static boolean isWholeWord(String text, int start, int end) {
+        return (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1)))
+                && (end == text.length() - 1 || !Character.isLetterOrDigit(text.charAt(end + 1)));
+    }
+
+    private String nextMessage() {
+        return messages[next++ & (MESSAGES - 1)];
+    }
+
+    private static String word(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ChatModerationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
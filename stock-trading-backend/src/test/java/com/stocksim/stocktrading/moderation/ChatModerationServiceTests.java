@@ -0,0 +1,94 @@
+package com.stocksim.stocktrading.moderation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks the MASK and REJECT actions, the blocked-message counter, the bundled fallback list and
+ * that edits to the terms file are picked up without a restart.
+ */
+class ChatModerationServiceTests {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void maskDeliversTheMessageWithTheTermsStarredOut() throws Exception {
+        Path termsFile = writeTerms("# comment\nscam\n", Instant.parse("2026-01-01T00:00:00Z"));
+        ChatModerationService service = service(termsFile, ChatModerationService.Action.MASK);
+
+        assertEquals("what a ****", service.moderate("what a scam"));
+        assertEquals("all fine", service.moderate("all fine"));
+        assertEquals("", service.moderate(""));
+        assertNull(service.moderate(null));
+        assertEquals(1.0, blocked("mask"));
+    }
+
+    @Test
+    void rejectDropsTheWholeMessage() throws Exception {
+        Path termsFile = writeTerms("scam\n", Instant.parse("2026-01-01T00:00:00Z"));
+        ChatModerationService service = service(termsFile, ChatModerationService.Action.REJECT);
+
+        assertNull(service.moderate("what a SCAM"));
+        assertEquals("first class", service.moderate("first class"));
+        assertEquals(1.0, blocked("reject"));
+    }
+
+    @Test
+    void theBundledListIsUsedWhileTheTermsFileDoesNotExist() throws Exception {
+        ChatModerationService service = service(directory.resolve("missing.txt"), ChatModerationService.Action.MASK);
+
+        assertEquals("**** *** **** now", service.moderate("pump and dump now"));
+    }
+
+    @Test
+    void editsToTheTermsFileAreReloaded() throws Exception {
+        Path termsFile = writeTerms("scam\n", Instant.parse("2026-01-01T00:00:00Z"));
+        ChatModerationService service = service(termsFile, ChatModerationService.Action.MASK);
+        assertEquals("**** and fraud", service.moderate("scam and fraud"));
+
+        service.reloadIfChanged(); // Unchanged file: the current matcher stays
+        assertEquals("**** and fraud", service.moderate("scam and fraud"));
+
+        writeTerms("fraud\n", Instant.parse("2026-01-01T00:01:00Z"));
+        service.reloadIfChanged();
+        assertEquals("scam and *****", service.moderate("scam and fraud"));
+
+        Files.delete(termsFile); // A vanished file keeps the last list
+        service.reloadIfChanged();
+        assertEquals("scam and *****", service.moderate("scam and fraud"));
+    }
+
+    private ChatModerationService service(Path termsFile, ChatModerationService.Action action) throws Exception {
+        ChatModerationService service = new ChatModerationService();
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "termsFile", termsFile);
+        ReflectionTestUtils.setField(service, "action", action);
+        service.init();
+        return service;
+    }
+
+    // Sets the modification time explicitly, since two writes can fall within the file system's resolution
+    private Path writeTerms(String terms, Instant modified) throws Exception {
+        Path termsFile = directory.resolve("blocked-terms.txt");
+        Files.writeString(termsFile, terms);
+        Files.setLastModifiedTime(termsFile, FileTime.from(modified));
+        return termsFile;
+    }
+
+    private double blocked(String action) {
+        return meterRegistry.counter("chat.moderation.blocked", "action", action).count();
+    }
+}
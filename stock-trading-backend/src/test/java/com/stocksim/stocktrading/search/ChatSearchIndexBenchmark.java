@@ -0,0 +1,96 @@
+package com.stocksim.stocktrading.search;
+
+import com.stocksim.stocktrading.dto.ChatMessageDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query cost of the {@link ChatSearchIndex} over segments on disk: a term present in every message,
+ * and that term together with one present in about one message in a hundred.
+ *
+ * Not part of the test suite. Run it with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test.classpath -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test.classpath) com.stocksim.stocktrading.search.ChatSearchIndexBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatSearchIndexBenchmark {
+
+    private static final int FLUSH_DOCS = 5000;
+
+    @Param({"30000", "300000"})
+    private int messageCount;
+
+    private ChatSearchIndex index;
+
+    @Setup
+    public void setUp() throws Exception {
+        index = new ChatSearchIndex(Files.createTempDirectory("chat-index-benchmark").toString(), FLUSH_DOCS, 10, 4);
+        index.open();
+
+        Random random = new Random(42);
+        List<ChatMessageDTO> batch = new ArrayList<>(FLUSH_DOCS);
+        for (long id = 1; id <= messageCount; id++) {
+            String text = "market " + word(random) + " " + word(random) + (id % 100 == 0 ? " dividend" : "");
+            batch.add(new ChatMessageDTO(id, "alice", text, LocalDateTime.now(), "public"));
+            if (batch.size() == FLUSH_DOCS) {
+                index.add(batch);
+                batch = new ArrayList<>(FLUSH_DOCS);
+            }
+        }
+        index.add(batch);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        index.close();
+    }
+
+    @Benchmark
+    public List<Long> commonTerm() {
+        return index.search("market", 50);
+    }
+
+    @Benchmark
+    public List<Long> commonAndRareTerm() {
+        return index.search("market dividend", 50);
+    }
+
+    private static String word(Random random) {
+        char[] chars = new char[3 + random.nextInt(6)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ChatSearchIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,150 @@
+package com.stocksim.stocktrading.search;
+
+import com.stocksim.stocktrading.archive.ChatArchive;
+import com.stocksim.stocktrading.dto.ChatMessageDTO;
+import com.stocksim.stocktrading.repository.ChatMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the chat search index against a temporary directory and a mocked repository, and checks
+ * that a restart catches up exactly with the messages whose segments did not reach the disk, even
+ * when segments on disk hold higher ids.
+ */
+class ChatSearchIndexTests {
+
+    @TempDir
+    Path directory;
+
+    private final ChatMessageRepository repository = mock(ChatMessageRepository.class);
+
+    @Test
+    void segmentsWrittenBeforeShutdownAreNotReadAgain() throws Exception {
+        ChatSearchIndex index = open();
+        index.add(messages(1, 4));
+        index.add(messages(5, 6)); // Stays in the buffer until close()
+        assertEquals(List.of(6L, 5L, 4L, 3L, 2L, 1L), index.search("hello", 10));
+        index.close();
+
+        ChatSearchIndex restarted = open();
+        restarted.catchUp();
+        restarted.close();
+        assertEquals(List.of(6L, 5L, 4L, 3L, 2L, 1L), restarted.search("hello", 10));
+        verify(repository).findAfterId(eq(6L), any());
+    }
+
+    @Test
+    void segmentWrittenOnceItsFailureClears() throws Exception {
+        Path blocker = Files.createDirectories(temporaryFileOf(1)); // The write of segment 1 fails while this exists
+        ChatSearchIndex index = open();
+        index.add(messages(1, 4));
+        index.add(messages(5, 8));
+        Thread.sleep(300); // A few failed attempts
+        assertFalse(Files.exists(IndexSegment.fileFor(directory, 2)), "segment 2 must wait for segment 1");
+
+        Files.delete(blocker);
+        index.close();
+        assertTrue(Files.exists(IndexSegment.fileFor(directory, 1)));
+        assertTrue(Files.exists(IndexSegment.fileFor(directory, 2)));
+    }
+
+    @Test
+    void segmentsNotWrittenByShutdownAreCaughtUpFromTheDatabase() throws Exception {
+        Path blocker = Files.createDirectories(temporaryFileOf(1));
+        ChatSearchIndex index = open();
+        index.add(messages(1, 4));
+        index.add(messages(5, 8));
+        index.close(); // Segment 1 still fails, so segment 2 must not be written either
+        assertFalse(Files.exists(IndexSegment.fileFor(directory, 1)));
+        assertFalse(Files.exists(IndexSegment.fileFor(directory, 2)), "a later segment would hide the lost one from the catch-up");
+
+        Files.delete(blocker);
+        when(repository.findAfterId(eq(0L), any())).thenReturn(messages(1, 8));
+        ChatSearchIndex restarted = open();
+        restarted.catchUp();
+        restarted.close();
+        assertEquals(8, restarted.search("hello", 10).size());
+        verify(repository, never()).findAfterId(eq(4L), any());
+        verify(repository).findAfterId(eq(8L), any());
+    }
+
+    @Test
+    void bufferedIdsBelowAWrittenSegmentAreCaughtUpAfterACrash() throws Exception {
+        ChatSearchIndex crashed = open();
+        crashed.add(messages(5, 8)); // A live batch fills and freezes the buffer
+        crashed.add(messages(1, 2)); // An older batch committed late, still in the buffer
+        awaitFile(IndexSegment.fileFor(directory, 1));
+
+        // The node dies here; a restart must not resume after id 8
+        when(repository.findAfterId(eq(0L), any())).thenReturn(messages(1, 8));
+        ChatSearchIndex restarted = open();
+        restarted.catchUp();
+        restarted.close();
+        assertEquals(8, restarted.search("hello", 10).size());
+        verify(repository).findAfterId(eq(8L), any());
+        crashed.close();
+    }
+
+    @Test
+    void catchUpAccountsForGapsOnlyAmongSettledMessages() throws Exception {
+        LocalDateTime old = LocalDateTime.now().minusHours(1);
+        List<ChatMessageDTO> page = List.of(message(1, old), message(2, old), message(5, old),
+                message(7, LocalDateTime.now()), message(9, LocalDateTime.now()));
+        when(repository.findAfterId(eq(0L), any())).thenReturn(page);
+        ChatSearchIndex index = open();
+        index.catchUp();
+        index.close();
+
+        // Ids 3 and 4 will never be used; 6 may still commit
+        ChatSearchIndex restarted = open();
+        restarted.catchUp();
+        restarted.close();
+        verify(repository).findAfterId(eq(5L), any());
+        assertEquals(5, restarted.search("hello", 10).size());
+    }
+
+    private ChatSearchIndex open() throws Exception {
+        ChatSearchIndex index = new ChatSearchIndex(directory.toString(), 4, 10, 4);
+        ReflectionTestUtils.setField(index, "chatMessageRepository", repository);
+        ReflectionTestUtils.setField(index, "chatArchive", mock(ChatArchive.class));
+        index.open();
+        return index;
+    }
+
+    private Path temporaryFileOf(long generation) {
+        Path target = IndexSegment.fileFor(directory, generation);
+        return target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    private static void awaitFile(Path file) throws InterruptedException {
+        for (int i = 0; i < 100 && !Files.exists(file); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(Files.exists(file), file + " was not written");
+    }
+
+    private static List<ChatMessageDTO> messages(long firstId, long lastId) {
+        return LongStream.rangeClosed(firstId, lastId).mapToObj(id -> message(id, LocalDateTime.now())).toList();
+    }
+
+    private static ChatMessageDTO message(long id, LocalDateTime timestamp) {
+        return new ChatMessageDTO(id, "alice", "hello number " + id, timestamp, "public");
+    }
+}
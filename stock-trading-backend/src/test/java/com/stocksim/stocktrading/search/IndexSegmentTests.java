@@ -0,0 +1,79 @@
+package com.stocksim.stocktrading.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the posting list codec, the id ranges segments account for, and that segments survive a
+ * write/read round trip and a merge.
+ */
+class IndexSegmentTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void postingsRoundTripIncludingLargeGaps() {
+        long[] ids = {1, 2, 3, 130, 16_513, 2_097_280, Long.MAX_VALUE / 2};
+        byte[] encoded = PostingsCodec.encode(ids, ids.length);
+        assertArrayEquals(ids, PostingsCodec.decode(encoded, ids.length));
+        assertEquals(3, PostingsCodec.encode(ids, 3).length, "small gaps should take one byte each");
+    }
+
+    @Test
+    void idRangesCoalesceAndReportTheFirstMissingId() {
+        IdRanges ids = new IdRanges();
+        ids.add(5);
+        ids.add(1, 3);
+        ids.add(7);
+        assertArrayEquals(new long[]{1, 3, 5, 5, 7, 7}, ids.toArray());
+        assertEquals(4, ids.firstMissing());
+        ids.add(4);
+        ids.add(6);
+        assertArrayEquals(new long[]{1, 7}, ids.toArray());
+        assertEquals(8, ids.firstMissing());
+        assertEquals(1, new IdRanges().firstMissing());
+    }
+
+    @Test
+    void segmentRoundTripsThroughItsFile() throws Exception {
+        IndexSegment segment = IndexSegment.build(7, Map.of(
+                "hello", new long[]{1, 5, 9},
+                "world", new long[]{5}), 3, IdRanges.of(new long[]{1, 1, 5, 5, 9, 9}), new long[0]);
+        segment.write(directory);
+
+        IndexSegment read = IndexSegment.read(IndexSegment.fileFor(directory, 7));
+        assertEquals(7, read.generation());
+        assertEquals(3, read.docCount());
+        assertArrayEquals(new long[]{1, 1, 5, 5, 9, 9}, read.covered().toArray());
+        assertArrayEquals(new long[]{1, 5, 9}, read.postings("hello"));
+        assertArrayEquals(new long[]{5}, read.postings("world"));
+        assertArrayEquals(new long[0], read.postings("missing"));
+    }
+
+    @Test
+    void mergeUnitesPostingsAndRecordsTheReplacedGenerations() throws Exception {
+        IndexSegment first = IndexSegment.build(1, Map.of("aapl", new long[]{1, 3}, "buy", new long[]{1}), 2, IdRanges.of(new long[]{1, 3}), new long[0]);
+        IndexSegment second = IndexSegment.build(2, Map.of("aapl", new long[]{4, 6}, "sell", new long[]{6}), 2, IdRanges.of(new long[]{4, 4, 6, 6}), new long[0]);
+
+        IndexSegment merged = IndexSegment.merge(3, List.of(first, second));
+        assertEquals(4, merged.docCount());
+        assertArrayEquals(new long[]{1, 4, 6, 6}, merged.covered().toArray());
+        assertArrayEquals(new long[]{1, 3, 4, 6}, merged.postings("aapl"));
+        assertArrayEquals(new long[]{1}, merged.postings("buy"));
+        assertArrayEquals(new long[]{6}, merged.postings("sell"));
+
+        // The parts' files are recognized as leftovers once the merged segment is on disk
+        merged.write(directory);
+        IndexSegment read = IndexSegment.read(IndexSegment.fileFor(directory, 3));
+        assertEquals(Set.of(1L, 2L), IndexSegment.replacedGenerations(List.of(first, second, read)));
+    }
+}
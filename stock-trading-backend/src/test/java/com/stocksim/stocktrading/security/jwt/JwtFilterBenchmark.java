@@ -0,0 +1,116 @@
+package com.stocksim.stocktrading.security.jwt;
+
+import ch.qos.logback.classic.Level;
+import com.stocksim.stocktrading.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per request of turning a bearer token into a principal, as done by {@link AuthTokenFilter}:
+ * the previous path (signing key decoded and token parsed twice, once to validate and once for the
+ * username, before the user lookup that is no longer made), {@link JwtUtils} with the
+ * {@link VerifiedTokenCache} disabled, and with it enabled.
+ *
+ * Not part of the test suite. Run it with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test.classpath -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test.classpath) com.stocksim.stocktrading.security.jwt.JwtFilterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "AOriIfPEPgGMw8VQiVt/aEoRgL5zjZLqTDR1f7SFuz8=";
+
+    private static final int TOKENS = 256; // Power of two, cycled through with a mask
+
+    private JwtUtils uncached;
+    private JwtUtils cached;
+    private String[] tokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // The application logs every validation at DEBUG; keep logging out of the measurement
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.stocksim")).setLevel(Level.INFO);
+
+        uncached = jwtUtils(new VerifiedTokenCache(0, 300_000));
+        cached = jwtUtils(new VerifiedTokenCache(100_000, 300_000));
+
+        // One token per active client, each sent with many requests
+        tokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            UserDetailsImpl user = new UserDetailsImpl((long) i, "user" + i, null, null,
+                    List.of(new SimpleGrantedAuthority("ROLE_USER")), 0);
+            tokens[i] = uncached.generateJwtToken(user);
+        }
+    }
+
+    @Benchmark
+    public String previousFilterPath() {
+        String token = nextToken();
+        // validateJwtToken, then getUserNameFromJwtToken, each decoding the key and verifying the signature
+        Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET))).build().parse(token);
+        return Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET))).build()
+                .parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public UserDetailsImpl verifyEveryRequest() {
+        return principal(uncached);
+    }
+
+    @Benchmark
+    public UserDetailsImpl verifiedTokenCache() {
+        return principal(cached);
+    }
+
+    private UserDetailsImpl principal(JwtUtils jwtUtils) {
+        Claims claims = jwtUtils.parseVerifiedClaims(nextToken());
+        return jwtUtils.buildPrincipal(claims);
+    }
+
+    private String nextToken() {
+        return tokens[next++ & (TOKENS - 1)];
+    }
+
+    private static JwtUtils jwtUtils(VerifiedTokenCache cache) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 86_400_000);
+        ReflectionTestUtils.setField(jwtUtils, "tokenDenylist", new TokenDenylist());
+        ReflectionTestUtils.setField(jwtUtils, "verifiedTokenCache", cache);
+        jwtUtils.init();
+        return jwtUtils;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
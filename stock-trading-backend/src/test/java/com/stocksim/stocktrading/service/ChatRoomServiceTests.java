@@ -0,0 +1,107 @@
+package com.stocksim.stocktrading.service;
+
+import com.stocksim.stocktrading.cluster.ClusterBroadcaster;
+import com.stocksim.stocktrading.dto.ChatMessageDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs the room delivery lanes against a mocked broker and checks that a room flooding its lane
+ * only drops its own messages while another room on the same lane is still delivered.
+ */
+class ChatRoomServiceTests {
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final ClusterBroadcaster clusterBroadcaster = mock(ClusterBroadcaster.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ChatRoomService service;
+
+    @AfterEach
+    void shutDown() throws InterruptedException {
+        service.shutdownLanes();
+    }
+
+    @Test
+    void hotRoomDropsOnlyItsOwnMessages() throws Exception {
+        service = new ChatRoomService(1, 3); // Both rooms share the only lane
+        Consumer<Object> deliver = start();
+        join("hot", "session-1");
+        join("quiet", "session-2");
+
+        CountDownLatch brokerBlocked = new CountDownLatch(1);
+        CountDownLatch releaseBroker = new CountDownLatch(1);
+        CountDownLatch allDelivered = new CountDownLatch(5);
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            ChatMessageDTO message = invocation.getArgument(1);
+            if (delivered.isEmpty()) {
+                brokerBlocked.countDown();
+                releaseBroker.await(); // The lane is stuck on the first hot message
+            }
+            delivered.add(message.getMessageText());
+            allDelivered.countDown();
+            return null;
+        }).when(messagingTemplate).convertAndSend(anyString(), any(Object.class));
+
+        deliver.accept(message("hot", "hot-0"));
+        assertTrue(brokerBlocked.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 6; i++) {
+            deliver.accept(message("hot", "hot-" + i)); // Three fit into the room's queue, three are dropped
+        }
+        deliver.accept(message("quiet", "quiet-0"));
+        releaseBroker.countDown();
+
+        assertTrue(allDelivered.await(5, TimeUnit.SECONDS));
+        // The quiet room takes its turn right after the next hot message instead of waiting behind all of them
+        assertEquals(List.of("hot-0", "hot-1", "quiet-0", "hot-2", "hot-3"), delivered);
+        assertEquals(3.0, meterRegistry.counter("chat.rooms.lane.rejected").count());
+    }
+
+    private Consumer<Object> start() {
+        ReflectionTestUtils.setField(service, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(service, "clusterBroadcaster", clusterBroadcaster);
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        service.registerClusterHandler();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<Object>> handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(clusterBroadcaster).registerHandler(eq("cluster/chat-message"), handler.capture());
+        return handler.getValue();
+    }
+
+    private void join(String roomId, String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setDestination(ChatRoomService.topicFor(roomId));
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-" + roomId);
+        service.onSubscribe(new SessionSubscribeEvent(this, MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders())));
+    }
+
+    private static ChatMessageDTO message(String roomId, String text) {
+        return new ChatMessageDTO(null, "trader", text, LocalDateTime.now(), roomId);
+    }
+}
@@ -0,0 +1,105 @@
+package com.stocksim.stocktrading.service;
+
+import com.stocksim.stocktrading.dto.PortfolioDTO;
+import com.stocksim.stocktrading.model.Portfolio;
+import com.stocksim.stocktrading.model.Stock;
+import com.stocksim.stocktrading.model.User;
+import com.stocksim.stocktrading.repository.PortfolioRepository;
+import com.stocksim.stocktrading.repository.StockRepository;
+import com.stocksim.stocktrading.repository.UserRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that reading a portfolio and trading take a fixed number of SQL statements however many
+ * holdings the portfolio has, i.e., that holdings and their stocks are not loaded one by one.
+ */
+@SpringBootTest(properties = {
+        "test.name=trade-query-count",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.stocksim.stocktrading.service.TradeServiceQueryCountTests$StatementCounter"})
+@ActiveProfiles("h2")
+class TradeServiceQueryCountTests {
+
+    /**
+     * Counts the statements Hibernate prepares on the current thread, leaving out those of
+     * scheduled jobs running at the same time.
+     */
+    public static class StatementCounter implements StatementInspector {
+
+        private static final ThreadLocal<int[]> count = ThreadLocal.withInitial(() -> new int[1]);
+
+        @Override
+        public String inspect(String sql) {
+            count.get()[0]++;
+            return sql;
+        }
+
+        static void reset() {
+            count.get()[0] = 0;
+        }
+
+        static int get() {
+            return count.get()[0];
+        }
+    }
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Test
+    void portfolioReadsAndTradesDoNotGrowWithHoldings() {
+        User user = userRepository.save(new User("query-count", "query-count@example.com", "not-a-hash"));
+        portfolioRepository.save(new Portfolio(user, new BigDecimal("1000000.00")));
+        List<Stock> stocks = stockRepository.findAll();
+        assertTrue(stocks.size() >= 3, "the data loader should have seeded several stocks");
+
+        List<Integer> newHoldingBuys = new ArrayList<>();
+        List<Integer> repeatBuys = new ArrayList<>();
+        List<Integer> partialSells = new ArrayList<>();
+        List<Integer> reads = new ArrayList<>();
+        for (Stock stock : stocks) {
+            newHoldingBuys.add(statements(() -> tradeService.buyStock("query-count", stock.getSymbol(), 2L)));
+            repeatBuys.add(statements(() -> tradeService.buyStock("query-count", stock.getSymbol(), 2L)));
+            partialSells.add(statements(() -> tradeService.sellStock("query-count", stock.getSymbol(), 1L)));
+            reads.add(statements(() -> tradeService.getUserPortfolio("query-count")));
+        }
+
+        PortfolioDTO portfolio = tradeService.getUserPortfolio("query-count");
+        assertEquals(stocks.size(), portfolio.getHoldings().size());
+        assertEquals(1, reads.get(0), "a portfolio read should be a single query");
+        assertConstant("portfolio read", reads);
+        assertConstant("buy opening a holding", newHoldingBuys);
+        assertConstant("buy adding to a holding", repeatBuys);
+        assertConstant("partial sell", partialSells);
+    }
+
+    private static int statements(Runnable call) {
+        StatementCounter.reset();
+        call.run();
+        return StatementCounter.get();
+    }
+
+    private static void assertConstant(String operation, List<Integer> counts) {
+        assertTrue(counts.stream().distinct().count() == 1,
+                "statements per " + operation + " should not depend on the number of holdings: " + counts);
+    }
+}
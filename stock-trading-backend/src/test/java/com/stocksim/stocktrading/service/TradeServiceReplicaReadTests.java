@@ -0,0 +1,98 @@
+package com.stocksim.stocktrading.service;
+
+import com.stocksim.stocktrading.datasource.ReplicaLagMonitor;
+import com.stocksim.stocktrading.dto.PortfolioDTO;
+import com.stocksim.stocktrading.dto.PriceTickDTO;
+import com.stocksim.stocktrading.dto.StockDTO;
+import com.stocksim.stocktrading.event.PriceTickEvent;
+import com.stocksim.stocktrading.model.Portfolio;
+import com.stocksim.stocktrading.model.Stock;
+import com.stocksim.stocktrading.model.User;
+import com.stocksim.stocktrading.repository.PortfolioRepository;
+import com.stocksim.stocktrading.repository.StockRepository;
+import com.stocksim.stocktrading.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the application against a primary and a "replica" H2 database, and checks that a portfolio
+ * read on the replica, which trails the primary, cannot put an outdated price back into the
+ * second-level cache for the next trade.
+ */
+@SpringBootTest(properties = "test.name=trade-replica-read")
+@ActiveProfiles({"h2", "h2-replica"})
+class TradeServiceReplicaReadTests {
+
+    private static final String SNAPSHOT = "target/trade-replica-read/snapshot.sql";
+    private static final BigDecimal INITIAL_CASH = new BigDecimal("100000.00");
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void tradeAfterALaggingPortfolioReadUsesTheTickedPrice() {
+        portfolio("holder");
+        portfolio("buyer");
+        tradeService.buyStock("holder", "AAPL", 1L);
+        Stock stock = stockRepository.findBySymbol("AAPL").orElseThrow();
+        BigDecimal oldPrice = stock.getCurrentPrice();
+
+        // "Replicate" the primary, then have another node write and tick a price the replica has not received yet
+        JdbcTemplate primary = new JdbcTemplate(primaryDataSource);
+        primary.execute("SCRIPT TO '" + SNAPSHOT + "'");
+        new JdbcTemplate(replicaDataSource).execute("RUNSCRIPT FROM '" + SNAPSHOT + "'");
+        replicaLagMonitor.check();
+        assertTrue(replicaLagMonitor.isReplicaUsable(), "lag " + replicaLagMonitor.getLagMs() + " ms");
+        BigDecimal newPrice = oldPrice.add(new BigDecimal("100.0000"));
+        primary.update("update stocks set current_price = ? where id = ?", newPrice, stock.getId());
+        stock.setCurrentPrice(newPrice);
+        eventPublisher.publishEvent(new PriceTickEvent(new PriceTickDTO(new StockDTO(stock), 1, 1)));
+
+        // Loads the holder's stock from the replica, with the old price
+        PortfolioDTO read = tradeService.getUserPortfolio("holder");
+        assertEquals(0, oldPrice.compareTo(read.getHoldings().get(0).getCurrentPrice()), "the portfolio should be read on the replica");
+
+        // The buyer holds no AAPL, so the trade finds the stock through the cached symbol lookup
+        PortfolioDTO bought = tradeService.buyStock("buyer", "AAPL", 1L);
+        assertEquals(0, newPrice.compareTo(INITIAL_CASH.subtract(bought.getCashBalance())), "the trade should use the ticked price");
+    }
+
+    private void portfolio(String username) {
+        User user = userRepository.save(new User(username, username + "@example.com", "not-a-hash"));
+        portfolioRepository.save(new Portfolio(user, INITIAL_CASH));
+    }
+}
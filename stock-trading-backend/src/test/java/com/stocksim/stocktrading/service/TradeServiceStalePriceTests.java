@@ -0,0 +1,108 @@
+package com.stocksim.stocktrading.service;
+
+import com.stocksim.stocktrading.dto.PortfolioDTO;
+import com.stocksim.stocktrading.dto.PriceTickDTO;
+import com.stocksim.stocktrading.dto.StockDTO;
+import com.stocksim.stocktrading.event.PriceTickEvent;
+import com.stocksim.stocktrading.model.Portfolio;
+import com.stocksim.stocktrading.model.Stock;
+import com.stocksim.stocktrading.model.User;
+import com.stocksim.stocktrading.repository.PortfolioRepository;
+import com.stocksim.stocktrading.repository.StockRepository;
+import com.stocksim.stocktrading.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a trade pays the ticked price even after a transaction that began before the price was
+ * written has put the old price back into the second-level cache.
+ */
+@SpringBootTest(properties = "test.name=trade-stale-price")
+@ActiveProfiles("h2")
+class TradeServiceStalePriceTests {
+
+    private static final BigDecimal INITIAL_CASH = new BigDecimal("100000.00");
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void tradeAfterAnOlderSnapshotRecachedTheOldPriceUsesTheTickedPrice() throws Exception {
+        User user = userRepository.save(new User("stale-price", "stale-price@example.com", "not-a-hash"));
+        portfolioRepository.save(new Portfolio(user, INITIAL_CASH));
+        Stock stock = stockRepository.findBySymbol("AAPL").orElseThrow(); // Caches the symbol lookup
+        BigDecimal oldPrice = stock.getCurrentPrice();
+        BigDecimal newPrice = oldPrice.add(new BigDecimal("100.0000"));
+
+        // A transaction takes its snapshot before the price is written and loads the stock after the tick
+        CountDownLatch snapshotTaken = new CountDownLatch(1);
+        CountDownLatch ticked = new CountDownLatch(1);
+        TransactionTemplate olderTransaction = new TransactionTemplate(transactionManager);
+        olderTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        CompletableFuture<BigDecimal> olderRead = CompletableFuture.supplyAsync(() -> olderTransaction.execute(status -> {
+            new JdbcTemplate(dataSource).queryForObject("select count(*) from stocks", Long.class);
+            snapshotTaken.countDown();
+            awaitUninterruptibly(ticked);
+            return stockRepository.findById(stock.getId()).orElseThrow().getCurrentPrice();
+        }));
+
+        assertTrue(snapshotTaken.await(10, TimeUnit.SECONDS));
+        // Another node writes the price; its tick evicts the cached stock here
+        new JdbcTemplate(dataSource).update("update stocks set current_price = ? where id = ?", newPrice, stock.getId());
+        stock.setCurrentPrice(newPrice);
+        eventPublisher.publishEvent(new PriceTickEvent(new PriceTickDTO(new StockDTO(stock), 1, 1)));
+        ticked.countDown();
+
+        assertEquals(0, oldPrice.compareTo(olderRead.get(10, TimeUnit.SECONDS)), "the older snapshot should load the old price");
+        assertTrue(entityManagerFactory.getCache().contains(Stock.class, stock.getId()), "the old price should be cached again");
+
+        PortfolioDTO bought = tradeService.buyStock("stale-price", "AAPL", 1L);
+        assertEquals(0, newPrice.compareTo(INITIAL_CASH.subtract(bought.getCashBalance())), "the trade should use the ticked price");
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -33,11 +33,11 @@ const AnalyticsPage = () => {
         const portfolioResponse = await portfolioService.getMyPortfolio();
         setPortfolio(portfolioResponse.data);
 
-        const transactionsResponse = await portfolioService.getMyTransactions();
-        setTransactions(transactionsResponse.data);
+        const allTransactions = await portfolioService.getAllMyTransactions();
+        setTransactions(allTransactions);
 
         // Process data for charting
-        processChartData(portfolioResponse.data, transactionsResponse.data);
+        processChartData(portfolioResponse.data, allTransactions);
       } catch (error) {
         const resMessage =
           (error.response &&
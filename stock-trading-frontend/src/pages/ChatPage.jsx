@@ -13,6 +13,7 @@ const ChatPage = () => {
   const [newMessage, setNewMessage] = useState('');
   const [messageError, setMessageError] = useState('');
   const [stompStatus, setStompStatus] = useState('disconnected'); // 'disconnected', 'connecting', 'connected'
+  const [onlineUsers, setOnlineUsers] = useState([]); // Usernames connected to chat on any server node
   const stompClient = useRef(null);
   const messagesEndRef = useRef(null); // Ref for auto-scrolling to bottom
   const reconnectTimeout = useRef(null); // Ref for reconnection timeout
@@ -71,10 +72,10 @@ const ChatPage = () => {
         setMessageError('');
       }
 
-      // Subscribe to the public chat topic
+      // Subscribe to the room's own topic, so only this room's messages are received
       setTimeout(() => {
         if (stompClient.current && stompClient.current.connected) {
-          stompClient.current.subscribe('/topic/publicChat', (message) => {
+          stompClient.current.subscribe(`/topic/chat.${chatRoomId}`, (message) => {
             const receivedMessage = JSON.parse(message.body);
             console.log('Received chat message:', receivedMessage);
             if (isMounted.current) {
@@ -90,6 +91,26 @@ const ChatPage = () => {
             }
           });
 
+          // Presence changes arrive as batched diffs; load the full list once, then apply them
+          stompClient.current.subscribe('/topic/presence', (message) => {
+            const diff = JSON.parse(message.body);
+            if (isMounted.current) {
+              setOnlineUsers(prevUsers => {
+                const users = new Set(prevUsers);
+                diff.offline.forEach(username => users.delete(username));
+                diff.online.forEach(username => users.add(username));
+                return [...users].sort();
+              });
+            }
+          });
+          chatService.getOnlineUsers()
+            .then(response => {
+              if (isMounted.current) {
+                setOnlineUsers(response.data);
+              }
+            })
+            .catch(error => console.error('Error fetching online users:', error));
+
           // Send a message to the server that the user has joined
           setTimeout(() => {
             if (currentUser && stompClient.current && stompClient.current.connected) {
@@ -260,11 +281,17 @@ const ChatPage = () => {
         </span>
       </div>
 
+      {onlineUsers.length > 0 && (
+        <div className="text-center mb-4 text-sm" style={{ color: '#D1D5DB' }}> {/* text-dark_secondary */}
+          Online ({onlineUsers.length}): {onlineUsers.join(', ')}
+        </div>
+      )}
+
       {/* Message Display Area */}
       <div className="flex-grow overflow-y-auto p-4 rounded-lg mb-4 space-y-3 custom-scrollbar"
         style={{ backgroundColor: '#1F2937', border: '1px solid #4B5563' }}> {/* background-dark, border-dark */}
         {messages.length > 0 ? (
-          messages.map((msg) => {
+          messages.map((msg, index) => {
             const isSender = msg.senderUsername === currentUser?.username;
             const isSystemMessage = msg.senderUsername === 'System';
 
@@ -289,7 +316,8 @@ const ChatPage = () => {
             }
 
             return (
-              <div key={msg.id} className={`flex ${isSender ? 'justify-end' : 'justify-start'} ${isSystemMessage ? 'justify-center' : ''}`}>
+              // Live messages are broadcast before they are persisted, so they may not have an id yet
+              <div key={msg.id ?? `${msg.senderUsername}-${msg.timestamp}-${index}`} className={`flex ${isSender ? 'justify-end' : 'justify-start'} ${isSystemMessage ? 'justify-center' : ''}`}>
                 <div className={messageBubbleClasses}>
                   {!isSystemMessage && (
                     <div className="mb-1">
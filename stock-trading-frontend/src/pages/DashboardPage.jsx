@@ -4,6 +4,7 @@ import stockService from '../services/stock.service'; // Service for fetching st
 import SockJS from 'sockjs-client'; // For WebSocket connection
 import Stomp from 'stompjs'; // STOMP client for WebSocket messaging
 import authService from '../services/auth.service'; // Import authService to get current user/token
+import priceStreamService from '../services/price-stream.service'; // Price tick subscription with resume on reconnect
 import { Link } from 'react-router-dom';
 
 /**
@@ -20,6 +21,8 @@ const DashboardPage = () => {
   // but manage its connection/disconnection explicitly within useEffect.
   const stompClientRef = useRef(null);
   const isMounted = useRef(false); // To track if the component is mounted
+  const priceCursorRef = useRef(null); // Epoch/sequence of the last applied price tick, kept across reconnects
+  const reconnectTimerRef = useRef(null);
 
   // Enable STOMP.js debug logs
   // This needs to be set before Stomp.over is called.
@@ -102,9 +105,8 @@ const DashboardPage = () => {
               setMessage(''); // Clear any previous error messages
             }
 
-            // Subscribe to the public price updates topic
-            stompClientRef.current.subscribe('/topic/prices', (wsMessage) => {
-              const updatedStock = JSON.parse(wsMessage.body);
+            // Subscribe to the public price updates; after a reconnect this first catches up on missed ticks
+            priceStreamService.subscribePrices(stompClientRef.current, priceCursorRef, (updatedStock) => {
               console.log('Received stock update:', updatedStock);
               if (isMounted.current) {
                 setStocks(prevStocks =>
@@ -115,12 +117,6 @@ const DashboardPage = () => {
                   )
                 );
               }
-            }, (error) => { // Error callback for subscribe
-              console.error('WebSocket subscription error:', error);
-              if (isMounted.current) {
-                setWsStatus('Subscription Error');
-                setMessage('WebSocket subscription failed. Real-time updates unavailable.');
-              }
             });
 
             // --- TEST: Send a message to a test endpoint on backend ---
@@ -145,8 +141,9 @@ const DashboardPage = () => {
           // Only update status if it wasn't already explicitly set to 'Connected'
           if (!stompClientRef.current || !stompClientRef.current.connected) {
               setWsStatus('Disconnected');
-              setMessage('WebSocket connection closed. Real-time updates unavailable.');
+              setMessage('WebSocket connection closed. Reconnecting...');
           }
+          reconnectTimerRef.current = setTimeout(connectWebSocket, priceStreamService.RECONNECT_DELAY_MS);
         }
       };
 
@@ -165,6 +162,7 @@ const DashboardPage = () => {
     return () => {
       console.log("DashboardPage cleanup running...");
       isMounted.current = false; // Mark component as unmounted
+      clearTimeout(reconnectTimerRef.current);
       if (stompClientRef.current) {
         if (stompClientRef.current.connected) {
           console.log('Disconnecting STOMP client.');
@@ -5,6 +5,7 @@ import SockJS from 'sockjs-client'; // For WebSocket connection
 import Stomp from 'stompjs'; // STOMP client for WebSocket messaging
 import BigDecimal from 'js-big-decimal'; // Corrected import
 import authService from '../services/auth.service'; // Import authService to get current user/token
+import priceStreamService from '../services/price-stream.service'; // Price tick subscription with resume on reconnect
 
 // Diagnostic log for BigDecimal's toString method (this will show if the module's toString is native)
 console.log("BigDecimal.prototype.toString (from module):", BigDecimal.prototype.toString);
@@ -18,12 +19,16 @@ console.log("BigDecimal.prototype.toString (from module):", BigDecimal.prototype
 const PortfolioPage = () => {
   const [portfolio, setPortfolio] = useState(null);
   const [transactions, setTransactions] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null); // Cursor of the next (older) page of transactions
   const [message, setMessage] = useState('');
   const [wsStatus, setWsStatus] = useState('Connecting...'); // State for WebSocket status
+  const [valuation, setValuation] = useState(null); // Latest server-side valuation from /user/queue/portfolio
 
   // Use a ref to hold the STOMP client to persist across re-renders
   const stompClientRef = useRef(null);
   const isMounted = useRef(false); // To track if the component is mounted
+  const priceCursorRef = useRef(null); // Epoch/sequence of the last applied price tick, kept across reconnects
+  const reconnectTimerRef = useRef(null);
 
   // Enable STOMP.js debug logs
   Stomp.WebSocketClass = SockJS;
@@ -60,6 +65,7 @@ const PortfolioPage = () => {
             })),
           };
           setPortfolio(processedPortfolio);
+          setValuation(null); // Recomputed from the fresh holdings until the next push
           console.log("Portfolio state updated:", processedPortfolio);
         }
       })
@@ -78,17 +84,27 @@ const PortfolioPage = () => {
       });
 
     console.log("Fetching transactions data...");
-    portfolioService.getMyTransactions()
+    loadTransactions(null);
+  };
+
+  /**
+   * Loads one page of transactions; without a cursor the newest page replaces the list,
+   * with one the older page is appended.
+   * @param {string|null} cursor - The nextCursor of the last loaded page, or null.
+   */
+  const loadTransactions = (cursor) => {
+    portfolioService.getMyTransactions(cursor ? { cursor } : {})
       .then(response => {
         console.log("Transactions API response:", response.data);
         if (isMounted.current) { // Only update state if component is still mounted
           // Convert BigDecimal-like strings from backend to BigDecimal objects for transactions
-          const processedTransactions = response.data.map(tx => ({
+          const processedTransactions = response.data.transactions.map(tx => ({
             ...tx,
             pricePerShare: new BigDecimal(tx.pricePerShare ? tx.pricePerShare.toString() : '0'),
             totalAmount: new BigDecimal(tx.totalAmount ? tx.totalAmount.toString() : '0'),
           }));
-          setTransactions(processedTransactions);
+          setTransactions(prev => (cursor ? [...prev, ...processedTransactions] : processedTransactions));
+          setNextCursor(response.data.nextCursor);
           console.log("Transactions state updated:", processedTransactions);
         }
       })
@@ -156,8 +172,8 @@ const PortfolioPage = () => {
           setMessage(''); // Clear any previous error messages
         }
 
-        stompClientRef.current.subscribe('/topic/prices', (wsMessage) => {
-          const updatedStock = JSON.parse(wsMessage.body);
+        // After a reconnect this first catches up on the ticks missed meanwhile
+        priceStreamService.subscribePrices(stompClientRef.current, priceCursorRef, (updatedStock) => {
           console.log('Received stock update for portfolio:', updatedStock);
           if (isMounted.current) {
             setPortfolio(prevPortfolio => {
@@ -176,6 +192,21 @@ const PortfolioPage = () => {
             });
           }
         });
+
+        // Live valuation of this user's portfolio, pushed on every tick of a held symbol and after every trade
+        stompClientRef.current.subscribe('/user/queue/portfolio', (wsMessage) => {
+          const update = JSON.parse(wsMessage.body);
+          console.log('Received portfolio valuation:', update);
+          if (!isMounted.current) return;
+          if (!update.changedSymbol) {
+            fetchPortfolioData(); // A trade (possibly from another tab) changed the holdings themselves
+          } else {
+            setValuation({
+              marketValue: new BigDecimal(update.marketValue.toString()),
+              totalValue: new BigDecimal(update.totalValue.toString()),
+            });
+          }
+        });
       }, (error) => {
         console.error('STOMP connection error for Portfolio:', error);
         setWsStatus('STOMP Connection Failed'); // Update WebSocket status
@@ -199,6 +230,9 @@ const PortfolioPage = () => {
             setMessage('WebSocket connection closed. Real-time updates unavailable.');
           }
         }
+        if (isMounted.current) {
+          reconnectTimerRef.current = setTimeout(connectWebSocket, priceStreamService.RECONNECT_DELAY_MS);
+        }
       };
 
       socket.onerror = (error) => {
@@ -215,6 +249,7 @@ const PortfolioPage = () => {
     return () => {
       console.log("PortfolioPage cleanup running...");
       isMounted.current = false;
+      clearTimeout(reconnectTimerRef.current);
       if (stompClientRef.current) {
         if (stompClientRef.current.connected) {
           console.log('Disconnecting STOMP client for Portfolio.');
@@ -240,6 +275,10 @@ const PortfolioPage = () => {
     return portfolio.cashBalance.add(holdingsValue);
   }, [portfolio]);
 
+  // Holdings and total value as last pushed by the server, falling back to the client-side sums
+  const holdingsValue = valuation ? valuation.marketValue : totalPortfolioValue.subtract(portfolio ? portfolio.cashBalance : new BigDecimal('0'));
+  const totalValue = valuation ? valuation.totalValue : totalPortfolioValue;
+
   // Helper to calculate unrealized P&L for a holding
   const calculateUnrealizedPnL = (holding) => {
     const totalCurrentValue = holding.currentPrice.multiply(new BigDecimal(holding.quantity.toString()));
@@ -289,15 +328,14 @@ const PortfolioPage = () => {
             <div>
               <h3 className="text-xl font-semibold text-[#4ade80] mb-2">Total Holdings Value</h3> {/* Replaced text-primary with text-[#4ade80] */}
               <p className="text-3xl font-bold text-gray-200"> {/* Replaced text-text-dark with text-gray-200 */}
-                {/* Dynamically calculate total holdings value */}
                 {/* FIX: Use parseFloat and toFixed on the .value property */}
-                ${parseFloat(portfolio.holdings.reduce((sum, h) => sum.add(h.currentPrice.multiply(new BigDecimal(h.quantity.toString()))), new BigDecimal('0')).value).toFixed(2)}
+                ${parseFloat(holdingsValue.value).toFixed(2)}
               </p>
             </div>
             <div>
               <h3 className="xl font-semibold text-[#4ade80] mb-2">Total Portfolio Value</h3> {/* Replaced text-primary with text-[#4ade80] */}
               {/* FIX: Use parseFloat and toFixed on the .value property */}
-              <p className="text-3xl font-bold text-gray-200">${parseFloat(totalPortfolioValue.value).toFixed(2)}</p> {/* Replaced text-text-dark with text-gray-200 */}
+              <p className="text-3xl font-bold text-gray-200">${parseFloat(totalValue.value).toFixed(2)}</p> {/* Replaced text-text-dark with text-gray-200 */}
             </div>
           </div>
 
@@ -370,7 +408,18 @@ const PortfolioPage = () => {
 
           {/* Transaction History */}
           <div className="p-6 bg-gray-700 rounded-lg shadow-md border border-gray-600"> {/* Replaced bg-background-light and border-border-dark with gray shades */}
-            <h3 className="text-xl font-semibold text-[#4ade80] mb-4">Transaction History</h3> {/* Replaced text-primary with text-[#4ade80] */}
+            <div className="flex justify-between items-center mb-4">
+              <h3 className="text-xl font-semibold text-[#4ade80]">Transaction History</h3> {/* Replaced text-primary with text-[#4ade80] */}
+              {transactions.length > 0 && (
+                <button
+                  onClick={() => portfolioService.downloadTransactions('csv')
+                    .catch(error => console.error('Error exporting transactions:', error))}
+                  className="px-3 py-1 text-sm bg-gray-600 text-gray-200 rounded-md hover:bg-gray-500 transition-colors duration-150"
+                >
+                  Export CSV
+                </button>
+              )}
+            </div>
             {transactions.length > 0 ? (
               <div className="overflow-x-auto">
                 <table className="min-w-full divide-y divide-gray-600"> {/* Replaced divide-border-dark with divide-gray-600 */}
@@ -423,6 +472,16 @@ const PortfolioPage = () => {
                     ))}
                   </tbody>
                 </table>
+                {nextCursor && (
+                  <div className="text-center mt-4">
+                    <button
+                      onClick={() => loadTransactions(nextCursor)}
+                      className="px-4 py-2 bg-gray-600 text-gray-200 rounded-md hover:bg-gray-500 transition-colors duration-150"
+                    >
+                      Load older transactions
+                    </button>
+                  </div>
+                )}
               </div>
             ) : (
               <p className="text-gray-400 text-center py-4">No transactions recorded yet.</p> // Replaced text-text-dark_secondary with text-gray-400
@@ -5,6 +5,7 @@ import tradeService from '../services/trade.service'; // Service for placing tra
 import SockJS from 'sockjs-client'; // For WebSocket connection
 import Stomp from 'stompjs'; // STOMP client for WebSocket messaging
 import authService from '../services/auth.service'; // Import authService to get current user/token
+import priceStreamService from '../services/price-stream.service'; // Price tick subscription with resume on reconnect
 
 /**
  * TradePage component for buying and selling stocks.
@@ -21,6 +22,8 @@ const TradePage = () => {
 
   const stompClient = useRef(null); // Ref to hold the STOMP client instance
   const isMounted = useRef(false); // To track if the component is mounted
+  const priceCursorRef = useRef(null); // Epoch/sequence of the last applied price tick, kept across reconnects
+  const reconnectTimerRef = useRef(null);
 
   // Enable STOMP.js debug logs
   Stomp.WebSocketClass = SockJS; // Ensure Stomp uses SockJS
@@ -78,9 +81,8 @@ const TradePage = () => {
           setMessage(''); // Clear any previous error messages
         }
 
-        // Subscribe to the public stock price updates topic
-        stompClient.current.subscribe('/topic/prices', (wsMessage) => {
-          const updatedStock = JSON.parse(wsMessage.body);
+        // Subscribe to the public stock price updates; after a reconnect this first catches up on missed ticks
+        priceStreamService.subscribePrices(stompClient.current, priceCursorRef, (updatedStock) => {
           console.log('Received stock update:', updatedStock);
           if (isMounted.current) { // Only update state if component is still mounted
             // If the updated stock is the one currently selected, update its price
@@ -118,6 +120,9 @@ const TradePage = () => {
             setMessage('WebSocket connection closed. Real-time updates unavailable.');
           }
         }
+        if (isMounted.current) {
+          reconnectTimerRef.current = setTimeout(connectWebSocket, priceStreamService.RECONNECT_DELAY_MS);
+        }
       };
 
       socket.onerror = (error) => {
@@ -139,6 +144,7 @@ const TradePage = () => {
     return () => {
       console.log("TradePage cleanup running...");
       isMounted.current = false; // Mark component as unmounted
+      clearTimeout(reconnectTimerRef.current);
       if (stompClient.current) {
         if (stompClient.current.connected) {
           console.log('Disconnecting STOMP client for Trade.');
@@ -62,9 +62,14 @@ const register = (username, email, password) => {
 
 /**
  * Logs out the current user.
- * Removes user data from local storage.
+ * Asks the backend to revoke the token, then removes user data from local storage.
+ * The local logout does not wait for (or depend on) the backend call.
  */
 const logout = () => {
+  const headers = authHeader();
+  if (headers.Authorization) {
+    axios.post(AUTH_API_URL + 'signout', {}, { headers }).catch(() => {});
+  }
   localStorage.removeItem('user');
 };
 
@@ -103,14 +108,22 @@ const updateEmail = (newEmail, currentPassword) => {
  * @param {string} currentPassword - The user's current password.
  * @param {string} newPassword - The new password.
  * @param {string} confirmNewPassword - Confirmation of the new password.
- * @returns {Promise} - A promise resolving with a success message.
+ * The change revokes the current token, so the fresh one returned by the backend is stored.
+ * @returns {Promise} - A promise resolving with the new token and user details.
  */
 const changePassword = (currentPassword, newPassword, confirmNewPassword) => {
-  return axios.put(
-    USER_API_URL + 'profile/password',
-    { currentPassword, newPassword, confirmNewPassword },
-    { headers: authHeader() }
-  );
+  return axios
+    .put(
+      USER_API_URL + 'profile/password',
+      { currentPassword, newPassword, confirmNewPassword },
+      { headers: authHeader() }
+    )
+    .then((response) => {
+      if (response.data.token) {
+        localStorage.setItem('user', JSON.stringify(response.data));
+      }
+      return response;
+    });
 };
 
 
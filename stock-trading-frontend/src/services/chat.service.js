@@ -5,16 +5,30 @@ import authHeader from './auth-header'; // Assuming you have an auth-header serv
 const API_URL = 'http://localhost:8080/api/chat/';
 
 /**
- * Fetches the recent chat history for a given chat room.
+ * Fetches a page of chat history for a given chat room, oldest message first.
  * @param {string} chatRoomId - The ID of the chat room (e.g., 'public').
+ * @param {number} [before] - Id of the oldest message already loaded; omit for the newest page.
+ * @param {number} [limit] - Page size (server default 50).
  * @returns {Promise} - A promise resolving with an array of chat message objects.
  */
-const getChatHistory = (chatRoomId = 'public') => {
-  return axios.get(API_URL + 'history/' + chatRoomId, { headers: authHeader() });
+const getChatHistory = (chatRoomId = 'public', before, limit) => {
+  const params = {};
+  if (before != null) params.before = before;
+  if (limit != null) params.limit = limit;
+  return axios.get(API_URL + 'history/' + chatRoomId, { headers: authHeader(), params });
+};
+
+/**
+ * Fetches the users currently connected to chat; later changes arrive as diffs on /topic/presence.
+ * @returns {Promise} - A promise resolving with a sorted array of usernames.
+ */
+const getOnlineUsers = () => {
+  return axios.get(API_URL + 'presence', { headers: authHeader() });
 };
 
 const chatService = {
   getChatHistory,
+  getOnlineUsers,
 };
 
 export default chatService;
\ No newline at end of file
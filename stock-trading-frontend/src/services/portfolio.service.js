@@ -16,19 +16,56 @@ const getMyPortfolio = () => {
 };
 
 /**
- * Fetches the current user's transaction history.
+ * Fetches one page of the current user's transaction history, newest first.
  * Requires authentication.
- * @returns {Promise} - A promise resolving with an array of transaction objects.
+ * @param {object} params - Optional cursor (nextCursor of the previous page), symbol, type, from, to and limit.
+ * @returns {Promise} - A promise resolving with { transactions, nextCursor }; nextCursor is null on the last page.
  */
-const getMyTransactions = () => {
+const getMyTransactions = (params = {}) => {
   // Sends a GET request to the backend transactions endpoint with authentication headers
-  return axios.get(API_URL + 'transactions', { headers: authHeader() });
+  return axios.get(API_URL + 'transactions', { headers: authHeader(), params });
+};
+
+/**
+ * Fetches the current user's whole transaction history, page by page.
+ * @returns {Promise} - A promise resolving with an array of transaction objects, newest first.
+ */
+const getAllMyTransactions = async () => {
+  const transactions = [];
+  let cursor;
+  do {
+    const response = await getMyTransactions({ cursor, limit: 200 });
+    transactions.push(...response.data.transactions);
+    cursor = response.data.nextCursor;
+  } while (cursor);
+  return transactions;
+};
+
+/**
+ * Downloads the current user's complete transaction history as a file.
+ * @param {string} format - 'csv' or 'ndjson'.
+ * @returns {Promise} - A promise resolving once the browser has been handed the file.
+ */
+const downloadTransactions = async (format = 'csv') => {
+  const response = await axios.get(API_URL + 'transactions/export', {
+    headers: authHeader(),
+    params: { format },
+    responseType: 'blob',
+  });
+  const url = URL.createObjectURL(response.data);
+  const link = document.createElement('a');
+  link.href = url;
+  link.download = 'transactions.' + format;
+  link.click();
+  URL.revokeObjectURL(url);
 };
 
 // Export the service methods
 const portfolioService = {
   getMyPortfolio,
   getMyTransactions,
+  getAllMyTransactions,
+  downloadTransactions,
 };
 
 export default portfolioService;
@@ -0,0 +1,70 @@
+// src/services/price-stream.service.js
+
+// Delay before a page reconnects after its WebSocket connection dropped
+const RECONNECT_DELAY_MS = 5000;
+
+/**
+ * Subscribes a connected STOMP client to the price ticks on /topic/prices.
+ * Every tick carries its epoch and sequence; the last applied pair is kept in cursorRef, which the page
+ * keeps across connections. On a reconnect (cursorRef already set) the client sends it to
+ * /app/prices.resume and the server answers on /user/queue/prices.resume with either the missed ticks
+ * or, when they are no longer buffered, the latest tick per symbol. Topic ticks arriving before that
+ * answer are held back and applied after it, and ticks already applied are skipped by sequence.
+ * @param {object} client - A connected STOMP client.
+ * @param {object} cursorRef - A ref holding { epoch, sequence } of the last applied tick (both null before the
+ *                             first one), or null before the first connection.
+ * @param {function} onTick - Called with each tick to apply, in stream order.
+ */
+const subscribePrices = (client, cursorRef, onTick) => {
+  let heldBack = cursorRef.current ? [] : null; // Topic ticks received while the resume answer is pending
+
+  const apply = (tick) => {
+    const cursor = cursorRef.current;
+    if (cursor && cursor.epoch === tick.epoch && tick.sequence <= cursor.sequence) {
+      return; // Already applied, e.g. both replayed and delivered on the topic
+    }
+    cursorRef.current = { epoch: tick.epoch, sequence: tick.sequence };
+    onTick(tick);
+  };
+
+  client.subscribe('/topic/prices', (wsMessage) => {
+    const tick = JSON.parse(wsMessage.body);
+    if (heldBack) {
+      heldBack.push(tick);
+    } else {
+      apply(tick);
+    }
+  });
+
+  if (!heldBack) {
+    cursorRef.current = { epoch: null, sequence: null }; // First connection: the page loads the current prices itself
+    return;
+  }
+
+  client.subscribe('/user/queue/prices.resume', (wsMessage) => {
+    const reply = JSON.parse(wsMessage.body);
+    console.log(`Price stream resumed with ${reply.ticks.length} ticks (${reply.mode}).`);
+    if (reply.mode === 'SNAPSHOT') {
+      // The latest tick per symbol replaces whatever was missed
+      reply.ticks.forEach(onTick);
+      cursorRef.current = { epoch: reply.epoch, sequence: reply.latestSequence };
+    } else {
+      reply.ticks.forEach(apply);
+    }
+    const pending = heldBack;
+    heldBack = null;
+    pending.forEach(apply);
+  });
+
+  client.send('/app/prices.resume', {}, JSON.stringify({
+    lastEpoch: cursorRef.current.epoch,
+    lastSequence: cursorRef.current.sequence,
+  }));
+};
+
+const priceStreamService = {
+  RECONNECT_DELAY_MS,
+  subscribePrices,
+};
+
+export default priceStreamService;